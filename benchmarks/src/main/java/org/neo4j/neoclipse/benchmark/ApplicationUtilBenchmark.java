@@ -0,0 +1,137 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.neoclipse.editor.NodeWrapper;
+import org.neo4j.neoclipse.editor.RelationshipWrapper;
+import org.neo4j.neoclipse.util.ApplicationUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ApplicationUtil}: rendering property values and serializing wrappers
+ * and rows to JSON.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class ApplicationUtilBenchmark
+{
+    private String string;
+    private long[] longs;
+    private List<Object> list;
+    private Map<String, Object> map;
+    private NodeWrapper node;
+    private Map<String, Object> row;
+
+    @Setup
+    public void setUp()
+    {
+        string = "a property value";
+        longs = new long[] { 1, 2, 3, 5, 8, 13, 21, 34 };
+        list = new ArrayList<Object>( Arrays.<Object>asList( "one", 2, 3.0, "four" ) );
+        map = properties();
+        node = new NodeWrapper( 1 );
+        node.setPropertyMap( properties() );
+        for ( int i = 0; i < 20; i++ )
+        {
+            RelationshipWrapper relationship = new RelationshipWrapper( i );
+            relationship.setEndNodeId( 100 + i );
+            relationship.setRelationshipType( "KNOWS" );
+            relationship.setPropertyMap( since( i ) );
+            node.addRelation( relationship );
+        }
+        row = new LinkedHashMap<String, Object>();
+        row.put( "n", node );
+        row.put( "name", string );
+        row.put( "count", 42L );
+    }
+
+    private static Map<String, Object> properties()
+    {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "name", "Thomas Anderson" );
+        properties.put( "age", 37 );
+        properties.put( "score", 0.75d );
+        properties.put( "active", true );
+        properties.put( "tags", new String[] { "one", "two", "three" } );
+        return properties;
+    }
+
+    private static Map<String, Object> since( final int i )
+    {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "since", 1990 + i );
+        return properties;
+    }
+
+    @Benchmark
+    public String getPropertyValueString()
+    {
+        return ApplicationUtil.getPropertyValue( string );
+    }
+
+    @Benchmark
+    public String getPropertyValueArray()
+    {
+        return ApplicationUtil.getPropertyValue( longs );
+    }
+
+    @Benchmark
+    public String getPropertyValueList()
+    {
+        return ApplicationUtil.getPropertyValue( list );
+    }
+
+    @Benchmark
+    public String getPropertyValueMap()
+    {
+        return ApplicationUtil.getPropertyValue( map );
+    }
+
+    @Benchmark
+    public String toJsonNode()
+    {
+        return ApplicationUtil.toJson( node );
+    }
+
+    @Benchmark
+    public String toJsonRow()
+    {
+        return ApplicationUtil.toJson( row );
+    }
+}
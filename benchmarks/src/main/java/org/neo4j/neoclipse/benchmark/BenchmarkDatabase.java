@@ -0,0 +1,220 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+import org.eclipse.jface.preference.PreferenceStore;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.neoclipse.connection.Alias;
+import org.neo4j.neoclipse.graphdb.GraphCallable;
+import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
+import org.neo4j.neoclipse.graphdb.GraphDbServiceMode;
+import org.neo4j.neoclipse.graphdb.GraphRunnable;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
+import org.neo4j.neoclipse.preference.Preferences;
+import org.neo4j.neoclipse.reltype.DirectedRelationship;
+
+/**
+ * An embedded database in a temporary directory, started through
+ * {@link GraphDbServiceManager} the same way the application does it and
+ * filled with a random graph. The graph is the same for every run: people
+ * with a few properties, connected by a handful of relationship types, plus
+ * one hub node connected to many of them.
+ */
+public class BenchmarkDatabase
+{
+    static final Label PERSON = DynamicLabel.label( "Person" );
+    static final RelationshipType[] TYPES = { DynamicRelationshipType.withName( "KNOWS" ),
+            DynamicRelationshipType.withName( "LIKES" ), DynamicRelationshipType.withName( "WORKS_WITH" ) };
+    private static final int HUB_RELATIONSHIPS = 1000;
+
+    private final File dir;
+    private final GraphDbServiceManager gsm;
+    private final GraphDatabaseService graphDb;
+    private final long[] nodeIds;
+
+    private BenchmarkDatabase( final File dir, final GraphDbServiceManager gsm, final GraphDatabaseService graphDb,
+            final long[] nodeIds )
+    {
+        this.dir = dir;
+        this.gsm = gsm;
+        this.graphDb = graphDb;
+        this.nodeIds = nodeIds;
+    }
+
+    /**
+     * Start a database and commit the graph.
+     * 
+     * @param nodeCount number of nodes, the hub not included
+     * @param relationshipsPerNode outgoing relationships of each node
+     * @return the running database
+     * @throws Exception
+     */
+    public static BenchmarkDatabase start( final int nodeCount, final int relationshipsPerNode ) throws Exception
+    {
+        File dir = Files.createTempDirectory( "neoclipse-benchmark" ).toFile();
+        PreferenceStore preferences = new PreferenceStore();
+        preferences.setValue( Preferences.CONNECTION_MODE, GraphDbServiceMode.READ_WRITE_EMBEDDED.name() );
+        GraphDbServiceManager gsm = new GraphDbServiceManager( preferences );
+        gsm.startGraphDbService( new Alias( "benchmark", dir.getAbsolutePath(), null, null ) ).get();
+        final long[] nodeIds = new long[nodeCount + 1];
+        gsm.submitTask( new GraphRunnable()
+        {
+            @Override
+            public void run( final GraphDatabaseService graphDb )
+            {
+                Random random = new Random( 42 );
+                Node[] nodes = new Node[nodeIds.length];
+                for ( int i = 0; i < nodes.length; i++ )
+                {
+                    nodes[i] = graphDb.createNode( PERSON );
+                    nodes[i].setProperty( "name", "person " + i );
+                    nodes[i].setProperty( "age", 18 + random.nextInt( 60 ) );
+                    nodes[i].setProperty( "tags",
+                            new String[] { "tag" + random.nextInt( 10 ), "tag" + random.nextInt( 10 ) } );
+                    nodeIds[i] = nodes[i].getId();
+                }
+                for ( int i = 1; i < nodes.length; i++ )
+                {
+                    for ( int j = 0; j < relationshipsPerNode; j++ )
+                    {
+                        Node other = nodes[1 + random.nextInt( nodes.length - 1 )];
+                        nodes[i].createRelationshipTo( other, TYPES[random.nextInt( TYPES.length )] ).setProperty(
+                                "since", 1990 + random.nextInt( 30 ) );
+                    }
+                }
+                for ( int i = 0; i < HUB_RELATIONSHIPS; i++ )
+                {
+                    nodes[0].createRelationshipTo( nodes[1 + random.nextInt( nodes.length - 1 )], TYPES[0] );
+                }
+            }
+        }, "create benchmark graph", TaskIntent.WRITE ).get();
+        gsm.commit().get();
+        GraphDatabaseService graphDb = gsm.executeTask( new GraphCallable<GraphDatabaseService>()
+        {
+            @Override
+            public GraphDatabaseService call( final GraphDatabaseService graphDb )
+            {
+                return graphDb;
+            }
+        }, "get benchmark database" );
+        return new BenchmarkDatabase( dir, gsm, graphDb, nodeIds );
+    }
+
+    public GraphDbServiceManager getServiceManager()
+    {
+        return gsm;
+    }
+
+    /**
+     * The database itself, for work done on the calling thread. Open a
+     * transaction before reading from it.
+     */
+    public GraphDatabaseService getGraphDb()
+    {
+        return graphDb;
+    }
+
+    /**
+     * Id of the node connected to {@value #HUB_RELATIONSHIPS} others.
+     */
+    public long getHubId()
+    {
+        return nodeIds[0];
+    }
+
+    /**
+     * Id of an ordinary node.
+     */
+    public long getNodeId( final int index )
+    {
+        return nodeIds[1 + index % ( nodeIds.length - 1 )];
+    }
+
+    /**
+     * All relationship types, followed in both directions.
+     */
+    public static DirectedRelationship[] allDirections()
+    {
+        DirectedRelationship[] rels = new DirectedRelationship[TYPES.length];
+        for ( int i = 0; i < rels.length; i++ )
+        {
+            final RelationshipType type = TYPES[i];
+            rels[i] = new DirectedRelationship()
+            {
+                @Override
+                public RelationshipType getRelType()
+                {
+                    return type;
+                }
+
+                @Override
+                public Direction getDirection()
+                {
+                    return Direction.BOTH;
+                }
+
+                @Override
+                public boolean hasDirection()
+                {
+                    return true;
+                }
+            };
+        }
+        return rels;
+    }
+
+    /**
+     * Stop the database and remove its files.
+     */
+    public void stop() throws Exception
+    {
+        gsm.shutdownGraphDbService().get();
+        Files.walkFileTree( dir.toPath(), new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile( final Path file, final BasicFileAttributes attrs ) throws IOException
+            {
+                Files.delete( file );
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory( final Path directory, final IOException e ) throws IOException
+            {
+                Files.delete( directory );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+}
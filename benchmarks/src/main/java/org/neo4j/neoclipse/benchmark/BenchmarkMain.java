@@ -0,0 +1,62 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks like the JMH launcher does, but writes the results to
+ * <code>jmh-result.json</code> unless told otherwise, so runs of different
+ * versions can be compared.
+ */
+public final class BenchmarkMain
+{
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain()
+    {
+        // preventing instantiation
+    }
+
+    public static void main( final String[] args ) throws Exception
+    {
+        CommandLineOptions commandLine = new CommandLineOptions( args );
+        if ( commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()
+             || commandLine.shouldListResultFormats() )
+        {
+            Main.main( args );
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent( commandLine );
+        if ( !commandLine.getResultFormat().hasValue() )
+        {
+            options.resultFormat( ResultFormatType.JSON );
+        }
+        if ( !commandLine.getResult().hasValue() )
+        {
+            options.result( RESULT_FILE );
+        }
+        new Runner( options.build() ).run();
+    }
+}
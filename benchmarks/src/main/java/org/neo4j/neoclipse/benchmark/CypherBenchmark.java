@@ -0,0 +1,149 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.neoclipse.editor.CypherResultSet;
+import org.neo4j.neoclipse.editor.EntityHandles;
+import org.neo4j.neoclipse.editor.PagedRowSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Running a Cypher query through <code>executeCypher</code> and converting
+ * its rows, the way the Cypher editor does, and resolving a page of the
+ * result for display.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class CypherBenchmark
+{
+    private static final String QUERY = "MATCH (n:Person)-[r]->(m) RETURN n, r, m, n.name AS name LIMIT {rows}";
+    private static final int CHUNK_SIZE = 500;
+
+    @Param( { "100", "10000" } )
+    public long rows;
+
+    private BenchmarkDatabase db;
+    private Map<String, Object> parameters;
+    private List<JsonObject> page;
+
+    @Setup( Level.Trial )
+    public void start() throws Exception
+    {
+        db = BenchmarkDatabase.start( 10000, 5 );
+        parameters = Collections.<String, Object>singletonMap( "rows", rows );
+        PagedRowSource source = toRowSource();
+        page = source.readPage( 0 );
+        source.close();
+    }
+
+    @TearDown( Level.Trial )
+    public void stop() throws Exception
+    {
+        db.stop();
+    }
+
+    /**
+     * Fetch and convert all rows.
+     */
+    @Benchmark
+    public int executeCypher() throws Exception
+    {
+        CypherResultSet result = db.getServiceManager().executeCypher( QUERY, parameters );
+        int count = 0;
+        try
+        {
+            while ( result.hasMore() )
+            {
+                count += result.next( CHUNK_SIZE ).size();
+            }
+        }
+        finally
+        {
+            result.close();
+        }
+        return count;
+    }
+
+    /**
+     * Fetch, convert and store all rows, like the query job of the editor.
+     */
+    @Benchmark
+    public int executeCypherToRowSource() throws Exception
+    {
+        PagedRowSource source = toRowSource();
+        try
+        {
+            return source.size();
+        }
+        finally
+        {
+            source.close();
+        }
+    }
+
+    /**
+     * Read the nodes and relationships of a page of rows.
+     */
+    @Benchmark
+    public List<JsonObject> resolvePage()
+    {
+        return EntityHandles.resolve( page, db.getServiceManager() );
+    }
+
+    private PagedRowSource toRowSource() throws Exception
+    {
+        PagedRowSource source = new PagedRowSource();
+        CypherResultSet result = db.getServiceManager().executeCypher( QUERY, parameters );
+        try
+        {
+            while ( result.hasMore() )
+            {
+                source.append( result.next( CHUNK_SIZE ) );
+            }
+        }
+        finally
+        {
+            result.close();
+        }
+        return source;
+    }
+}
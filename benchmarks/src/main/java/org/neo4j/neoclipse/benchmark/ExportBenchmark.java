@@ -0,0 +1,125 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.neoclipse.util.DataExportUtils;
+import org.neo4j.neoclipse.util.ResultWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The writers behind the CSV, JSON and XML exports of
+ * {@link DataExportUtils}, writing result rows to a file.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class ExportBenchmark
+{
+    private static final int ROWS = 10000;
+    private static final List<String> COLUMNS = Arrays.asList( "name", "age", "tags", "n" );
+
+    @Param( { "csv", "json", "xml" } )
+    public String format;
+    @Param( { "false", "true" } )
+    public boolean compressed;
+
+    private File dir;
+    private List<JsonObject> rows;
+    private int files = 0;
+
+    @Setup( Level.Trial )
+    public void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory( "neoclipse-export" ).toFile();
+        rows = new ArrayList<JsonObject>( ROWS );
+        for ( int i = 0; i < ROWS; i++ )
+        {
+            JsonObject node = new JsonObject();
+            node.addProperty( "id", i );
+            JsonObject properties = new JsonObject();
+            properties.addProperty( "name", "person " + i );
+            properties.addProperty( "comment", "likes <graphs> & \"quotes\", commas" );
+            node.add( "propertyMap", properties );
+            JsonArray tags = new JsonArray();
+            tags.add( new JsonPrimitive( "tag" + i % 10 ) );
+            tags.add( new JsonPrimitive( "tag" + i % 7 ) );
+            JsonObject row = new JsonObject();
+            row.addProperty( "name", "person " + i );
+            row.addProperty( "age", 18 + i % 60 );
+            row.add( "tags", tags );
+            row.add( "n", node );
+            rows.add( row );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+    {
+        dir.delete();
+    }
+
+    @Benchmark
+    public long export() throws IOException
+    {
+        File file = new File( dir, "export-" + files++ );
+        ResultWriter writer = "csv".equals( format ) ? ResultWriter.csv( file, compressed, COLUMNS )
+            : "json".equals( format ) ? ResultWriter.json( file, compressed ) : ResultWriter.xml( file, compressed );
+        try
+        {
+            for ( JsonObject row : rows )
+            {
+                writer.write( row );
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+        long length = file.length();
+        file.delete();
+        return length;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.neoclipse.layout.AnytimeLayout;
+import org.neo4j.neoclipse.layout.BarnesHutLayout;
+import org.neo4j.neoclipse.layout.ForceDirectedLayout;
+import org.neo4j.neoclipse.layout.LayoutSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One step of the background layouts on a random graph with two
+ * relationships per node.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class LayoutBenchmark
+{
+    @Param( { "1000", "5000", "20000" } )
+    public int nodes;
+
+    private AnytimeLayout forceDirected;
+    private AnytimeLayout barnesHut;
+
+    @Setup( Level.Iteration )
+    public void setUp()
+    {
+        forceDirected = new ForceDirectedLayout();
+        forceDirected.init( snapshot() );
+        barnesHut = new BarnesHutLayout();
+        barnesHut.init( snapshot() );
+    }
+
+    private LayoutSnapshot snapshot()
+    {
+        Random random = new Random( 42 );
+        float[] x = new float[nodes];
+        float[] y = new float[nodes];
+        float[] size = new float[nodes];
+        for ( int i = 0; i < nodes; i++ )
+        {
+            x[i] = random.nextFloat() * 800;
+            y[i] = random.nextFloat() * 600;
+            size[i] = 20;
+        }
+        int[] sources = new int[nodes * 2];
+        int[] targets = new int[nodes * 2];
+        for ( int r = 0; r < sources.length; r++ )
+        {
+            sources[r] = random.nextInt( nodes );
+            targets[r] = ( sources[r] + 1 + random.nextInt( nodes - 1 ) ) % nodes;
+        }
+        return new LayoutSnapshot( x, y, size, size, sources, targets, 800, 600 );
+    }
+
+    @Benchmark
+    public boolean forceDirectedStep()
+    {
+        return forceDirected.step();
+    }
+
+    @Benchmark
+    public boolean barnesHutStep()
+    {
+        return barnesHut.step();
+    }
+}
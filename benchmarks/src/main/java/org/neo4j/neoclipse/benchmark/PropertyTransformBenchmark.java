@@ -0,0 +1,92 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.neoclipse.property.PropertyTransform;
+import org.neo4j.neoclipse.property.PropertyTransform.PropertyHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link PropertyTransform}: parsing property values typed into the property
+ * editor, and rendering them back.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class PropertyTransformBenchmark
+{
+    private PropertyHandler stringArrayHandler;
+    private PropertyHandler intArrayHandler;
+    private PropertyHandler doubleHandler;
+    private int[] ints;
+
+    @Setup
+    public void setUp()
+    {
+        stringArrayHandler = PropertyTransform.getHandler( String[].class );
+        intArrayHandler = PropertyTransform.getHandler( int[].class );
+        doubleHandler = PropertyTransform.getHandler( Double.class );
+        ints = new int[] { 1, 2, 3, 5, 8, 13, 21, 34, 55, 89 };
+    }
+
+    @Benchmark
+    public Object parseStringArray() throws IOException
+    {
+        return stringArrayHandler.parse( "[\"one\", \"two words\", \"three \\\"quoted\\\"\"]" );
+    }
+
+    @Benchmark
+    public Object parseIntArray() throws IOException
+    {
+        return intArrayHandler.parse( "[1, 2, 3, 5, 8, 13, 21, 34, 55, 89]" );
+    }
+
+    @Benchmark
+    public Object parseDouble() throws IOException
+    {
+        return doubleHandler.parse( "3.14159" );
+    }
+
+    @Benchmark
+    public PropertyHandler getHandler()
+    {
+        return PropertyTransform.getHandler( ints );
+    }
+
+    @Benchmark
+    public String render()
+    {
+        return PropertyTransform.render( ints );
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.neoclipse.reltype.RelationshipTypeHashMap;
+import org.neo4j.neoclipse.reltype.RelationshipTypeHashSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link RelationshipTypeHashMap} and {@link RelationshipTypeHashSet}, which
+ * key relationship types by name.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class RelationshipTypeCollectionsBenchmark
+{
+    @Param( { "8", "64" } )
+    public int types;
+
+    private RelationshipType[] relTypes;
+    private RelationshipType[] lookups;
+    private RelationshipTypeHashMap<Integer> map;
+    private RelationshipTypeHashSet set;
+
+    @Setup
+    public void setUp()
+    {
+        relTypes = new RelationshipType[types];
+        lookups = new RelationshipType[types];
+        map = new RelationshipTypeHashMap<Integer>();
+        set = new RelationshipTypeHashSet();
+        for ( int i = 0; i < types; i++ )
+        {
+            relTypes[i] = DynamicRelationshipType.withName( "TYPE_" + i );
+            // equal by name only, like the types coming from the database
+            lookups[i] = DynamicRelationshipType.withName( "TYPE_" + i );
+            map.put( relTypes[i], i );
+            set.add( relTypes[i] );
+        }
+    }
+
+    @Benchmark
+    public RelationshipTypeHashMap<Integer> mapPut()
+    {
+        RelationshipTypeHashMap<Integer> filled = new RelationshipTypeHashMap<Integer>();
+        for ( int i = 0; i < relTypes.length; i++ )
+        {
+            filled.put( relTypes[i], i );
+        }
+        return filled;
+    }
+
+    @Benchmark
+    public int mapGet()
+    {
+        int sum = 0;
+        for ( RelationshipType relType : lookups )
+        {
+            sum += map.get( relType );
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int mapIterate()
+    {
+        int sum = 0;
+        for ( RelationshipType relType : map.keySet() )
+        {
+            sum += relType.name().length();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public RelationshipTypeHashSet setAdd()
+    {
+        RelationshipTypeHashSet filled = new RelationshipTypeHashSet();
+        for ( RelationshipType relType : relTypes )
+        {
+            filled.add( relType );
+        }
+        return filled;
+    }
+
+    @Benchmark
+    public int setContains()
+    {
+        int found = 0;
+        for ( RelationshipType relType : lookups )
+        {
+            if ( set.contains( relType ) )
+            {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int setIterate()
+    {
+        int sum = 0;
+        for ( RelationshipType relType : set )
+        {
+            sum += relType.name().length();
+        }
+        return sum;
+    }
+}
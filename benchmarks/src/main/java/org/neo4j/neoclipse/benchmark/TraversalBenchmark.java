@@ -0,0 +1,147 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.neoclipse.graphdb.DefaultTraverser;
+import org.neo4j.neoclipse.reltype.DirectedRelationship;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link DefaultTraverser}: building the graph view around a node, with and
+ * without the traversal cache, and looking up the relationships between
+ * nodes that are shown.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class TraversalBenchmark
+{
+    private static final int NODE_LIMIT = 500;
+    private static final int RELATIONSHIP_LIMIT = 100;
+
+    @Param( { "1", "2", "3" } )
+    public int depth;
+    @Param( { "false", "true" } )
+    public boolean fromHub;
+
+    private BenchmarkDatabase db;
+    private Collection<DirectedRelationship> rels;
+    private Node start;
+    private DefaultTraverser cachedTraverser;
+    private DefaultTraverser shownTraverser;
+    private List<Node> shown;
+
+    @Setup( Level.Trial )
+    public void start() throws Exception
+    {
+        db = BenchmarkDatabase.start( 10000, 5 );
+        rels = Arrays.asList( BenchmarkDatabase.allDirections() );
+        try ( Transaction tx = db.getGraphDb().beginTx() )
+        {
+            start = db.getGraphDb().getNodeById( fromHub ? db.getHubId() : db.getNodeId( 0 ) );
+            cachedTraverser = new DefaultTraverser();
+            cachedTraverser.getNodes( start, rels, depth, NODE_LIMIT, RELATIONSHIP_LIMIT, db.getServiceManager() );
+            shownTraverser = new DefaultTraverser();
+            shown = new ArrayList<Node>( shownTraverser.getNodes( start, rels, depth, NODE_LIMIT, RELATIONSHIP_LIMIT,
+                    db.getServiceManager() ) );
+            tx.success();
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void stop() throws Exception
+    {
+        db.stop();
+    }
+
+    /**
+     * A traversal that has to go to the database.
+     */
+    @Benchmark
+    public Collection<Node> getNodes()
+    {
+        db.getServiceManager().getTraversalCache().invalidate();
+        try ( Transaction tx = db.getGraphDb().beginTx() )
+        {
+            Collection<Node> nodes = new DefaultTraverser().getNodes( start, rels, depth, NODE_LIMIT,
+                    RELATIONSHIP_LIMIT, db.getServiceManager() );
+            tx.success();
+            return nodes;
+        }
+    }
+
+    /**
+     * The same traversal again, answered by the traversal cache.
+     */
+    @Benchmark
+    public Collection<Node> getNodesCached()
+    {
+        try ( Transaction tx = db.getGraphDb().beginTx() )
+        {
+            Collection<Node> nodes = cachedTraverser.getNodes( start, rels, depth, NODE_LIMIT, RELATIONSHIP_LIMIT,
+                    db.getServiceManager() );
+            tx.success();
+            return nodes;
+        }
+    }
+
+    /**
+     * The relationships between the start node and every shown node, as the
+     * graph viewer asks for them.
+     */
+    @Benchmark
+    public int getRelationships()
+    {
+        int count = 0;
+        try ( Transaction tx = db.getGraphDb().beginTx() )
+        {
+            for ( Node node : shown )
+            {
+                Collection<Relationship> found = shownTraverser.getRelationships( start, node );
+                count += found.size();
+            }
+            tx.success();
+        }
+        return count;
+    }
+}
@@ -35,6 +35,7 @@ public enum Actions
     HELP_WINDOW( "Help window", Icons.HELP_WINDOW_ENABLED, Icons.HELP_WINDOW_DISABLED ),
     SEARCH( "Search", Icons.SEARCH_ENABLED, Icons.SEARCH_DISABLED ),
     CONNECTIONS( "Database location", Icons.CONNECTIONS_ENABLED, Icons.CONNECTIONS_DISABLED ),
+    PERFORMANCE_VIEW( "Performance view", Icons.REFRESH ),
 
     // connect
     NEW_CONNECTION( "New Connection", Icons.NEW_ALIAS_ENABLED, Icons.NEW_ALIAS_DISABLED ),
@@ -110,7 +111,9 @@ public enum Actions
     HORIZONTAL_TREE_LAYOUT( "Horizontal tree layout" ),
     RADIAL_LAYOUT( "Radial layout", Icons.RADIAL ),
     SPRING_LAYOUT( "Spring layout", Icons.SPRING ),
+    BARNES_HUT_LAYOUT( "Force-directed layout for large graphs", Icons.SPRING ),
     TREE_LAYOUT( "Tree layout", Icons.TREE ),
+    STOP_LAYOUT( "Stop layout", Icons.STOP_ENABLED, Icons.STOP_DISABLED ),
     // traversal depth
     DECREASE_TRAVERSAL_DEPTH( "Decrease traversal depth", Icons.MINUS_ENABLED, Icons.MINUS_DISABLED ),
     INCREASE_TRAVERSAL_DEPTH( "Increase traversal depth", Icons.PLUS_ENABLED, Icons.PLUS_DISABLED ),
@@ -125,7 +128,13 @@ public enum Actions
     NEW_CYPHER_EDITOR( "New Cypher Editor", Icons.CYPHER_EDITOR_ENABLED, Icons.CYPHER_EDITOR_DISABLED ),
     FORCE_START( "Close other connection and start", Icons.FORCE_START_ENABLED, Icons.FORCE_START_DISABLED ),
     EXPORT_XML( "ExportToXml", Icons.XML, Icons.XML ),
-    EXPORT_JSON( "ExportToJson", Icons.JSON, Icons.JSON ), ;
+    EXPORT_JSON( "ExportToJson", Icons.JSON, Icons.JSON ),
+    // search result
+    GROUP_BY_INDEX( "Group by index", "Show the matches of each searched index or label on their own.", null ),
+    GROUP_BY_TYPE( "Group by type", "Show all matching nodes together, and all matching relationships.", null ),
+    SORT_BY_ID( "Sort by id", "Sort the matches in a group by id instead of the order they were found in.", null ),
+    GENERATE_GRAPH( "Generate synthetic graph", "Fill the database with a generated graph.", Icons.ADD_ENABLED,
+            Icons.ADD_DISABLED ), ;
 
     private final String label;
     private final String tooltip;
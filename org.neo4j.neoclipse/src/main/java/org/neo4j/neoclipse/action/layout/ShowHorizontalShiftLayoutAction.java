@@ -49,9 +49,8 @@ public class ShowHorizontalShiftLayoutAction extends AbstractGraphAction
     {
         if ( isChecked() )
         {
-            graphView.getViewer().setLayoutAlgorithm(
-                    new HorizontalShift( LayoutStyles.NO_LAYOUT_NODE_RESIZING ),
-                    true );
+            graphView.setLayoutAlgorithm(
+                    new HorizontalShift( LayoutStyles.NO_LAYOUT_NODE_RESIZING ) );
         }
     }
 }
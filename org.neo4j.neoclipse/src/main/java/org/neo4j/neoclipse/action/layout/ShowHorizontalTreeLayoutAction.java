@@ -49,9 +49,9 @@ public class ShowHorizontalTreeLayoutAction extends AbstractGraphAction
     {
         if ( isChecked() )
         {
-            graphView.getViewer().setLayoutAlgorithm(
+            graphView.setLayoutAlgorithm(
                     new HorizontalTreeLayoutAlgorithm(
-                            LayoutStyles.NO_LAYOUT_NODE_RESIZING ), true );
+                            LayoutStyles.NO_LAYOUT_NODE_RESIZING ) );
         }
     }
 }
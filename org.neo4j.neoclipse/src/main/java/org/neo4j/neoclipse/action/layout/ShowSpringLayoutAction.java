@@ -20,9 +20,9 @@ package org.neo4j.neoclipse.action.layout;
 
 import org.eclipse.jface.action.Action;
 import org.eclipse.zest.layouts.LayoutStyles;
-import org.eclipse.zest.layouts.algorithms.SpringLayoutAlgorithm;
 import org.neo4j.neoclipse.action.AbstractGraphAction;
 import org.neo4j.neoclipse.action.Actions;
+import org.neo4j.neoclipse.layout.BackgroundLayoutAlgorithm;
 import org.neo4j.neoclipse.view.NeoGraphViewPart;
 
 /**
@@ -49,9 +49,9 @@ public class ShowSpringLayoutAction extends AbstractGraphAction
     {
         if ( isChecked() )
         {
-            graphView.getViewer().setLayoutAlgorithm(
-                    new SpringLayoutAlgorithm(
-                            LayoutStyles.NO_LAYOUT_NODE_RESIZING ), true );
+            graphView.setLayoutAlgorithm(
+                    BackgroundLayoutAlgorithm.springLayout(
+                            LayoutStyles.NO_LAYOUT_NODE_RESIZING ) );
         }
     }
 }
@@ -30,6 +30,7 @@ import org.neo4j.neoclipse.connection.actions.EditAliasAction;
 import org.neo4j.neoclipse.connection.actions.ExportToJsonAction;
 import org.neo4j.neoclipse.connection.actions.ExportToXmlAction;
 import org.neo4j.neoclipse.connection.actions.ForceStartAction;
+import org.neo4j.neoclipse.connection.actions.GenerateGraphAction;
 import org.neo4j.neoclipse.connection.actions.NewAliasAction;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
 import org.neo4j.neoclipse.view.NeoGraphViewPart;
@@ -75,6 +76,10 @@ public class ConnectionTreeActionGroup extends ActionGroup
             if ( !graphDbServiceManager.isRunning() )
             {
                 addAction( menu, new StartAction( neoGraphView ) );
+                if ( alias.getConnectionMode() == ConnectionMode.LOCAL )
+                {
+                    addAction( menu, new GenerateGraphAction() );
+                }
                 menu.add( new Separator() );
             }
             else
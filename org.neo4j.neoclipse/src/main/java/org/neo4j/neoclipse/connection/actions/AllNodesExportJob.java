@@ -0,0 +1,79 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.connection.actions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.neo4j.neoclipse.editor.EntityHandles;
+import org.neo4j.neoclipse.graphdb.CypherCursor;
+import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
+import org.neo4j.neoclipse.util.ApplicationUtil;
+import org.neo4j.neoclipse.util.ExportJob;
+import org.neo4j.neoclipse.util.ResultWriter;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Exports all nodes of the database, streaming them from a Cypher cursor so
+ * the database doesn't have to fit in memory.
+ */
+class AllNodesExportJob extends ExportJob
+{
+    private static final String ALL_NODES_STATEMENT = "START n=node(*) RETURN n";
+    private static final int CHUNK_SIZE = 1000;
+
+    private final GraphDbServiceManager gsm;
+
+    AllNodesExportJob( final String format, final ResultWriter writer, final GraphDbServiceManager gsm )
+    {
+        super( format, writer );
+        this.gsm = gsm;
+    }
+
+    @Override
+    protected void export( final ResultWriter writer, final IProgressMonitor monitor ) throws Exception
+    {
+        monitor.beginTask( getName(), IProgressMonitor.UNKNOWN );
+        CypherCursor cursor = gsm.openCypherCursor( ALL_NODES_STATEMENT );
+        try
+        {
+            while ( cursor.hasMore() && !monitor.isCanceled() )
+            {
+                List<JsonObject> rows = new ArrayList<JsonObject>();
+                for ( Map<String, Object> row : cursor.fetch( CHUNK_SIZE ) )
+                {
+                    rows.add( ApplicationUtil.toJsonTree( row ).getAsJsonObject() );
+                }
+                for ( JsonObject row : EntityHandles.resolve( rows, gsm ) )
+                {
+                    writer.write( row.get( "n" ) );
+                }
+                monitor.subTask( writer.getRowCount() + " nodes" );
+                monitor.worked( rows.size() );
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+}
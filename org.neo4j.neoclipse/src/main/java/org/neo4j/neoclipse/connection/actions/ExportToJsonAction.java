@@ -18,15 +18,10 @@
  */
 package org.neo4j.neoclipse.connection.actions;
 
-import java.io.File;
-import java.util.List;
-
 import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.action.Actions;
 import org.neo4j.neoclipse.connection.AbstractConnectionTreeAction;
-import org.neo4j.neoclipse.editor.NodeWrapper;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
-import org.neo4j.neoclipse.util.ApplicationUtil;
 import org.neo4j.neoclipse.util.DataExportUtils;
 import org.neo4j.neoclipse.view.ErrorMessage;
 
@@ -47,16 +42,13 @@ public class ExportToJsonAction extends AbstractConnectionTreeAction
     {
         try
         {
-            final GraphDbServiceManager gsm = Activator.getDefault().getGraphDbServiceManager();
-            final List<NodeWrapper> resultSetList = gsm.getAllNodes();
-            File file = DataExportUtils.exportToJson( ApplicationUtil.toJson( resultSetList ) );
-            ErrorMessage.showDialog( "Json Export", "Json file is created at " + file );
+            GraphDbServiceManager gsm = Activator.getDefault().getGraphDbServiceManager();
+            new AllNodesExportJob( "Json", DataExportUtils.openJson(), gsm ).schedule();
         }
         catch ( Exception e )
         {
             ErrorMessage.showDialog( "Json exporting problem", e );
         }
-
     }
 
 
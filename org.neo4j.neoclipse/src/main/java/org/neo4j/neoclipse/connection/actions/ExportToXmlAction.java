@@ -18,15 +18,10 @@
  */
 package org.neo4j.neoclipse.connection.actions;
 
-import java.io.File;
-import java.util.List;
-
 import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.action.Actions;
 import org.neo4j.neoclipse.connection.AbstractConnectionTreeAction;
-import org.neo4j.neoclipse.editor.NodeWrapper;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
-import org.neo4j.neoclipse.util.ApplicationUtil;
 import org.neo4j.neoclipse.util.DataExportUtils;
 import org.neo4j.neoclipse.view.ErrorMessage;
 
@@ -47,18 +42,13 @@ public class ExportToXmlAction extends AbstractConnectionTreeAction
     {
         try
         {
-            final GraphDbServiceManager gsm = Activator.getDefault().getGraphDbServiceManager();
-            final List<NodeWrapper> resultSetList = gsm.getAllNodes();
-
-            // final JSONArray jsonArray = new JSONArray( resultSetList );
-            File file = DataExportUtils.exportToXml( ApplicationUtil.toJson( resultSetList ) );
-            ErrorMessage.showDialog( "XML Export", "XML file is created at " + file );
+            GraphDbServiceManager gsm = Activator.getDefault().getGraphDbServiceManager();
+            new AllNodesExportJob( "XML", DataExportUtils.openXml(), gsm ).schedule();
         }
         catch ( Exception e )
         {
             ErrorMessage.showDialog( "XML exporting problem", e );
         }
-
     }
 
 
@@ -0,0 +1,56 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.connection.actions;
+
+import org.eclipse.jface.wizard.WizardDialog;
+import org.eclipse.swt.widgets.Display;
+import org.neo4j.neoclipse.Activator;
+import org.neo4j.neoclipse.action.Actions;
+import org.neo4j.neoclipse.connection.AbstractConnectionTreeAction;
+import org.neo4j.neoclipse.connection.Alias;
+import org.neo4j.neoclipse.generator.GenerateGraphWizard;
+import org.neo4j.neoclipse.view.ErrorMessage;
+
+/**
+ * Fill the store of the selected, stopped, local connection with a generated
+ * graph.
+ */
+public class GenerateGraphAction extends AbstractConnectionTreeAction
+{
+    public GenerateGraphAction()
+    {
+        super( Actions.GENERATE_GRAPH );
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            Alias alias = Activator.getDefault().getConnectionsView().getSelectedAlias();
+            WizardDialog dialog = new WizardDialog( Display.getCurrent().getActiveShell(), new GenerateGraphWizard(
+                    alias ) );
+            dialog.open();
+        }
+        catch ( Exception e )
+        {
+            ErrorMessage.showDialog( "Generate graph problem", e );
+        }
+    }
+}
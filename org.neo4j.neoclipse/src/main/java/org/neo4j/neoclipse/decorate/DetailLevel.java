@@ -0,0 +1,74 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.decorate;
+
+/**
+ * How much of a graph element is rendered, depending on the zoom level. Each
+ * level includes the ones before it; what a level doesn't render is not read
+ * from the database either.
+ */
+public enum DetailLevel
+{
+    /**
+     * Node ids only, no relationship labels.
+     */
+    IDS,
+    /**
+     * The first node label property, shortened, and relationship types.
+     */
+    SHORT_LABELS,
+    /**
+     * Full node and relationship labels.
+     */
+    FULL_LABELS,
+    /**
+     * Full labels and user icons.
+     */
+    ICONS;
+
+    /**
+     * Find the level for a zoom scale.
+     * 
+     * @param scale the zoom scale, 1.0 is 100%
+     * @param shortLabelZoom lowest zoom in percent to show short labels at
+     * @param fullLabelZoom lowest zoom in percent to show full labels at
+     * @param iconZoom lowest zoom in percent to show user icons at
+     * @return the detail level
+     */
+    public static DetailLevel forScale( final double scale, final int shortLabelZoom, final int fullLabelZoom,
+            final int iconZoom )
+    {
+        double percent = scale * 100;
+        // rounding errors of the zoom steps shouldn't drop a level
+        percent += 0.5;
+        if ( percent >= iconZoom && percent >= fullLabelZoom )
+        {
+            return ICONS;
+        }
+        if ( percent >= fullLabelZoom )
+        {
+            return FULL_LABELS;
+        }
+        if ( percent >= shortLabelZoom )
+        {
+            return SHORT_LABELS;
+        }
+        return IDS;
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.decorate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+
+/**
+ * Everything the decorator needs to render a set of nodes and the
+ * relationships between them, read from the database in a single pass. Lets
+ * the label provider answer from memory instead of going to the database for
+ * every label, color and icon. Once collected, a snapshot is only used from
+ * the UI thread.
+ * 
+ * @see SimpleGraphDecorator#setRenderSnapshot(RenderSnapshot)
+ */
+public class RenderSnapshot
+{
+    /**
+     * What is known about a node.
+     */
+    private static class NodeData
+    {
+        private final boolean referenceNode;
+        private final Map<String, Object> properties;
+        /**
+         * Relationship types connected to the node, in the order they are
+         * first seen when looking through the directions in order.
+         */
+        private final List<RelationshipType> relTypes = new ArrayList<RelationshipType>();
+        /**
+         * The direction for each of the relationship types.
+         */
+        private final List<Direction> relDirections = new ArrayList<Direction>();
+
+        public NodeData( final boolean referenceNode, final Map<String, Object> properties )
+        {
+            this.referenceNode = referenceNode;
+            this.properties = properties;
+        }
+    }
+
+    private final Map<Long, NodeData> nodes = new HashMap<Long, NodeData>();
+    private final Map<Long, Map<String, Object>> relationships = new HashMap<Long, Map<String, Object>>();
+    /**
+     * The detail level the properties were read for.
+     */
+    private final DetailLevel level;
+    private final List<String> labelKeys;
+
+    private RenderSnapshot( final DetailLevel level, final List<String> labelKeys )
+    {
+        this.level = level;
+        this.labelKeys = labelKeys;
+    }
+
+    /**
+     * Read the render data of some nodes. Has to be called from a graph
+     * task, as it reads from the database.
+     * 
+     * @param nodes the nodes to render
+     * @param directions order of relationship lookups for nodes
+     * @param relationshipLimit relationships to look at per node and
+     *            direction, 0 for all
+     * @param level what is rendered; no properties are read for ids only,
+     *            and only the label properties of nodes for short labels
+     * @param labelKeys the node label properties
+     * @return the snapshot
+     */
+    public static RenderSnapshot collect( final Collection<Node> nodes, final List<Direction> directions,
+            final int relationshipLimit, final DetailLevel level, final List<String> labelKeys )
+    {
+        return extend( null, nodes, directions, relationshipLimit, level, labelKeys );
+    }
+
+    /**
+     * Read the render data of some nodes, reusing what an earlier snapshot
+     * already holds. Only nodes missing from the earlier snapshot are read
+     * from the database, so it has to be called from a graph task. An
+     * earlier snapshot read for less detail is not reused.
+     * 
+     * @param previous earlier snapshot, may be null
+     * @param nodes the nodes to render
+     * @param directions order of relationship lookups for nodes
+     * @param relationshipLimit relationships to look at per node and
+     *            direction, 0 for all
+     * @param level what is rendered
+     * @param labelKeys the node label properties
+     * @return the snapshot
+     */
+    public static RenderSnapshot extend( final RenderSnapshot previous, final Collection<Node> nodes,
+            final List<Direction> directions, final int relationshipLimit, final DetailLevel level,
+            final List<String> labelKeys )
+    {
+        RenderSnapshot reusable = previous;
+        if ( reusable != null && ( reusable.level.compareTo( level ) < 0 || level == DetailLevel.SHORT_LABELS
+                                   && reusable.level == level && !reusable.labelKeys.equals( labelKeys ) ) )
+        {
+            reusable = null;
+        }
+        RenderSnapshot snapshot = new RenderSnapshot( level, labelKeys );
+        Set<Long> nodeIds = new HashSet<Long>();
+        for ( Node node : nodes )
+        {
+            nodeIds.add( node.getId() );
+        }
+        if ( reusable != null )
+        {
+            snapshot.relationships.putAll( reusable.relationships );
+        }
+        for ( Node node : nodes )
+        {
+            NodeData known = reusable == null ? null : reusable.nodes.get( node.getId() );
+            if ( known != null )
+            {
+                snapshot.nodes.put( node.getId(), known );
+                continue;
+            }
+            try
+            {
+                snapshot.nodes.put( node.getId(), snapshot.read( node, nodeIds, directions, relationshipLimit ) );
+            }
+            catch ( NotFoundException e )
+            {
+                // deleted meanwhile, nothing to render
+                continue;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Read a node. Only the first relationships of a hub are looked at, the
+     * ones connecting it to other shown nodes are found from the other end.
+     */
+    private NodeData read( final Node node, final Set<Long> nodeIds, final List<Direction> directions,
+            final int relationshipLimit )
+    {
+        NodeData data = new NodeData( node.getId() == 0, readNodeProperties( node ) );
+        Set<String> seen = new HashSet<String>();
+        for ( Direction direction : directions )
+        {
+            int count = 0;
+            for ( Relationship rel : node.getRelationships( direction ) )
+            {
+                if ( relationshipLimit > 0 && count++ == relationshipLimit )
+                {
+                    break;
+                }
+                RelationshipType type = rel.getType();
+                if ( seen.add( direction.name() + ':' + type.name() ) )
+                {
+                    data.relTypes.add( type );
+                    data.relDirections.add( direction );
+                }
+                if ( level.compareTo( DetailLevel.FULL_LABELS ) >= 0 && !relationships.containsKey( rel.getId() )
+                     && nodeIds.contains( rel.getOtherNode( node ).getId() ) )
+                {
+                    relationships.put( rel.getId(), readProperties( rel ) );
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Read the node properties needed at the detail level.
+     */
+    private Map<String, Object> readNodeProperties( final Node node )
+    {
+        if ( level == DetailLevel.IDS )
+        {
+            return Collections.emptyMap();
+        }
+        if ( level != DetailLevel.SHORT_LABELS )
+        {
+            return readProperties( node );
+        }
+        Map<String, Object> props = new HashMap<String, Object>();
+        for ( String key : labelKeys )
+        {
+            Object value = node.getProperty( key, null );
+            if ( value != null )
+            {
+                props.put( key, value );
+            }
+        }
+        return props;
+    }
+
+    private static Map<String, Object> readProperties( final PropertyContainer container )
+    {
+        Map<String, Object> props = new HashMap<String, Object>();
+        for ( String key : container.getPropertyKeys() )
+        {
+            props.put( key, container.getProperty( key ) );
+        }
+        return props;
+    }
+
+    /**
+     * Check if the snapshot holds the data of a node.
+     */
+    public boolean contains( final Node node )
+    {
+        return nodes.containsKey( node.getId() );
+    }
+
+    /**
+     * Check if a node is the reference node.
+     * 
+     * @param node
+     * @return null if the node isn't in the snapshot
+     */
+    public Boolean isReferenceNode( final Node node )
+    {
+        NodeData data = nodes.get( node.getId() );
+        return data == null ? null : data.referenceNode;
+    }
+
+    /**
+     * Get all properties of a node or relationship.
+     * 
+     * @param container
+     * @return the properties, null if the container isn't in the snapshot
+     */
+    public Map<String, Object> getProperties( final PropertyContainer container )
+    {
+        if ( container instanceof Node )
+        {
+            NodeData data = nodes.get( ( (Node) container ).getId() );
+            return data == null ? null : data.properties;
+        }
+        if ( container instanceof Relationship )
+        {
+            return relationships.get( ( (Relationship) container ).getId() );
+        }
+        return null;
+    }
+
+    /**
+     * Get the relationship types connected to a node.
+     * 
+     * @param node
+     * @return types in lookup order, null if the node isn't in the snapshot
+     */
+    public List<RelationshipType> getRelationshipTypes( final Node node )
+    {
+        NodeData data = nodes.get( node.getId() );
+        return data == null ? null : data.relTypes;
+    }
+
+    /**
+     * Get the directions matching {@link #getRelationshipTypes(Node)}.
+     * 
+     * @param node
+     * @return directions in lookup order, null if the node isn't in the
+     *         snapshot
+     */
+    public List<Direction> getRelationshipDirections( final Node node )
+    {
+        NodeData data = nodes.get( node.getId() );
+        return data == null ? null : data.relDirections;
+    }
+
+    /**
+     * Drop the data of a changed element, so it gets read from the database
+     * again.
+     * 
+     * @param element node or relationship
+     */
+    public void forget( final Object element )
+    {
+        if ( element instanceof Node )
+        {
+            nodes.remove( ( (Node) element ).getId() );
+        }
+        else if ( element instanceof Relationship )
+        {
+            relationships.remove( ( (Relationship) element ).getId() );
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.neo4j.neoclipse.decorate;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -41,6 +42,7 @@ import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.Icons;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
 import org.neo4j.neoclipse.graphdb.GraphDbUtil;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
 import org.neo4j.neoclipse.preference.DecoratorPreferences;
 import org.neo4j.neoclipse.property.PropertyTransform;
 import org.neo4j.neoclipse.property.PropertyTransform.PropertyHandler;
@@ -85,6 +87,10 @@ public class SimpleGraphDecorator
      */
     private static final Color HIGHLIGHTED_RELATIONSHIP_COLOR = new Color(
             Display.getDefault(), new RGB( 0, 0, 0 ) );
+    /**
+     * Maximum length of short node labels.
+     */
+    private static final int SHORT_TEXT_LENGTH = 16;
     /**
      * Map colors to relationship types.
      */
@@ -97,6 +103,10 @@ public class SimpleGraphDecorator
      * View settings for this decorator.
      */
     private final ViewSettings viewSettings;
+    /**
+     * Render data of the elements currently shown.
+     */
+    private volatile RenderSnapshot snapshot = null;
 
     public static class Settings
     {
@@ -120,6 +130,10 @@ public class SimpleGraphDecorator
          * Current location of icons.
          */
         private String nodeIconLocation;
+        /**
+         * Relationships to look at per node and direction, 0 for all.
+         */
+        private volatile int relationshipLimit = 0;
 
         public List<Direction> getDirections()
         {
@@ -131,6 +145,16 @@ public class SimpleGraphDecorator
             this.directions = directions;
         }
 
+        public int getRelationshipLimit()
+        {
+            return relationshipLimit;
+        }
+
+        public void setRelationshipLimit( final int relationshipLimit )
+        {
+            this.relationshipLimit = relationshipLimit;
+        }
+
         public String getNodeIconLocation()
         {
             return nodeIconLocation;
@@ -454,6 +478,17 @@ public class SimpleGraphDecorator
         userIcons = new UserIcons( settings.getNodeIconLocation() );
     }
 
+    /**
+     * Use already fetched render data where possible, instead of reading from
+     * the database.
+     * 
+     * @param snapshot render data, null to always read from the database
+     */
+    public void setRenderSnapshot( final RenderSnapshot snapshot )
+    {
+        this.snapshot = snapshot;
+    }
+
     public Color getNodeColor()
     {
         return NODE_BACKGROUND_COLOR;
@@ -473,6 +508,24 @@ public class SimpleGraphDecorator
      */
     private Color getNodeColor( final Node node, final boolean marked )
     {
+        RenderSnapshot current = snapshot;
+        if ( current != null && current.contains( node ) )
+        {
+            List<RelationshipType> types = current.getRelationshipTypes( node );
+            List<Direction> directions = current.getRelationshipDirections( node );
+            for ( int i = 0; i < types.size(); i++ )
+            {
+                if ( colorMapper.colorExists( types.get( i ) ) )
+                {
+                    return getColorFromDirection( types.get( i ), directions.get( i ), marked );
+                }
+            }
+            if ( !types.isEmpty() )
+            {
+                return getColorFromDirection( types.get( 0 ), directions.get( 0 ), marked );
+            }
+            return getNodeColor();
+        }
         GraphDbServiceManager gsm = Activator.getDefault()
                 .getGraphDbServiceManager();
         try
@@ -484,10 +537,16 @@ public class SimpleGraphDecorator
                 {
                     Relationship randomRel = null;
                     Direction randomDir = null;
+                    int limit = settings.getRelationshipLimit();
                     for ( Direction direction : settings.getDirections() )
                     {
+                        int count = 0;
                         for ( Relationship rel : node.getRelationships( direction ) )
                         {
+                            if ( limit > 0 && count++ == limit )
+                            {
+                                break;
+                            }
                             RelationshipType type = rel.getType();
                             if ( !colorMapper.colorExists( type ) )
                             {
@@ -512,7 +571,7 @@ public class SimpleGraphDecorator
                     }
                     return getNodeColor();
                 }
-            }, "get node color" )
+            }, "get node color", TaskIntent.READ )
                     .get();
         }
         catch ( Exception e )
@@ -650,18 +709,64 @@ public class SimpleGraphDecorator
         }
     }
 
+    /**
+     * Get a short label for a node: the first non-empty value of the node
+     * label properties, cut to a fixed length. Only those properties are
+     * read. Falls back to the node id.
+     * 
+     * @param node the node
+     * @return short label
+     */
+    public String getShortNodeText( final Node node )
+    {
+        if ( viewSettings.isShowNodeNames() && !settings.getNodePropertyNames().isEmpty() )
+        {
+            Map<String, Object> props = getProperties( node, settings.getNodePropertyNames() );
+            for ( String key : settings.getNodePropertyNames() )
+            {
+                Object value = props.get( key );
+                if ( value == null )
+                {
+                    continue;
+                }
+                String text = PropertyTransform.render( value );
+                if ( text.length() > 0 )
+                {
+                    return text.length() > SHORT_TEXT_LENGTH ? text.substring( 0, SHORT_TEXT_LENGTH - 3 ) + "..."
+                            : text;
+                }
+            }
+        }
+        return String.valueOf( node.getId() );
+    }
+
+    /**
+     * Get a short label for a relationship: the relationship type, if types
+     * are shown. No properties are read.
+     * 
+     * @param rel the relationship
+     * @return short label
+     */
+    public String getShortRelationshipText( final Relationship rel )
+    {
+        if ( viewSettings.isShowRelationshipTypes() )
+        {
+            return rel.getType().name();
+        }
+        return "";
+    }
+
     private String readProperties( final PropertyContainer container,
             final List<String> propertyNames, final boolean includeId )
     {
-        Map<String, Object> props = GraphDbUtil.getProperties( container,
-                propertyNames );
+        Map<String, Object> props = getProperties( container, propertyNames );
         return readPropertyValues( container, props, includeId );
     }
 
     private String readProperties( final PropertyContainer container,
             final boolean includeId )
     {
-        Map<String, Object> props = GraphDbUtil.getProperties( container );
+        Map<String, Object> props = getProperties( container );
         return readPropertyValues( container, props, includeId );
     }
 
@@ -711,18 +816,54 @@ public class SimpleGraphDecorator
     private String readPropertiesWithKeys( final PropertyContainer container,
             final boolean includeId )
     {
-        Map<String, Object> props = GraphDbUtil.getProperties( container );
+        Map<String, Object> props = getProperties( container );
         return readPropertiesAndKeys( container, includeId, props );
     }
 
     private String readPropertiesWithKeys( final PropertyContainer container,
             List<String> propertyKeys, final boolean includeId )
     {
-        Map<String, Object> props = GraphDbUtil.getProperties( container,
-                propertyKeys );
+        Map<String, Object> props = getProperties( container, propertyKeys );
         return readPropertiesAndKeys( container, includeId, props );
     }
 
+    private Map<String, Object> getProperties( final PropertyContainer container )
+    {
+        RenderSnapshot current = snapshot;
+        if ( current != null )
+        {
+            Map<String, Object> props = current.getProperties( container );
+            if ( props != null )
+            {
+                return props;
+            }
+        }
+        return GraphDbUtil.getProperties( container );
+    }
+
+    private Map<String, Object> getProperties( final PropertyContainer container,
+            final List<String> propertyKeys )
+    {
+        RenderSnapshot current = snapshot;
+        if ( current != null )
+        {
+            Map<String, Object> all = current.getProperties( container );
+            if ( all != null )
+            {
+                Map<String, Object> props = new HashMap<String, Object>();
+                for ( String key : propertyKeys )
+                {
+                    if ( all.containsKey( key ) )
+                    {
+                        props.put( key, all.get( key ) );
+                    }
+                }
+                return props;
+            }
+        }
+        return GraphDbUtil.getProperties( container, propertyKeys );
+    }
+
     private String readPropertiesAndKeys( final PropertyContainer container,
             final boolean includeId, Map<String, Object> props )
     {
@@ -838,9 +979,9 @@ public class SimpleGraphDecorator
     {
         Image img = null;
         // look in properties
+        Map<String, Object> props = getProperties( node );
         for ( String key : settings.getNodeIconPropertyNames() )
         {
-            Map<String, Object> props = GraphDbUtil.getProperties( node );
             if ( !props.containsKey( key ) )
             {
                 continue;
@@ -861,6 +1002,21 @@ public class SimpleGraphDecorator
             }
         }
         // look in relations
+        RenderSnapshot current = snapshot;
+        if ( current != null && current.contains( node ) )
+        {
+            List<RelationshipType> types = current.getRelationshipTypes( node );
+            List<Direction> directions = current.getRelationshipDirections( node );
+            for ( int i = 0; i < types.size(); i++ )
+            {
+                img = userIcons.getImage( types.get( i ), directions.get( i ) );
+                if ( img != null )
+                {
+                    return img;
+                }
+            }
+            return getNodeImage( node, isReferenceNode );
+        }
         GraphDbServiceManager gsm = Activator.getDefault()
                 .getGraphDbServiceManager();
         try
@@ -871,10 +1027,16 @@ public class SimpleGraphDecorator
                 public Image call() throws Exception
                 {
                     Image img = null;
+                    int limit = settings.getRelationshipLimit();
                     for ( Direction direction : settings.getDirections() )
                     {
+                        int count = 0;
                         for ( Relationship rel : node.getRelationships( direction ) )
                         {
+                            if ( limit > 0 && count++ == limit )
+                            {
+                                break;
+                            }
                             img = userIcons.getImage( rel.getType(), direction );
                             if ( img != null )
                             {
@@ -884,7 +1046,7 @@ public class SimpleGraphDecorator
                     }
                     return img;
                 }
-            }, "find icons from relationships" )
+            }, "find icons from relationships", TaskIntent.READ )
                     .get();
             if ( img != null )
             {
@@ -18,37 +18,98 @@
  */
 package org.neo4j.neoclipse.editor;
 
-import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
-public class CypherResultSet implements Serializable
+import org.neo4j.neoclipse.graphdb.CypherCursor;
+
+/**
+ * The result of a Cypher query, read page by page from a cursor so only the
+ * current page is held in memory.
+ */
+public class CypherResultSet
 {
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private final CypherCursor cursor;
+    private final String message;
+    private final int pageSize;
+    private int rowCount = 0;
+
+    public CypherResultSet( CypherCursor cursor, String message )
+    {
+        this( cursor, message, DEFAULT_PAGE_SIZE );
+    }
+
+    public CypherResultSet( CypherCursor cursor, String message, int pageSize )
+    {
+        this.cursor = cursor;
+        this.message = message;
+        this.pageSize = pageSize;
+    }
 
     /**
+     * Fetch the next page of rows.
      * 
+     * @return the rows, empty when the result is exhausted
+     * @throws Exception
      */
-    private static final long serialVersionUID = 1L;
-    private final List<Map<String, Object>> iterator;
-    private final Collection<String> columns;
-    private final String message;
+    public List<Map<String, Object>> nextPage() throws Exception
+    {
+        return next( pageSize );
+    }
 
-    public CypherResultSet( List<Map<String, Object>> resultsList, Collection<String> columns, String message )
+    /**
+     * Fetch the next rows.
+     * 
+     * @param maxRows the maximum number of rows to fetch
+     * @return the rows, empty when the result is exhausted
+     * @throws Exception
+     */
+    public List<Map<String, Object>> next( int maxRows ) throws Exception
     {
-        this.iterator = resultsList;
-        this.columns = columns;
-        this.message = message;
+        List<Map<String, Object>> rows = cursor.fetch( maxRows );
+        rowCount += rows.size();
+        return rows;
+    }
+
+    public boolean hasMore()
+    {
+        return cursor.hasMore();
+    }
+
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+
+    /**
+     * Stop fetching rows, from any thread.
+     * 
+     * @see CypherCursor#cancel()
+     */
+    public void cancel()
+    {
+        cursor.cancel();
     }
 
-    public List<Map<String, Object>> getIterator()
+    public boolean isCancelled()
+    {
+        return cursor.isCancelled();
+    }
+
+    /**
+     * Number of rows fetched so far.
+     */
+    public int getRowCount()
     {
-        return iterator;
+        return rowCount;
     }
 
     public Collection<String> getColumns()
     {
-        return columns;
+        return cursor.getColumns();
     }
 
     public String getMessage()
@@ -56,4 +117,11 @@ public class CypherResultSet implements Serializable
         return message;
     }
 
+    /**
+     * Release the cursor if it isn't exhausted yet.
+     */
+    public void close()
+    {
+        cursor.close();
+    }
 }
@@ -0,0 +1,346 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.editor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.neoclipse.graphdb.GraphCallable;
+import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
+import org.neo4j.neoclipse.util.ApplicationUtil;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Nodes, relationships and paths in query results are kept as handles that
+ * only hold ids, like <code>{"@node":12}</code>. Converting a row is then
+ * cheap no matter how much data hangs off its entities. The properties and
+ * relationships are fetched when a page of rows is actually shown or
+ * exported, in one read for the whole page. Shown nodes only need their
+ * properties, the relationships of a node are only read for exports.
+ */
+public final class EntityHandles
+{
+    private static final String NODE = "@node";
+    private static final String RELATIONSHIP = "@relationship";
+    /**
+     * Alternating node and relationship ids.
+     */
+    private static final String PATH = "@path";
+
+    private EntityHandles()
+    {
+        // preventing instantiation
+    }
+
+    /**
+     * Replace the entities in a result value by handles, also inside
+     * collections and maps.
+     * 
+     * @param value value from a result row
+     * @return value to keep instead
+     */
+    public static Object toHandle( final Object value )
+    {
+        if ( value instanceof Node )
+        {
+            return Collections.singletonMap( NODE, ( (Node) value ).getId() );
+        }
+        if ( value instanceof Relationship )
+        {
+            return Collections.singletonMap( RELATIONSHIP, ( (Relationship) value ).getId() );
+        }
+        if ( value instanceof Path )
+        {
+            List<Long> ids = new ArrayList<Long>();
+            for ( PropertyContainer entity : (Path) value )
+            {
+                ids.add( entity instanceof Node ? ( (Node) entity ).getId() : ( (Relationship) entity ).getId() );
+            }
+            return Collections.singletonMap( PATH, ids );
+        }
+        if ( value instanceof Map )
+        {
+            Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+            for ( Entry<?, ?> entry : ( (Map<?, ?>) value ).entrySet() )
+            {
+                map.put( entry.getKey(), toHandle( entry.getValue() ) );
+            }
+            return map;
+        }
+        if ( value instanceof Iterable )
+        {
+            List<Object> list = new ArrayList<Object>();
+            for ( Object item : (Iterable<?>) value )
+            {
+                list.add( toHandle( item ) );
+            }
+            return list;
+        }
+        return value;
+    }
+
+    /**
+     * Replace the handles in rows by the nodes, relationships and paths they
+     * stand for, with the outgoing relationships of the nodes. Entities that
+     * can't be read anymore keep their handles.
+     * 
+     * @param rows the rows of a page
+     * @param gsm the database to read from
+     * @return rows without handles
+     */
+    public static List<JsonObject> resolve( final List<JsonObject> rows, final GraphDbServiceManager gsm )
+    {
+        return resolve( rows, gsm, true );
+    }
+
+    /**
+     * Replace the handles in rows by the nodes, relationships and paths they
+     * stand for. Entities that can't be read anymore keep their handles.
+     * 
+     * @param rows the rows of a page
+     * @param gsm the database to read from
+     * @param nodeRelationships whether to read the outgoing relationships of
+     *            nodes, or only their properties
+     * @return rows without handles
+     */
+    public static List<JsonObject> resolve( final List<JsonObject> rows, final GraphDbServiceManager gsm,
+            final boolean nodeRelationships )
+    {
+        final Ids ids = new Ids();
+        for ( JsonObject row : rows )
+        {
+            ids.collect( row );
+        }
+        if ( ids.isEmpty() )
+        {
+            return rows;
+        }
+        final Map<String, JsonElement> entities = new HashMap<String, JsonElement>();
+        try
+        {
+            gsm.submitTask( new GraphCallable<Void>()
+            {
+                @Override
+                public Void call( final GraphDatabaseService graphDb )
+                {
+                    for ( Long id : ids.nodes )
+                    {
+                        readNode( graphDb, id, NODE, nodeRelationships, entities );
+                    }
+                    for ( Long id : ids.pathNodes )
+                    {
+                        JsonElement read = nodeRelationships ? null : entities.get( NODE + id );
+                        if ( read != null )
+                        {
+                            entities.put( PATH + id, read );
+                        }
+                        else
+                        {
+                            readNode( graphDb, id, PATH, false, entities );
+                        }
+                    }
+                    for ( Long id : ids.relationships )
+                    {
+                        try
+                        {
+                            entities.put( RELATIONSHIP + id, ApplicationUtil.toJsonTree(
+                                    ApplicationUtil.extractToRelationshipWrapper( graphDb.getRelationshipById( id ) ) ) );
+                        }
+                        catch ( NotFoundException e )
+                        {
+                            // deleted since
+                        }
+                    }
+                    return null;
+                }
+            }, "resolve result entities", TaskIntent.READ ).get();
+        }
+        catch ( Exception e )
+        {
+            e.printStackTrace();
+            return rows;
+        }
+        List<JsonObject> resolved = new ArrayList<JsonObject>( rows.size() );
+        for ( JsonObject row : rows )
+        {
+            resolved.add( replace( row, entities ).getAsJsonObject() );
+        }
+        return resolved;
+    }
+
+    /**
+     * Read a node, under the key of a node cell or of a node in a path.
+     */
+    private static void readNode( final GraphDatabaseService graphDb, final long id, final String kind,
+            final boolean withRelationships, final Map<String, JsonElement> entities )
+    {
+        String key = kind + id;
+        try
+        {
+            entities.put( key,
+                    ApplicationUtil.toJsonTree( ApplicationUtil.extractToNodeWrapper( graphDb.getNodeById( id ),
+                            withRelationships ) ) );
+        }
+        catch ( NotFoundException e )
+        {
+            // deleted since
+        }
+    }
+
+    private static JsonElement replace( final JsonElement value, final Map<String, JsonElement> entities )
+    {
+        if ( value.isJsonArray() )
+        {
+            JsonArray array = new JsonArray();
+            for ( JsonElement item : value.getAsJsonArray() )
+            {
+                array.add( replace( item, entities ) );
+            }
+            return array;
+        }
+        if ( !value.isJsonObject() )
+        {
+            return value;
+        }
+        JsonObject object = value.getAsJsonObject();
+        Entry<String, JsonElement> handle = handle( object );
+        if ( handle == null )
+        {
+            JsonObject copy = new JsonObject();
+            for ( Entry<String, JsonElement> member : object.entrySet() )
+            {
+                copy.add( member.getKey(), replace( member.getValue(), entities ) );
+            }
+            return copy;
+        }
+        if ( !PATH.equals( handle.getKey() ) )
+        {
+            JsonElement entity = entities.get( handle.getKey() + handle.getValue().getAsLong() );
+            return entity == null ? object : entity;
+        }
+        JsonArray path = new JsonArray();
+        boolean node = true;
+        for ( JsonElement id : handle.getValue().getAsJsonArray() )
+        {
+            JsonElement entity = entities.get( ( node ? PATH : RELATIONSHIP ) + id.getAsLong() );
+            if ( entity == null )
+            {
+                return object;
+            }
+            path.add( entity );
+            node = !node;
+        }
+        return path;
+    }
+
+    private static Entry<String, JsonElement> handle( final JsonObject object )
+    {
+        Set<Entry<String, JsonElement>> members = object.entrySet();
+        if ( members.size() != 1 )
+        {
+            return null;
+        }
+        Entry<String, JsonElement> member = members.iterator().next();
+        String key = member.getKey();
+        JsonElement value = member.getValue();
+        if ( ( NODE.equals( key ) || RELATIONSHIP.equals( key ) ) && value.isJsonPrimitive()
+             && value.getAsJsonPrimitive().isNumber() )
+        {
+            return member;
+        }
+        if ( PATH.equals( key ) && value.isJsonArray() )
+        {
+            return member;
+        }
+        return null;
+    }
+
+    /**
+     * The entities referenced from a page, each read once.
+     */
+    private static class Ids
+    {
+        final Set<Long> nodes = new HashSet<Long>();
+        final Set<Long> pathNodes = new HashSet<Long>();
+        final Set<Long> relationships = new HashSet<Long>();
+
+        void collect( final JsonElement value )
+        {
+            if ( value.isJsonArray() )
+            {
+                for ( JsonElement item : value.getAsJsonArray() )
+                {
+                    collect( item );
+                }
+                return;
+            }
+            if ( !value.isJsonObject() )
+            {
+                return;
+            }
+            Entry<String, JsonElement> handle = handle( value.getAsJsonObject() );
+            if ( handle == null )
+            {
+                for ( Entry<String, JsonElement> member : value.getAsJsonObject().entrySet() )
+                {
+                    collect( member.getValue() );
+                }
+            }
+            else if ( NODE.equals( handle.getKey() ) )
+            {
+                nodes.add( handle.getValue().getAsLong() );
+            }
+            else if ( RELATIONSHIP.equals( handle.getKey() ) )
+            {
+                relationships.add( handle.getValue().getAsLong() );
+            }
+            else
+            {
+                boolean node = true;
+                for ( JsonElement id : handle.getValue().getAsJsonArray() )
+                {
+                    ( node ? pathNodes : relationships ).add( id.getAsLong() );
+                    node = !node;
+                }
+            }
+        }
+
+        boolean isEmpty()
+        {
+            return nodes.isEmpty() && pathNodes.isEmpty() && relationships.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.editor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.ILazyContentProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.swt.widgets.Table;
+import org.neo4j.neoclipse.Activator;
+import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
+import org.neo4j.neoclipse.view.UiHelper;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Feeds a virtual table from a {@link PagedRowSource}. Rows are rendered to
+ * cell strings a page at a time when the table asks for them, which is also
+ * when the entities on the page are read from the database. That happens in
+ * the background, the rows show a placeholder until their page is read. Only
+ * a few pages are kept, and the table items of a page that falls out are
+ * cleared so they are asked for again when scrolled back into view. The
+ * elements are the cell strings of a row.
+ */
+public class LazyResultContentProvider implements ILazyContentProvider
+{
+    /**
+     * Number of rendered pages to keep, has to cover the visible rows.
+     */
+    private static final int CACHED_PAGES = 10;
+
+    private final TableViewer viewer;
+    private final PagedRowSource rows;
+    private final List<String> columns;
+    private final Map<Integer, String[][]> pages = new LinkedHashMap<Integer, String[][]>( CACHED_PAGES, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<Integer, String[][]> eldest )
+        {
+            if ( size() <= CACHED_PAGES )
+            {
+                return false;
+            }
+            Table table = viewer.getTable();
+            int first = eldest.getKey() * PagedRowSource.PAGE_SIZE;
+            int last = Math.min( first + PagedRowSource.PAGE_SIZE, table.getItemCount() ) - 1;
+            if ( last >= first )
+            {
+                table.clear( first, last );
+            }
+            return true;
+        }
+    };
+    /**
+     * Pages being read.
+     */
+    private final Set<Integer> pending = new HashSet<Integer>();
+    /**
+     * Pages being read whose rows changed meanwhile.
+     */
+    private final Set<Integer> stale = new HashSet<Integer>();
+    private final String[] placeholder;
+    private int shownRows = 0;
+
+    /**
+     * @param viewer a viewer created with <code>SWT.VIRTUAL</code>
+     * @param rows the rows to show
+     * @param columns the columns to render, in table order
+     */
+    public LazyResultContentProvider( final TableViewer viewer, final PagedRowSource rows,
+            final List<String> columns )
+    {
+        this.viewer = viewer;
+        this.rows = rows;
+        this.columns = new ArrayList<String>( columns );
+        placeholder = new String[columns.size()];
+        Arrays.fill( placeholder, "" );
+        if ( placeholder.length > 0 )
+        {
+            placeholder[0] = "...";
+        }
+    }
+
+    /**
+     * Let the table know about rows added to the source since the last call.
+     * Has to be called from the UI thread.
+     */
+    public void rowsAdded()
+    {
+        int size = rows.size();
+        if ( size == shownRows )
+        {
+            return;
+        }
+        if ( shownRows % PagedRowSource.PAGE_SIZE != 0 )
+        {
+            // the last page was rendered incomplete
+            int page = shownRows / PagedRowSource.PAGE_SIZE;
+            pages.remove( page );
+            if ( pending.contains( page ) )
+            {
+                stale.add( page );
+            }
+            viewer.getTable().clear( page * PagedRowSource.PAGE_SIZE, shownRows - 1 );
+        }
+        shownRows = size;
+        viewer.setItemCount( size );
+    }
+
+    @Override
+    public void updateElement( final int index )
+    {
+        int page = index / PagedRowSource.PAGE_SIZE;
+        String[][] cells = pages.get( page );
+        if ( cells == null )
+        {
+            viewer.replace( placeholder, index );
+            load( page );
+            return;
+        }
+        int offset = index - page * PagedRowSource.PAGE_SIZE;
+        if ( offset < cells.length )
+        {
+            viewer.replace( cells[offset], index );
+        }
+    }
+
+    /**
+     * Render a page in the background, then show it.
+     */
+    private void load( final int page )
+    {
+        if ( !pending.add( page ) )
+        {
+            return;
+        }
+        Job job = new Job( "Reading result rows" )
+        {
+            @Override
+            protected IStatus run( final IProgressMonitor monitor )
+            {
+                final String[][] cells = render( page );
+                UiHelper.asyncExec( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        loaded( page, cells );
+                    }
+                } );
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem( true );
+        job.schedule();
+    }
+
+    private void loaded( final int page, final String[][] cells )
+    {
+        pending.remove( page );
+        Table table = viewer.getTable();
+        if ( table.isDisposed() )
+        {
+            return;
+        }
+        int first = page * PagedRowSource.PAGE_SIZE;
+        int last = Math.min( first + PagedRowSource.PAGE_SIZE, table.getItemCount() ) - 1;
+        if ( stale.remove( page ) )
+        {
+            // have the rows asked for again
+            if ( last >= first )
+            {
+                table.clear( first, last );
+            }
+            return;
+        }
+        pages.put( page, cells );
+        for ( int offset = 0; offset < cells.length && first + offset <= last; offset++ )
+        {
+            viewer.replace( cells[offset], first + offset );
+        }
+    }
+
+    private String[][] render( final int page )
+    {
+        List<JsonObject> pageRows;
+        try
+        {
+            GraphDbServiceManager gsm = Activator.getDefault().getGraphDbServiceManager();
+            pageRows = EntityHandles.resolve( rows.readPage( page ), gsm, false );
+        }
+        catch ( IOException e )
+        {
+            e.printStackTrace();
+            return new String[0][];
+        }
+        String[][] cells = new String[pageRows.size()][];
+        for ( int i = 0; i < cells.length; i++ )
+        {
+            JsonObject row = pageRows.get( i );
+            String[] rowCells = new String[columns.size()];
+            for ( int column = 0; column < rowCells.length; column++ )
+            {
+                JsonElement value = row.get( columns.get( column ) );
+                rowCells[column] = value == null || value.isJsonNull() ? "" : value.toString();
+            }
+            cells[i] = rowCells;
+        }
+        return cells;
+    }
+
+    @Override
+    public void inputChanged( final Viewer viewer, final Object oldInput, final Object newInput )
+    {
+        pages.clear();
+        stale.addAll( pending );
+    }
+
+    @Override
+    public void dispose()
+    {
+        pages.clear();
+        stale.addAll( pending );
+    }
+}
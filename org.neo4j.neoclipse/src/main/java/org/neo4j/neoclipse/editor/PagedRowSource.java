@@ -0,0 +1,180 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.editor;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.neoclipse.util.ApplicationUtil;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * The rows of a query result, kept in a temporary file instead of in memory.
+ * Rows are appended as lines of JSON and read back a page at a time, so a
+ * large result costs disk space but not heap. Rows can be appended from one
+ * thread while pages are read from another.
+ */
+public class PagedRowSource
+{
+    /**
+     * Number of rows in a page.
+     */
+    public static final int PAGE_SIZE = 100;
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    private final File file;
+    private final OutputStream out;
+    private final RandomAccessFile in;
+    /**
+     * File offset of the first row of each page.
+     */
+    private long[] pageOffsets = new long[64];
+    private long written = 0;
+    private int rowCount = 0;
+    private boolean closed = false;
+
+    public PagedRowSource() throws IOException
+    {
+        file = File.createTempFile( "neoclipse-result", ".json" );
+        file.deleteOnExit();
+        out = new BufferedOutputStream( new FileOutputStream( file ), 64 * 1024 );
+        in = new RandomAccessFile( file, "r" );
+    }
+
+    /**
+     * Add rows at the end.
+     * 
+     * @param rows the rows to add
+     * @throws IOException
+     */
+    public synchronized void append( final List<Map<String, Object>> rows ) throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        for ( Map<String, Object> row : rows )
+        {
+            if ( rowCount % PAGE_SIZE == 0 )
+            {
+                int page = rowCount / PAGE_SIZE;
+                if ( page == pageOffsets.length )
+                {
+                    pageOffsets = Arrays.copyOf( pageOffsets, page * 2 );
+                }
+                pageOffsets[page] = written;
+            }
+            // JSON escapes line breaks in strings, so each row is one line
+            byte[] line = ( ApplicationUtil.toJson( row ) + '\n' ).getBytes( UTF8 );
+            out.write( line );
+            written += line.length;
+            rowCount++;
+        }
+    }
+
+    /**
+     * Number of rows added so far.
+     */
+    public synchronized int size()
+    {
+        return rowCount;
+    }
+
+    /**
+     * Number of pages, the last one may not be full.
+     */
+    public synchronized int getPageCount()
+    {
+        return ( rowCount + PAGE_SIZE - 1 ) / PAGE_SIZE;
+    }
+
+    /**
+     * Check if the rows were thrown away.
+     */
+    public synchronized boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Read the rows of a page.
+     * 
+     * @param page page number, starting at 0
+     * @return the rows, fewer than {@link #PAGE_SIZE} for the last page
+     * @throws IOException
+     */
+    public synchronized List<JsonObject> readPage( final int page ) throws IOException
+    {
+        List<JsonObject> rows = new ArrayList<JsonObject>( PAGE_SIZE );
+        int pageCount = getPageCount();
+        if ( closed || page < 0 || page >= pageCount )
+        {
+            return rows;
+        }
+        long end = page + 1 < pageCount ? pageOffsets[page + 1] : written;
+        JsonParser parser = new JsonParser();
+        for ( String line : read( pageOffsets[page], end ).split( "\n" ) )
+        {
+            rows.add( parser.parse( line ).getAsJsonObject() );
+        }
+        return rows;
+    }
+
+    private String read( final long start, final long end ) throws IOException
+    {
+        out.flush();
+        byte[] bytes = new byte[(int) ( end - start )];
+        in.seek( start );
+        in.readFully( bytes );
+        return new String( bytes, UTF8 );
+    }
+
+    /**
+     * Throw the rows away. Calling it more than once is fine.
+     */
+    public synchronized void close()
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        try
+        {
+            out.close();
+            in.close();
+        }
+        catch ( IOException e )
+        {
+            e.printStackTrace();
+        }
+        file.delete();
+    }
+}
@@ -18,12 +18,16 @@
  */
 package org.neo4j.neoclipse.editor;
 
-import java.io.File;
-import java.util.Collection;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.viewers.ColumnLabelProvider;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.TableViewerColumn;
@@ -35,6 +39,7 @@ import org.eclipse.swt.events.KeyListener;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Label;
@@ -50,22 +55,46 @@ import org.neo4j.neoclipse.Icons;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
 import org.neo4j.neoclipse.util.ApplicationUtil;
 import org.neo4j.neoclipse.util.DataExportUtils;
+import org.neo4j.neoclipse.util.ExportJob;
+import org.neo4j.neoclipse.util.ResultWriter;
 import org.neo4j.neoclipse.view.ErrorMessage;
 import org.neo4j.neoclipse.view.UiHelper;
 
+import com.google.gson.JsonObject;
+
 
 public class SqlEditorView extends ViewPart implements Listener
 {
 
     public static final String ID = "org.neo4j.neoclipse.editor.SqlEditorView"; //$NON-NLS-1$
+    /**
+     * Number of rows to fetch before showing them.
+     */
+    private static final int STREAM_CHUNK_SIZE = 50;
+    /**
+     * Interval of the elapsed time display, in milliseconds.
+     */
+    private static final int ELAPSED_TIME_INTERVAL = 200;
     private Text cypherQueryText;
+    private Text parametersText;
     private CTabFolder tabFolder;
     private Label messageStatus;
     private ToolItem tltmExecuteCypherSql;
+    private ToolItem stopQuery;
     private ToolItem exportCsv;
     private ToolItem exportJson;
     private ToolItem exportXml;
-    private String jsonString;
+    private CypherResultSet resultSet;
+    /**
+     * The rows fetched from the result set.
+     */
+    private PagedRowSource rowSource;
+    /**
+     * The job fetching rows, null when idle.
+     */
+    private QueryJob queryJob;
+    private TableViewer tableViewer;
+    private LazyResultContentProvider contentProvider;
     private static boolean altKeyPressed = false;
     private static boolean enterKeyPressed = false;
 
@@ -90,6 +119,13 @@ public class SqlEditorView extends ViewPart implements Listener
                 tltmExecuteCypherSql.setToolTipText( "Execute (ALT+Enter)" );
                 tltmExecuteCypherSql.setImage( Icons.EXECUTE_SQL.image() );
                 tltmExecuteCypherSql.addListener( SWT.Selection, this );
+
+                stopQuery = new ToolItem( toolBar, SWT.PUSH );
+                stopQuery.setEnabled( false );
+                stopQuery.setToolTipText( "Stop" );
+                stopQuery.setImage( Icons.STOP_ENABLED.image() );
+                stopQuery.setDisabledImage( Icons.STOP_DISABLED.image() );
+                stopQuery.addListener( SWT.Selection, this );
             }
         }
 
@@ -139,6 +175,14 @@ public class SqlEditorView extends ViewPart implements Listener
         GridData gd_text = new GridData( SWT.FILL, SWT.CENTER, true, false, 1, 1 );
         gd_text.heightHint = 172;
         cypherQueryText.setLayoutData( gd_text );
+        {
+            Label parametersLabel = new Label( parent, SWT.NONE );
+            parametersLabel.setText( "Parameters (JSON object, e.g. {\"name\": \"Neo\", \"limit\": 10}):" );
+        }
+        parametersText = new Text( parent, SWT.BORDER | SWT.WRAP | SWT.V_SCROLL | SWT.MULTI );
+        GridData gd_parameters = new GridData( SWT.FILL, SWT.CENTER, true, false, 1, 1 );
+        gd_parameters.heightHint = 48;
+        parametersText.setLayoutData( gd_parameters );
         {
             new Label( parent, SWT.NONE );
         }
@@ -212,24 +256,85 @@ public class SqlEditorView extends ViewPart implements Listener
         cypherQueryText.setFocus();
     }
 
+    @Override
+    public void dispose()
+    {
+        if ( queryJob != null )
+        {
+            queryJob.cancel();
+            queryJob = null;
+        }
+        closeResultSet();
+        super.dispose();
+    }
+
+    private void closeResultSet()
+    {
+        if ( resultSet != null )
+        {
+            resultSet.close();
+            resultSet = null;
+        }
+        if ( rowSource != null )
+        {
+            rowSource.close();
+            rowSource = null;
+        }
+    }
+
+    private List<String> resultColumns()
+    {
+        return resultSet == null ? new ArrayList<String>() : new ArrayList<String>( resultSet.getColumns() );
+    }
+
+    /**
+     * Export the rows of the current result in the background, reading them
+     * back from the row source a page at a time.
+     */
+    private void exportRows( final String format, final ResultWriter writer )
+    {
+        final PagedRowSource source = rowSource;
+        final GraphDbServiceManager gsm = Activator.getDefault().getGraphDbServiceManager();
+        new ExportJob( format, writer )
+        {
+            @Override
+            protected void export( final ResultWriter writer, final IProgressMonitor monitor ) throws Exception
+            {
+                int pages = source == null ? 0 : source.getPageCount();
+                monitor.beginTask( getName(), pages );
+                for ( int page = 0; page < pages && !monitor.isCanceled(); page++ )
+                {
+                    for ( JsonObject row : EntityHandles.resolve( source.readPage( page ), gsm ) )
+                    {
+                        writer.write( row );
+                    }
+                    if ( source.isClosed() )
+                    {
+                        throw new IOException( "The result was discarded before the export was done." );
+                    }
+                    monitor.worked( 1 );
+                }
+            }
+        }.schedule();
+    }
+
     // This will create the columns for the table
-    private void createColumns( TableViewer tableViewer, Collection<String> titles )
+    private void createColumns( TableViewer tableViewer, List<String> titles )
     {
 
         TableViewerColumn col = null;
         int columnCount = 0;
         for ( final String column : titles )
         {
-            col = createTableViewerColumn( tableViewer, column, columnCount++ );
+            final int index = columnCount++;
+            col = createTableViewerColumn( tableViewer, column, index );
             col.setLabelProvider( new ColumnLabelProvider()
             {
                 @Override
                 public String getText( Object element )
                 {
-                    Map<String, Object> rs = (Map<String, Object>) element;
-                    Object value = rs.get( column );
-                    value = ApplicationUtil.getPropertyValue( value );
-                    return value.toString();
+                    String[] cells = (String[]) element;
+                    return index < cells.length ? cells[index] : "";
                 }
             } );
         }
@@ -257,12 +362,15 @@ public class SqlEditorView extends ViewPart implements Listener
             executeCypherQuery( cypherQueryText.getText() );
 
         }
+        else if ( event.widget == stopQuery )
+        {
+            stopQueryJob();
+        }
         else if ( event.widget == exportCsv )
         {
             try
             {
-                File file = DataExportUtils.exportToCsv( jsonString );
-                ErrorMessage.showDialog( "CSV Export", "CSV file is created at " + file );
+                exportRows( "CSV", DataExportUtils.openCsv( resultColumns() ) );
             }
             catch ( Exception e )
             {
@@ -273,8 +381,7 @@ public class SqlEditorView extends ViewPart implements Listener
         {
             try
             {
-                File file = DataExportUtils.exportToJson( jsonString.toString() );
-                ErrorMessage.showDialog( "Json Export", "Json file is created at " + file );
+                exportRows( "Json", DataExportUtils.openJson() );
             }
             catch ( Exception e )
             {
@@ -286,8 +393,7 @@ public class SqlEditorView extends ViewPart implements Listener
         {
             try
             {
-                File file = DataExportUtils.exportToXml( jsonString );
-                ErrorMessage.showDialog( "XML Export", "XML file is created at " + file );
+                exportRows( "XML", DataExportUtils.openXml() );
             }
             catch ( Exception e )
             {
@@ -298,43 +404,155 @@ public class SqlEditorView extends ViewPart implements Listener
 
     private void executeCypherQuery( final String cypherSql )
     {
-        UiHelper.asyncExec( new Runnable()
+        Map<String, Object> parameters;
+        try
+        {
+            parameters = ApplicationUtil.toParameters( parametersText.getText() );
+        }
+        catch ( Exception e )
+        {
+            ErrorMessage.showDialog( "execute cypher query", e );
+            return;
+        }
+        stopQueryJob();
+        closeResultSet();
+        enableDisableToolBars( false );
+        startQueryJob( new QueryJob( cypherSql, parameters ) );
+    }
+
+    private void startQueryJob( final QueryJob job )
+    {
+        queryJob = job;
+        stopQuery.setEnabled( true );
+        job.schedule();
+        showElapsedTime( job );
+    }
+
+    /**
+     * Stop the running query, if any. Returns right away, the job finishes
+     * in the background.
+     */
+    private void stopQueryJob()
+    {
+        if ( queryJob == null )
+        {
+            return;
+        }
+        QueryJob job = queryJob;
+        queryJob = null;
+        job.cancel();
+        stopQuery.setEnabled( false );
+        if ( resultSet != null && resultSet.isCancelled() )
+        {
+            // keep the rows fetched so far
+            resultSet.close();
+            updateResultStatus();
+            messageStatus.setText( messageStatus.getText() + "   Stopped after " + job.getElapsedTime() );
+        }
+        else
+        {
+            messageStatus.setText( "Stopped after " + job.getElapsedTime() );
+        }
+    }
+
+    /**
+     * Update the status line with the time spent while a job runs.
+     */
+    private void showElapsedTime( final QueryJob job )
+    {
+        if ( job != queryJob || messageStatus.isDisposed() )
+        {
+            return;
+        }
+        messageStatus.setText( "Running ... " + job.getElapsedTime() + "   Rows: " + job.getRowCount() );
+        Display.getCurrent().timerExec( ELAPSED_TIME_INTERVAL, new Runnable()
         {
             @Override
             public void run()
             {
-                final GraphDbServiceManager gsm = Activator.getDefault().getGraphDbServiceManager();
-                try
-                {
-                    CypherResultSet cypherResultSet = gsm.executeCypher( cypherSql );
-                    displayResultSet( cypherResultSet );
-                }
-                catch ( Exception e )
-                {
-                    e.printStackTrace();
-                    enableDisableToolBars( false );
-                    ErrorMessage.showDialog( "execute cypher query", e );
-                }
+                showElapsedTime( job );
             }
-
         } );
     }
 
-    private void displayResultSet( CypherResultSet cypherResultSet )
+    /**
+     * Show rows delivered by a job. Runs in the UI thread.
+     */
+    private void showRows( final QueryJob job, final CypherResultSet rows, final PagedRowSource source )
+    {
+        if ( job != queryJob || tabFolder.isDisposed() )
+        {
+            return;
+        }
+        if ( resultSet != rows )
+        {
+            resultSet = rows;
+            rowSource = source;
+            createResultTable();
+        }
+        contentProvider.rowsAdded();
+    }
+
+    /**
+     * Wrap up after a job is done. Runs in the UI thread.
+     */
+    private void queryJobDone( final QueryJob job, final CypherResultSet rows, final PagedRowSource source,
+            final Exception error )
+    {
+        if ( job != queryJob || tabFolder.isDisposed() || error != null )
+        {
+            if ( rows != null && rows != resultSet )
+            {
+                rows.close();
+            }
+            if ( source != null && source != rowSource )
+            {
+                source.close();
+            }
+        }
+        if ( job != queryJob || tabFolder.isDisposed() )
+        {
+            return;
+        }
+        queryJob = null;
+        stopQuery.setEnabled( false );
+        if ( error != null )
+        {
+            closeResultSet();
+            messageStatus.setText( "" );
+            ErrorMessage.showDialog( "execute cypher query", error );
+            return;
+        }
+        if ( rows != null && resultSet != rows )
+        {
+            resultSet = rows;
+            rowSource = source;
+            createResultTable();
+        }
+        if ( contentProvider != null )
+        {
+            contentProvider.rowsAdded();
+        }
+        if ( resultSet != null )
+        {
+            updateResultStatus();
+            messageStatus.setText( messageStatus.getText() + "   Time: " + job.getElapsedTime() );
+        }
+    }
+
+    private void createResultTable()
     {
-        List<Map<String, Object>> resultSetList = cypherResultSet.getIterator();
-        Collection<String> columns = cypherResultSet.getColumns();
+        List<String> columns = new ArrayList<String>( resultSet.getColumns() );
 
-        jsonString = ApplicationUtil.toJson( resultSetList );
-        messageStatus.setText( cypherResultSet.getMessage() != null ? cypherResultSet.getMessage() : "" );
-        TableViewer tableViewer = new TableViewer( tabFolder, SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL | SWT.MULTI
-                                                              | SWT.VIRTUAL | SWT.FULL_SELECTION );
+        tableViewer = new TableViewer( tabFolder, SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL | SWT.MULTI
+                                                  | SWT.VIRTUAL | SWT.FULL_SELECTION );
         createColumns( tableViewer, columns );
-        tableViewer.setContentProvider( new ArrayContentProvider() );
+        contentProvider = new LazyResultContentProvider( tableViewer, rowSource, columns );
+        tableViewer.setContentProvider( contentProvider );
         Table table = tableViewer.getTable();
         table.setHeaderVisible( true );
         table.setLinesVisible( true );
-        tableViewer.setInput( resultSetList );
+        tableViewer.setInput( rowSource );
         getSite().setSelectionProvider( tableViewer );
         CTabItem resultsTabItem = tabFolder.getSelection();
         if ( resultsTabItem == null )
@@ -343,8 +561,144 @@ public class SqlEditorView extends ViewPart implements Listener
             resultsTabItem.setText( "Results" );
             tabFolder.setSelection( resultsTabItem );
         }
+        Control oldTable = resultsTabItem.getControl();
         resultsTabItem.setControl( table );
+        if ( oldTable != null )
+        {
+            oldTable.dispose();
+        }
         enableDisableToolBars( true );
     }
 
+    /**
+     * Runs a query outside of the UI thread. Rows are written to a row source
+     * and handed to the UI as they arrive.
+     */
+    private class QueryJob extends Job
+    {
+        private final String cypherSql;
+        private final Map<String, Object> parameters;
+        private volatile CypherResultSet rows;
+        private volatile PagedRowSource source;
+        private final long started = System.nanoTime();
+        private volatile long finished = 0;
+        private volatile int rowCount = 0;
+        /**
+         * Set while the UI hasn't caught up with the rows fetched.
+         */
+        private final AtomicBoolean showPending = new AtomicBoolean();
+
+        QueryJob( final String cypherSql, final Map<String, Object> parameters )
+        {
+            super( "Executing Cypher query" );
+            this.cypherSql = cypherSql;
+            this.parameters = parameters;
+        }
+
+        @Override
+        protected IStatus run( final IProgressMonitor monitor )
+        {
+            final QueryJob job = this;
+            monitor.beginTask( getName(), IProgressMonitor.UNKNOWN );
+            Exception failure = null;
+            try
+            {
+                source = new PagedRowSource();
+                GraphDbServiceManager gsm = Activator.getDefault().getGraphDbServiceManager();
+                rows = gsm.executeCypher( cypherSql, parameters );
+                final CypherResultSet current = rows;
+                final PagedRowSource currentSource = source;
+                while ( current.hasMore() && !monitor.isCanceled() )
+                {
+                    currentSource.append( current.next( STREAM_CHUNK_SIZE ) );
+                    rowCount = currentSource.size();
+                    monitor.subTask( rowCount + " rows" );
+                    if ( showPending.getAndSet( true ) )
+                    {
+                        continue;
+                    }
+                    UiHelper.asyncExec( new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            showPending.set( false );
+                            showRows( job, current, currentSource );
+                        }
+                    } );
+                }
+            }
+            catch ( Exception e )
+            {
+                if ( !monitor.isCanceled() )
+                {
+                    e.printStackTrace();
+                    failure = e;
+                }
+            }
+            finally
+            {
+                finished = System.nanoTime();
+                // don't leave an interrupt from canceling() behind
+                Thread.interrupted();
+                monitor.done();
+            }
+            final Exception error = failure;
+            UiHelper.asyncExec( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    queryJobDone( job, rows, source, error );
+                }
+            } );
+            return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+        }
+
+        /**
+         * Stop the query: no more rows are fetched, and waiting for the
+         * database is interrupted.
+         */
+        @Override
+        protected void canceling()
+        {
+            CypherResultSet current = rows;
+            if ( current != null )
+            {
+                current.cancel();
+            }
+            Thread thread = getThread();
+            if ( thread != null )
+            {
+                thread.interrupt();
+            }
+        }
+
+        int getRowCount()
+        {
+            return rowCount;
+        }
+
+        String getElapsedTime()
+        {
+            long end = finished == 0 ? System.nanoTime() : finished;
+            return String.format( "%.1f s", ( end - started ) / 1e9 );
+        }
+    }
+
+    private void updateResultStatus()
+    {
+        StringBuilder status = new StringBuilder();
+        if ( resultSet.getMessage() != null )
+        {
+            status.append( resultSet.getMessage() ).append( "   " );
+        }
+        status.append( "Rows: " ).append( resultSet.getRowCount() );
+        if ( resultSet.hasMore() )
+        {
+            status.append( " (more available)" );
+        }
+        messageStatus.setText( status.toString() );
+    }
+
 }
@@ -0,0 +1,102 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.generator;
+
+import java.io.File;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.wizard.Wizard;
+import org.neo4j.neoclipse.connection.Alias;
+import org.neo4j.neoclipse.layout.PositionCache;
+import org.neo4j.neoclipse.view.ErrorMessage;
+
+/**
+ * Generate a synthetic graph into the store of a local connection. The
+ * generation runs as a background job and holds the store lock, so the
+ * connection can't be started until it is done.
+ */
+public class GenerateGraphWizard extends Wizard
+{
+    private final Alias alias;
+    private final GenerateGraphWizardPage page = new GenerateGraphWizardPage();
+
+    public GenerateGraphWizard( final Alias alias )
+    {
+        this.alias = alias;
+        setWindowTitle( "Generate synthetic graph" );
+        setNeedsProgressMonitor( false );
+    }
+
+    @Override
+    public void addPages()
+    {
+        addPage( page );
+    }
+
+    @Override
+    public boolean performFinish()
+    {
+        final GeneratorRecipe recipe = page.getRecipe();
+        final File storeDir = new File( alias.getUri() );
+        Job job = new Job( "Generating graph in " + alias.getName() )
+        {
+            @Override
+            protected IStatus run( final IProgressMonitor monitor )
+            {
+                long start = System.currentTimeMillis();
+                GraphGenerator generator = new GraphGenerator( recipe );
+                // node ids of the old graph get other nodes
+                if ( !PositionCache.discard( alias.getName() ) )
+                {
+                    ErrorMessage.showDialog( "Graph generation problem",
+                            "Could not delete the remembered node positions of " + alias.getName() + "." );
+                    return Status.CANCEL_STATUS;
+                }
+                try
+                {
+                    generator.generate( storeDir, monitor );
+                }
+                catch ( OperationCanceledException e )
+                {
+                    return Status.CANCEL_STATUS;
+                }
+                catch ( Exception e )
+                {
+                    e.printStackTrace();
+                    ErrorMessage.showDialog( "Graph generation problem", e );
+                    return Status.CANCEL_STATUS;
+                }
+                ErrorMessage.showDialog( "Generate synthetic graph", "Created " + generator.getNodesCreated()
+                                                                     + " nodes and "
+                                                                     + generator.getRelationshipsCreated()
+                                                                     + " relationships in "
+                                                                     + ( System.currentTimeMillis() - start )
+                                                                     + " ms." );
+                return Status.OK_STATUS;
+            }
+        };
+        job.setUser( true );
+        job.schedule();
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.generator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import org.eclipse.jface.wizard.WizardPage;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Edit the values of a {@link GeneratorRecipe}.
+ */
+public class GenerateGraphWizardPage extends WizardPage
+{
+    private static final int SIZING_TEXT_FIELD_WIDTH = 150;
+
+    private final Map<String, Text> fields = new LinkedHashMap<String, Text>();
+    private GeneratorRecipe recipe = new GeneratorRecipe();
+
+    public GenerateGraphWizardPage()
+    {
+        super( "recipe" );
+        setTitle( "Generate synthetic graph" );
+        setDescription( "The same values and seed always give the same graph." );
+    }
+
+    @Override
+    public void createControl( final Composite parent )
+    {
+        Composite composite = new Composite( parent, SWT.NONE );
+        GridLayout layout = new GridLayout();
+        layout.numColumns = 2;
+        layout.marginWidth = 10;
+        composite.setLayout( layout );
+        ModifyListener listener = new ModifyListener()
+        {
+            @Override
+            public void modifyText( final ModifyEvent e )
+            {
+                validate();
+            }
+        };
+        addField( composite, GeneratorRecipe.NODE_COUNT, "Nodes", listener );
+        addField( composite, GeneratorRecipe.RELATIONSHIPS_PER_NODE, "Relationships per node", listener );
+        addField( composite, GeneratorRecipe.DEGREE_SKEW, "Degree skew (0 = uniform, 1+ = hubs)", listener );
+        addField( composite, GeneratorRecipe.RELATIONSHIP_TYPE_COUNT, "Relationship types", listener );
+        addField( composite, GeneratorRecipe.LABEL_COUNT, "Labels", listener );
+        addField( composite, GeneratorRecipe.PROPERTIES_PER_NODE, "Properties per node", listener );
+        addField( composite, GeneratorRecipe.STRING_LENGTH, "String length", listener );
+        addField( composite, GeneratorRecipe.ARRAY_LENGTH, "Array length", listener );
+        addField( composite, GeneratorRecipe.SEED, "Random seed", listener );
+        Properties defaults = recipe.toProperties();
+        for ( Entry<String, Text> field : fields.entrySet() )
+        {
+            field.getValue().setText( defaults.getProperty( field.getKey() ) );
+        }
+        setControl( composite );
+        validate();
+    }
+
+    private void addField( final Composite composite, final String key, final String labelText,
+            final ModifyListener listener )
+    {
+        Label label = new Label( composite, SWT.WRAP );
+        label.setText( labelText );
+        Text text = new Text( composite, SWT.BORDER );
+        GridData data = new GridData( GridData.HORIZONTAL_ALIGN_FILL | GridData.GRAB_HORIZONTAL );
+        data.widthHint = SIZING_TEXT_FIELD_WIDTH;
+        text.setLayoutData( data );
+        text.addModifyListener( listener );
+        fields.put( key, text );
+    }
+
+    private void validate()
+    {
+        Properties properties = new Properties();
+        for ( Entry<String, Text> field : fields.entrySet() )
+        {
+            properties.setProperty( field.getKey(), field.getValue().getText().trim() );
+        }
+        try
+        {
+            GeneratorRecipe edited = GeneratorRecipe.fromProperties( properties );
+            edited.validate();
+            recipe = edited;
+            setErrorMessage( null );
+            setPageComplete( true );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // NumberFormatException included
+            setErrorMessage( e instanceof NumberFormatException ? "Not a number: " + e.getMessage()
+                    : e.getMessage() );
+            setPageComplete( false );
+        }
+    }
+
+    /**
+     * The recipe as last validated.
+     * 
+     * @return the recipe
+     */
+    public GeneratorRecipe getRecipe()
+    {
+        return recipe;
+    }
+}
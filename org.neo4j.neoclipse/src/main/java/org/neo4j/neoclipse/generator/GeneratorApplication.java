@@ -0,0 +1,44 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.generator;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Runs the {@link GraphGenerator} without a workbench, for example:
+ * 
+ * <pre>
+ * neoclipse -nosplash -application org.neo4j.neoclipse.generator /tmp/graph.db nodeCount=1000000
+ * </pre>
+ */
+public class GeneratorApplication implements IApplication
+{
+    @Override
+    public Object start( final IApplicationContext context ) throws Exception
+    {
+        String[] args = (String[]) context.getArguments().get( IApplicationContext.APPLICATION_ARGS );
+        return GraphGenerator.run( args == null ? new String[0] : args );
+    }
+
+    @Override
+    public void stop()
+    {
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.generator;
+
+import java.util.Properties;
+
+/**
+ * What a generated graph looks like. The same recipe and seed always give
+ * the same graph. A recipe can be read from and written to properties, with
+ * the field names as keys.
+ */
+public class GeneratorRecipe
+{
+    public static final String NODE_COUNT = "nodeCount";
+    public static final String RELATIONSHIPS_PER_NODE = "relationshipsPerNode";
+    public static final String DEGREE_SKEW = "degreeSkew";
+    public static final String RELATIONSHIP_TYPE_COUNT = "relationshipTypeCount";
+    public static final String LABEL_COUNT = "labelCount";
+    public static final String PROPERTIES_PER_NODE = "propertiesPerNode";
+    public static final String STRING_LENGTH = "stringLength";
+    public static final String ARRAY_LENGTH = "arrayLength";
+    public static final String SEED = "seed";
+
+    private long nodeCount = 100000;
+    private int relationshipsPerNode = 5;
+    private double degreeSkew = 1.0;
+    private int relationshipTypeCount = 10;
+    private int labelCount = 5;
+    private int propertiesPerNode = 10;
+    private int stringLength = 16;
+    private int arrayLength = 0;
+    private long seed = 42;
+
+    public long getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    public void setNodeCount( final long nodeCount )
+    {
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Outgoing relationships created from every node.
+     */
+    public int getRelationshipsPerNode()
+    {
+        return relationshipsPerNode;
+    }
+
+    public void setRelationshipsPerNode( final int relationshipsPerNode )
+    {
+        this.relationshipsPerNode = relationshipsPerNode;
+    }
+
+    /**
+     * Exponent of the Zipf distribution the end nodes of relationships are
+     * drawn from. At 0 relationships are spread evenly, at 1 and above a few
+     * hub nodes get most of them and the degrees follow a power law.
+     */
+    public double getDegreeSkew()
+    {
+        return degreeSkew;
+    }
+
+    public void setDegreeSkew( final double degreeSkew )
+    {
+        this.degreeSkew = degreeSkew;
+    }
+
+    public int getRelationshipTypeCount()
+    {
+        return relationshipTypeCount;
+    }
+
+    public void setRelationshipTypeCount( final int relationshipTypeCount )
+    {
+        this.relationshipTypeCount = relationshipTypeCount;
+    }
+
+    /**
+     * Number of distinct labels, every node gets one of them. 0 for no labels.
+     */
+    public int getLabelCount()
+    {
+        return labelCount;
+    }
+
+    public void setLabelCount( final int labelCount )
+    {
+        this.labelCount = labelCount;
+    }
+
+    /**
+     * Number of properties of every node, strings and numbers mixed.
+     */
+    public int getPropertiesPerNode()
+    {
+        return propertiesPerNode;
+    }
+
+    public void setPropertiesPerNode( final int propertiesPerNode )
+    {
+        this.propertiesPerNode = propertiesPerNode;
+    }
+
+    /**
+     * Length of the string property values.
+     */
+    public int getStringLength()
+    {
+        return stringLength;
+    }
+
+    public void setStringLength( final int stringLength )
+    {
+        this.stringLength = stringLength;
+    }
+
+    /**
+     * Length of an extra array property on every node, 0 for none.
+     */
+    public int getArrayLength()
+    {
+        return arrayLength;
+    }
+
+    public void setArrayLength( final int arrayLength )
+    {
+        this.arrayLength = arrayLength;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    public void setSeed( final long seed )
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Check that the values make sense.
+     * 
+     * @throws IllegalArgumentException naming the first bad value
+     */
+    public void validate()
+    {
+        check( nodeCount > 0, NODE_COUNT );
+        check( relationshipsPerNode >= 0, RELATIONSHIPS_PER_NODE );
+        check( degreeSkew >= 0, DEGREE_SKEW );
+        check( relationshipTypeCount > 0, RELATIONSHIP_TYPE_COUNT );
+        check( labelCount >= 0, LABEL_COUNT );
+        check( propertiesPerNode >= 0, PROPERTIES_PER_NODE );
+        check( stringLength >= 0, STRING_LENGTH );
+        check( arrayLength >= 0, ARRAY_LENGTH );
+    }
+
+    private static void check( final boolean valid, final String key )
+    {
+        if ( !valid )
+        {
+            throw new IllegalArgumentException( "Invalid value for " + key + "." );
+        }
+    }
+
+    /**
+     * Read a recipe, missing keys keep their defaults.
+     * 
+     * @param properties recipe values
+     * @return the recipe
+     * @throws NumberFormatException if a value isn't a number
+     */
+    public static GeneratorRecipe fromProperties( final Properties properties )
+    {
+        GeneratorRecipe recipe = new GeneratorRecipe();
+        recipe.nodeCount = Long.parseLong( properties.getProperty( NODE_COUNT, Long.toString( recipe.nodeCount ) ) );
+        recipe.relationshipsPerNode = intValue( properties, RELATIONSHIPS_PER_NODE, recipe.relationshipsPerNode );
+        recipe.degreeSkew = Double.parseDouble( properties.getProperty( DEGREE_SKEW,
+                Double.toString( recipe.degreeSkew ) ) );
+        recipe.relationshipTypeCount = intValue( properties, RELATIONSHIP_TYPE_COUNT, recipe.relationshipTypeCount );
+        recipe.labelCount = intValue( properties, LABEL_COUNT, recipe.labelCount );
+        recipe.propertiesPerNode = intValue( properties, PROPERTIES_PER_NODE, recipe.propertiesPerNode );
+        recipe.stringLength = intValue( properties, STRING_LENGTH, recipe.stringLength );
+        recipe.arrayLength = intValue( properties, ARRAY_LENGTH, recipe.arrayLength );
+        recipe.seed = Long.parseLong( properties.getProperty( SEED, Long.toString( recipe.seed ) ) );
+        return recipe;
+    }
+
+    private static int intValue( final Properties properties, final String key, final int defaultValue )
+    {
+        return Integer.parseInt( properties.getProperty( key, Integer.toString( defaultValue ) ) );
+    }
+
+    public Properties toProperties()
+    {
+        Properties properties = new Properties();
+        properties.setProperty( NODE_COUNT, Long.toString( nodeCount ) );
+        properties.setProperty( RELATIONSHIPS_PER_NODE, Integer.toString( relationshipsPerNode ) );
+        properties.setProperty( DEGREE_SKEW, Double.toString( degreeSkew ) );
+        properties.setProperty( RELATIONSHIP_TYPE_COUNT, Integer.toString( relationshipTypeCount ) );
+        properties.setProperty( LABEL_COUNT, Integer.toString( labelCount ) );
+        properties.setProperty( PROPERTIES_PER_NODE, Integer.toString( propertiesPerNode ) );
+        properties.setProperty( STRING_LENGTH, Integer.toString( stringLength ) );
+        properties.setProperty( ARRAY_LENGTH, Integer.toString( arrayLength ) );
+        properties.setProperty( SEED, Long.toString( seed ) );
+        return properties;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toProperties().toString();
+    }
+}
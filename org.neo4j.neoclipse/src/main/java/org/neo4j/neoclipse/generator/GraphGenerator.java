@@ -0,0 +1,424 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchInserters;
+
+/**
+ * Writes a synthetic graph straight into a store directory, using the batch
+ * inserter. The database must not be running while it is generated. Every node
+ * gets the same number of outgoing relationships, the end nodes are drawn from
+ * a Zipf distribution so the incoming degrees follow a power law and the
+ * lowest ranks turn into hubs. Ranks are scattered over the node ids, so hubs
+ * don't end up next to each other in the store.
+ */
+public class GraphGenerator
+{
+    private static final int CHUNK_SIZE = 10000;
+    private static final int WORK_PER_PHASE = 100;
+    private static final long MAX_MAPPED_MEMORY = 512L * 1024 * 1024;
+    private static final long SCATTER = 1000000007L;
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+
+    private final GeneratorRecipe recipe;
+    private long nodesCreated = 0;
+    private long relationshipsCreated = 0;
+
+    public GraphGenerator( final GeneratorRecipe recipe )
+    {
+        recipe.validate();
+        this.recipe = recipe;
+    }
+
+    public long getNodesCreated()
+    {
+        return nodesCreated;
+    }
+
+    public long getRelationshipsCreated()
+    {
+        return relationshipsCreated;
+    }
+
+    /**
+     * Generate the graph. Existing data in the store is kept, the new nodes
+     * are only connected to each other.
+     * 
+     * @param storeDir the store directory, created if needed
+     * @param monitor progress and cancellation
+     * @throws OperationCanceledException if cancelled, the nodes and
+     *             relationships created so far stay in the store
+     */
+    public void generate( final File storeDir, final IProgressMonitor monitor )
+    {
+        nodesCreated = 0;
+        relationshipsCreated = 0;
+        monitor.beginTask( "Generating graph", 2 * WORK_PER_PHASE );
+        BatchInserter inserter = BatchInserters.inserter( storeDir.getAbsolutePath(), storeConfig() );
+        try
+        {
+            Random random = new Random( recipe.getSeed() );
+            Label[] labels = new Label[recipe.getLabelCount()];
+            for ( int i = 0; i < labels.length; i++ )
+            {
+                labels[i] = DynamicLabel.label( "Label" + i );
+            }
+            RelationshipType[] types = new RelationshipType[recipe.getRelationshipTypeCount()];
+            for ( int i = 0; i < types.length; i++ )
+            {
+                types[i] = DynamicRelationshipType.withName( "TYPE_" + i );
+            }
+            NodeIds ids = createNodes( inserter, random, labels, monitor );
+            createRelationships( inserter, random, types, ids, monitor );
+        }
+        finally
+        {
+            inserter.shutdown();
+            monitor.done();
+        }
+    }
+
+    private NodeIds createNodes( final BatchInserter inserter, final Random random, final Label[] labels,
+            final IProgressMonitor monitor )
+    {
+        monitor.subTask( "Creating nodes" );
+        long count = recipe.getNodeCount();
+        NodeIds ids = new NodeIds();
+        int worked = 0;
+        Map<String, Object> properties = new HashMap<String, Object>();
+        for ( long i = 0; i < count; i++ )
+        {
+            properties.clear();
+            properties.put( "name", "node" + i );
+            for ( int p = 0; p < recipe.getPropertiesPerNode(); p++ )
+            {
+                properties.put( "p" + p, propertyValue( random, p ) );
+            }
+            if ( recipe.getArrayLength() > 0 )
+            {
+                long[] values = new long[recipe.getArrayLength()];
+                for ( int v = 0; v < values.length; v++ )
+                {
+                    values[v] = random.nextLong();
+                }
+                properties.put( "values", values );
+            }
+            long id = labels.length == 0 ? inserter.createNode( properties ) : inserter.createNode( properties,
+                    labels[random.nextInt( labels.length )] );
+            ids.add( id );
+            nodesCreated++;
+            worked = progress( monitor, i, count, worked );
+        }
+        return ids;
+    }
+
+    private void createRelationships( final BatchInserter inserter, final Random random,
+            final RelationshipType[] types, final NodeIds ids, final IProgressMonitor monitor )
+    {
+        monitor.subTask( "Creating relationships" );
+        long count = recipe.getNodeCount();
+        int worked = 0;
+        Map<String, Object> properties = new HashMap<String, Object>();
+        for ( long i = 0; i < count; i++ )
+        {
+            for ( int r = 0; r < recipe.getRelationshipsPerNode(); r++ )
+            {
+                long target = scatter( zipfRank( random, count ), count );
+                if ( target == i && count > 1 )
+                {
+                    target = ( target + 1 ) % count;
+                }
+                properties.clear();
+                properties.put( "weight", random.nextDouble() );
+                inserter.createRelationship( ids.get( i ), ids.get( target ), types[random.nextInt( types.length )],
+                        properties );
+                relationshipsCreated++;
+            }
+            worked = progress( monitor, i, count, worked );
+        }
+    }
+
+    /**
+     * Report progress and check for cancellation every chunk.
+     * 
+     * @return the work reported so far in this phase
+     */
+    private static int progress( final IProgressMonitor monitor, final long done, final long total,
+            final int worked )
+    {
+        if ( done % CHUNK_SIZE != 0 && done != total - 1 )
+        {
+            return worked;
+        }
+        if ( monitor.isCanceled() )
+        {
+            throw new OperationCanceledException();
+        }
+        int nowWorked = (int) ( ( done + 1 ) * WORK_PER_PHASE / total );
+        if ( nowWorked > worked )
+        {
+            monitor.worked( nowWorked - worked );
+        }
+        return Math.max( worked, nowWorked );
+    }
+
+    private Object propertyValue( final Random random, final int index )
+    {
+        switch ( index % 3 )
+        {
+        case 0:
+            return randomString( random, recipe.getStringLength() );
+        case 1:
+            return random.nextLong();
+        default:
+            return random.nextDouble();
+        }
+    }
+
+    private static String randomString( final Random random, final int length )
+    {
+        char[] chars = new char[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            chars[i] = ALPHABET[random.nextInt( ALPHABET.length )];
+        }
+        return new String( chars );
+    }
+
+    /**
+     * Draw a rank from 0 to count - 1 by inverting the continuous Zipf
+     * distribution, so no table over all nodes is needed.
+     */
+    private long zipfRank( final Random random, final long count )
+    {
+        double u = random.nextDouble();
+        double s = recipe.getDegreeSkew();
+        double x;
+        if ( Math.abs( s - 1.0 ) < 1e-9 )
+        {
+            x = Math.pow( count, u );
+        }
+        else
+        {
+            double exponent = 1.0 - s;
+            x = Math.pow( ( Math.pow( count, exponent ) - 1.0 ) * u + 1.0, 1.0 / exponent );
+        }
+        long rank = (long) x - 1;
+        return Math.max( 0, Math.min( count - 1, rank ) );
+    }
+
+    /**
+     * Map a rank to a node offset, one to one as the multiplier is prime.
+     */
+    private static long scatter( final long rank, final long count )
+    {
+        return rank * SCATTER % count;
+    }
+
+    private Map<String, String> storeConfig()
+    {
+        long nodes = recipe.getNodeCount();
+        long relationships = nodes * recipe.getRelationshipsPerNode();
+        long properties = nodes * ( recipe.getPropertiesPerNode() + 2 ) + relationships;
+        long strings = recipe.getStringLength() > 32 ? nodes * recipe.getPropertiesPerNode() / 3
+                * recipe.getStringLength() : 0;
+        long arrays = recipe.getArrayLength() > 3 ? nodes * recipe.getArrayLength() * 8 : 0;
+        Map<String, String> config = new HashMap<String, String>();
+        config.put( "neostore.nodestore.db.mapped_memory", megabytes( nodes * 14 ) );
+        config.put( "neostore.relationshipstore.db.mapped_memory", megabytes( relationships * 33 ) );
+        config.put( "neostore.propertystore.db.mapped_memory", megabytes( properties / 4 * 41 ) );
+        config.put( "neostore.propertystore.db.strings.mapped_memory", megabytes( strings ) );
+        config.put( "neostore.propertystore.db.arrays.mapped_memory", megabytes( arrays ) );
+        return config;
+    }
+
+    private static String megabytes( final long bytes )
+    {
+        long capped = Math.min( MAX_MAPPED_MEMORY, bytes );
+        return Math.max( 1, capped / ( 1024 * 1024 ) + 1 ) + "M";
+    }
+
+    /**
+     * Generate a graph from the command line.
+     * 
+     * @param args the store directory, optionally a recipe properties file,
+     *            then any number of key=value recipe overrides
+     */
+    public static void main( final String[] args ) throws IOException
+    {
+        System.exit( run( args ) );
+    }
+
+    /**
+     * Generate a graph as given by command line arguments, printing progress
+     * to the console.
+     * 
+     * @param args see {@link #main(String[])}
+     * @return the exit code
+     */
+    public static int run( final String[] args ) throws IOException
+    {
+        if ( args.length == 0 )
+        {
+            System.err.println( "Usage: <store directory> [recipe.properties] [key=value ...]" );
+            System.err.println( "Recipe keys and defaults: " + new GeneratorRecipe() );
+            return 1;
+        }
+        Properties properties = new Properties();
+        for ( int i = 1; i < args.length; i++ )
+        {
+            int split = args[i].indexOf( '=' );
+            if ( split > 0 )
+            {
+                properties.setProperty( args[i].substring( 0, split ).trim(), args[i].substring( split + 1 ).trim() );
+            }
+            else
+            {
+                Properties file = new Properties();
+                InputStream in = new FileInputStream( args[i] );
+                try
+                {
+                    file.load( in );
+                }
+                finally
+                {
+                    in.close();
+                }
+                for ( String key : file.stringPropertyNames() )
+                {
+                    if ( !properties.containsKey( key ) )
+                    {
+                        properties.setProperty( key, file.getProperty( key ) );
+                    }
+                }
+            }
+        }
+        GeneratorRecipe recipe;
+        try
+        {
+            recipe = GeneratorRecipe.fromProperties( properties );
+            recipe.validate();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            System.err.println( e.getMessage() );
+            return 1;
+        }
+        File storeDir = new File( args[0] );
+        System.out.println( "Generating " + recipe + " into " + storeDir.getAbsolutePath() );
+        long start = System.currentTimeMillis();
+        GraphGenerator generator = new GraphGenerator( recipe );
+        generator.generate( storeDir, new ConsoleProgressMonitor() );
+        System.out.println( "Created " + generator.getNodesCreated() + " nodes and "
+                            + generator.getRelationshipsCreated() + " relationships in "
+                            + ( System.currentTimeMillis() - start ) + " ms." );
+        return 0;
+    }
+
+    /**
+     * The ids of the created nodes, by creation order. A store with deleted
+     * nodes hands out their ids again first, so the ids are kept as ranges
+     * of consecutive ids; there is one range only for a fresh store.
+     */
+    private static class NodeIds
+    {
+        private long[] starts = new long[16];
+        /**
+         * The creation order of the first node of each range.
+         */
+        private long[] offsets = new long[16];
+        private int ranges = 0;
+        private long size = 0;
+
+        private void add( final long id )
+        {
+            if ( ranges == 0 || id != starts[ranges - 1] + ( size - offsets[ranges - 1] ) )
+            {
+                if ( ranges == starts.length )
+                {
+                    starts = Arrays.copyOf( starts, ranges * 2 );
+                    offsets = Arrays.copyOf( offsets, ranges * 2 );
+                }
+                starts[ranges] = id;
+                offsets[ranges] = size;
+                ranges++;
+            }
+            size++;
+        }
+
+        /**
+         * Get the id of a node by creation order.
+         */
+        private long get( final long offset )
+        {
+            int range = Arrays.binarySearch( offsets, 0, ranges, offset );
+            if ( range < 0 )
+            {
+                range = -range - 2;
+            }
+            return starts[range] + ( offset - offsets[range] );
+        }
+    }
+
+    /**
+     * Prints the progress of each phase in steps of ten percent.
+     */
+    private static class ConsoleProgressMonitor extends NullProgressMonitor
+    {
+        private String task = "";
+        private int worked = 0;
+
+        @Override
+        public void subTask( final String name )
+        {
+            task = name;
+            worked = 0;
+            System.out.println( name );
+        }
+
+        @Override
+        public void worked( final int work )
+        {
+            int before = worked / 10;
+            worked += work;
+            if ( worked / 10 > before )
+            {
+                System.out.println( task + ": " + worked + "%" );
+            }
+        }
+    }
+}
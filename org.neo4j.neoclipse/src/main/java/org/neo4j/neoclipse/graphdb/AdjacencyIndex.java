@@ -0,0 +1,251 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.neo4j.graphdb.Relationship;
+
+/**
+ * Relationships between a fixed set of nodes, looked up by the ids of their
+ * start and end nodes. Uses open addressing on primitive ids so lookups
+ * don't box and take constant time. Not thread safe while being built;
+ * publish it safely once complete.
+ */
+class AdjacencyIndex
+{
+    private static final long FREE = -1;
+
+    private final long[] nodeIds;
+    private long[] starts;
+    private long[] ends;
+    private Object[] relationships;
+    private int pairCount = 0;
+
+    /**
+     * Create an index for relationships between the given nodes.
+     * 
+     * @param ids the node ids
+     */
+    AdjacencyIndex( final Collection<Long> ids )
+    {
+        nodeIds = new long[tableSize( ids.size() )];
+        Arrays.fill( nodeIds, FREE );
+        for ( long id : ids )
+        {
+            int slot = slot( id, nodeIds.length );
+            while ( nodeIds[slot] != FREE && nodeIds[slot] != id )
+            {
+                slot = ( slot + 1 ) & ( nodeIds.length - 1 );
+            }
+            nodeIds[slot] = id;
+        }
+        // start with room for a few relationships per node
+        int pairSize = tableSize( ids.size() * 4 );
+        starts = new long[pairSize];
+        ends = new long[pairSize];
+        relationships = new Object[pairSize];
+    }
+
+    private static int tableSize( final int entries )
+    {
+        int size = 16;
+        while ( size < entries * 2 )
+        {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static int slot( final long id, final int length )
+    {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) ( hash >>> 32 ) & ( length - 1 );
+    }
+
+    private static int slot( final long start, final long end, final int length )
+    {
+        return slot( start * 31 + end, length );
+    }
+
+    /**
+     * Check if a node belongs to the indexed set.
+     */
+    boolean containsNode( final long id )
+    {
+        int slot = slot( id, nodeIds.length );
+        while ( nodeIds[slot] != FREE )
+        {
+            if ( nodeIds[slot] == id )
+            {
+                return true;
+            }
+            slot = ( slot + 1 ) & ( nodeIds.length - 1 );
+        }
+        return false;
+    }
+
+    /**
+     * Add a relationship. Has to connect two nodes of the indexed set.
+     */
+    void add( final long start, final long end, final Relationship rel )
+    {
+        if ( ( pairCount + 1 ) * 2 > relationships.length )
+        {
+            grow();
+        }
+        put( start, end, rel );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void put( final long start, final long end, final Object rel )
+    {
+        int slot = slot( start, end, relationships.length );
+        while ( relationships[slot] != null )
+        {
+            if ( starts[slot] == start && ends[slot] == end )
+            {
+                Object existing = relationships[slot];
+                List<Relationship> list;
+                if ( existing instanceof List )
+                {
+                    list = (List<Relationship>) existing;
+                }
+                else
+                {
+                    list = new ArrayList<Relationship>( 2 );
+                    list.add( (Relationship) existing );
+                    relationships[slot] = list;
+                }
+                list.add( (Relationship) rel );
+                return;
+            }
+            slot = ( slot + 1 ) & ( relationships.length - 1 );
+        }
+        starts[slot] = start;
+        ends[slot] = end;
+        relationships[slot] = rel;
+        pairCount++;
+    }
+
+    /**
+     * Get the ids of all relationships in the index.
+     * 
+     * @return the id, start node id and end node id of each relationship,
+     *         one relationship after the other
+     */
+    @SuppressWarnings( "unchecked" )
+    long[] relationshipIds()
+    {
+        int count = 0;
+        for ( Object rels : relationships )
+        {
+            if ( rels != null )
+            {
+                count += rels instanceof List ? ( (List<Relationship>) rels ).size() : 1;
+            }
+        }
+        long[] ids = new long[count * 3];
+        int position = 0;
+        for ( int slot = 0; slot < relationships.length; slot++ )
+        {
+            Object rels = relationships[slot];
+            if ( rels == null )
+            {
+                continue;
+            }
+            List<Relationship> list = rels instanceof List ? (List<Relationship>) rels
+                    : Collections.singletonList( (Relationship) rels );
+            for ( Relationship rel : list )
+            {
+                ids[position++] = rel.getId();
+                ids[position++] = starts[slot];
+                ids[position++] = ends[slot];
+            }
+        }
+        return ids;
+    }
+
+    private void grow()
+    {
+        long[] oldStarts = starts;
+        long[] oldEnds = ends;
+        Object[] oldRelationships = relationships;
+        starts = new long[oldRelationships.length * 2];
+        ends = new long[oldRelationships.length * 2];
+        relationships = new Object[oldRelationships.length * 2];
+        pairCount = 0;
+        for ( int slot = 0; slot < oldRelationships.length; slot++ )
+        {
+            if ( oldRelationships[slot] != null )
+            {
+                put( oldStarts[slot], oldEnds[slot], oldRelationships[slot] );
+            }
+        }
+    }
+
+    /**
+     * Get the relationships from one node to another.
+     * 
+     * @return the relationships, empty if there are none
+     */
+    @SuppressWarnings( "unchecked" )
+    Collection<Relationship> get( final long start, final long end )
+    {
+        int slot = slot( start, end, relationships.length );
+        while ( relationships[slot] != null )
+        {
+            if ( starts[slot] == start && ends[slot] == end )
+            {
+                Object found = relationships[slot];
+                if ( found instanceof List )
+                {
+                    return Collections.unmodifiableList( (List<Relationship>) found );
+                }
+                return Collections.singletonList( (Relationship) found );
+            }
+            slot = ( slot + 1 ) & ( relationships.length - 1 );
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get all connected pairs of nodes.
+     * 
+     * @return start and end node ids, alternating
+     */
+    long[] pairs()
+    {
+        long[] pairs = new long[pairCount * 2];
+        int count = 0;
+        for ( int slot = 0; slot < relationships.length; slot++ )
+        {
+            if ( relationships[slot] != null )
+            {
+                pairs[count++] = starts[slot];
+                pairs[count++] = ends[slot];
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,326 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.neoclipse.editor.EntityHandles;
+
+/**
+ * A forward-only cursor over the rows of a Cypher query. Rows are pulled from
+ * the underlying result lazily, in pages of bounded size. Since transactions
+ * are bound to threads, all work on the result is done on the lane the cursor
+ * was opened on; a cursor owning its lane also owns the read transaction,
+ * which stays open until the cursor is closed or exhausted. A cursor can be
+ * cancelled from any thread: a remote query is aborted by closing its
+ * connection, an embedded one is closed by its lane between two rows, as the
+ * embedded kernel can't terminate a transaction from another thread.
+ *
+ * @see GraphDbServiceManager#openCypherCursor(String)
+ */
+public class CypherCursor
+{
+    /**
+     * Opens the underlying result. Runs on the lane of the cursor.
+     */
+    interface ResultOpener
+    {
+        Iterator<Map<String, Object>> open( GraphDatabaseService graphDb, List<String> columns ) throws Exception;
+
+        /**
+         * Stop the query from another thread, if it can be stopped that way.
+         */
+        void abort();
+    }
+
+    private final GraphDbServiceManager manager;
+    /**
+     * Lane to pull rows on.
+     */
+    private final ExecutorService lane;
+    private final String laneName;
+    private final boolean ownsLane;
+    private final boolean ownsTx;
+    private final List<String> columns = new CopyOnWriteArrayList<String>();
+    private volatile ResultOpener opener;
+    private Iterator<Map<String, Object>> rows;
+    private Transaction tx;
+    private volatile boolean closed = false;
+    private volatile boolean cancelled = false;
+    private boolean repeatedQuery = false;
+
+    CypherCursor( final GraphDbServiceManager manager, final ExecutorService lane, final String laneName,
+            final boolean ownsLane, final boolean ownsTx )
+    {
+        this.manager = manager;
+        this.lane = lane;
+        this.laneName = laneName;
+        this.ownsLane = ownsLane;
+        this.ownsTx = ownsTx;
+    }
+
+    /**
+     * Start the query.
+     */
+    void open( final GraphDatabaseService graphDb, final ResultOpener opener ) throws Exception
+    {
+        this.opener = opener;
+        onLane( new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                if ( ownsTx )
+                {
+                    tx = graphDb.beginTx();
+                }
+                rows = opener.open( graphDb, columns );
+                return null;
+            }
+        }, "open cypher cursor" );
+    }
+
+    void setRepeatedQuery( final boolean repeatedQuery )
+    {
+        this.repeatedQuery = repeatedQuery;
+    }
+
+    /**
+     * Check if the same query text was run recently, see
+     * {@link GraphDbLifecycle#recordQuery(String)}.
+     * 
+     * @return true if the query text was seen before
+     */
+    public boolean isRepeatedQuery()
+    {
+        return repeatedQuery;
+    }
+
+    /**
+     * The columns known so far. Results without column metadata (REST) get
+     * their columns added as rows are fetched.
+     *
+     * @return column names
+     */
+    public List<String> getColumns()
+    {
+        return Collections.unmodifiableList( columns );
+    }
+
+    /**
+     * Check if the cursor can deliver more rows.
+     *
+     * @return true if there are more rows
+     */
+    public boolean hasMore()
+    {
+        return !closed;
+    }
+
+    /**
+     * Fetch the next page of rows. Nodes, relationships and paths are
+     * replaced by handles, see {@link EntityHandles}. The cursor closes itself
+     * once the result is exhausted.
+     *
+     * @param maxRows the maximum number of rows to fetch
+     * @return the rows, empty when there are no more rows
+     * @throws Exception
+     */
+    public List<Map<String, Object>> fetch( final int maxRows ) throws Exception
+    {
+        if ( closed )
+        {
+            return Collections.emptyList();
+        }
+        List<Map<String, Object>> page = onLane( new Callable<List<Map<String, Object>>>()
+        {
+            @Override
+            public List<Map<String, Object>> call()
+            {
+                List<Map<String, Object>> page = new ArrayList<Map<String, Object>>( Math.min( maxRows, 1024 ) );
+                while ( page.size() < maxRows && !cancelled && rows.hasNext() )
+                {
+                    page.add( convert( rows.next() ) );
+                }
+                if ( cancelled )
+                {
+                    // don't keep the query around until the cursor is closed
+                    release();
+                }
+                return page;
+            }
+        }, "fetch cypher rows" );
+        if ( page.size() < maxRows || cancelled )
+        {
+            close();
+        }
+        return page;
+    }
+
+    /**
+     * Stop the cursor, from any thread. A remote query is aborted right away.
+     * An embedded fetch in progress returns after the current row and the
+     * lane then releases the result and rolls back its transaction. A thread
+     * waiting for the cursor can be interrupted to stop waiting right away.
+     * The lane threads themselves are never interrupted, as an interrupt
+     * closes the store files of an embedded database. The cursor still has to
+     * be closed, which then doesn't wait for the lane.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        ResultOpener current = opener;
+        if ( current != null )
+        {
+            current.abort();
+        }
+    }
+
+    /**
+     * Check if the cursor was cancelled.
+     * 
+     * @return true if cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    private Map<String, Object> convert( final Map<String, Object> row )
+    {
+        Map<String, Object> newMap = new LinkedHashMap<String, Object>();
+        for ( Entry<String, Object> entry : row.entrySet() )
+        {
+            if ( !columns.contains( entry.getKey() ) )
+            {
+                columns.add( entry.getKey() );
+            }
+            Object value = entry.getValue();
+            if ( value == null )
+            {
+                continue;
+            }
+            newMap.put( entry.getKey(), EntityHandles.toHandle( value ) );
+        }
+        return newMap;
+    }
+
+    /**
+     * Release the result and the transaction. Calling it more than once is
+     * fine.
+     */
+    public void close()
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        Callable<Void> release = new Callable<Void>()
+        {
+            @Override
+            public Void call()
+            {
+                release();
+                return null;
+            }
+        };
+        try
+        {
+            if ( cancelled && !GraphDbServiceManager.isOnLane( laneName ) )
+            {
+                // the lane may still be busy with the query, release later
+                lane.submit( manager.getTaskMetrics().timed( release, "close cypher cursor", null ) );
+            }
+            else
+            {
+                onLane( release, "close cypher cursor" );
+            }
+        }
+        catch ( Exception e )
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            if ( ownsLane )
+            {
+                lane.shutdown();
+            }
+            manager.cursorClosed( this );
+        }
+    }
+
+    /**
+     * Release the result and the transaction, on the lane. A cancelled
+     * cursor rolls its transaction back.
+     */
+    private void release()
+    {
+        if ( rows instanceof ResourceIterator )
+        {
+            ( (ResourceIterator<?>) rows ).close();
+        }
+        rows = null;
+        if ( tx != null )
+        {
+            if ( cancelled )
+            {
+                tx.failure();
+            }
+            else
+            {
+                tx.success();
+            }
+            tx.finish();
+            tx = null;
+        }
+    }
+
+    private <T> T onLane( final Callable<T> task, final String info ) throws Exception
+    {
+        Callable<T> timed = manager.getTaskMetrics().timed( task, info, null );
+        if ( GraphDbServiceManager.isOnLane( laneName ) )
+        {
+            return timed.call();
+        }
+        try
+        {
+            return lane.submit( timed ).get();
+        }
+        catch ( InterruptedException e )
+        {
+            // stopped waiting, the result is of no use anymore
+            cancel();
+            throw e;
+        }
+    }
+}
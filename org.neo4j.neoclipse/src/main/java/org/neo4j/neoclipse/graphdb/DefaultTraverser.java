@@ -20,54 +20,245 @@ package org.neo4j.neoclipse.graphdb;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Path;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.traversal.Evaluators;
 import org.neo4j.graphdb.traversal.TraversalDescription;
-import org.neo4j.kernel.Traversal;
 import org.neo4j.neoclipse.reltype.DirectedRelationship;
 import org.neo4j.neoclipse.reltype.RelationshipTypeHashSet;
 import org.neo4j.rest.graphdb.traversal.RestTraversal;
 
 public class DefaultTraverser implements TraversalStrategy
 {
+    /**
+     * The result of the last traversal, ring by ring.
+     */
+    private static class TraversalState
+    {
+        private final long startId;
+        private final SortedSet<String> filter;
+        private final int nodeLimit;
+        private final int relationshipLimit;
+        /**
+         * The cache generation the state was built in; it can only be built
+         * on while the database didn't change.
+         */
+        private final long generation;
+        /**
+         * The nodes found at each depth, the last one is the frontier.
+         */
+        private final List<List<Node>> rings = new ArrayList<List<Node>>();
+        private final Set<Long> visited = new HashSet<Long>();
+        /**
+         * Relationships not followed from expanded nodes, by node id.
+         */
+        private final Map<Long, HiddenRelationships> hidden = new LinkedHashMap<Long, HiddenRelationships>();
+        /**
+         * Relationships crossed while expanding and connecting rings, each
+         * once. Some may lead to nodes no longer part of the result.
+         */
+        private final List<Relationship> crossed = new ArrayList<Relationship>();
+        private final Set<Long> crossedIds = new HashSet<Long>();
+        /**
+         * Nodes of the ring before the frontier that weren't expanded, as the
+         * node limit was reached.
+         */
+        private List<Node> unexpanded = Collections.emptyList();
+        private int size = 0;
+        private boolean truncated = false;
+
+        public TraversalState( final long startId, final SortedSet<String> filter, final int nodeLimit,
+                final int relationshipLimit, final long generation )
+        {
+            this.startId = startId;
+            this.filter = filter;
+            this.nodeLimit = nodeLimit;
+            this.relationshipLimit = relationshipLimit;
+            this.generation = generation;
+        }
+
+        private boolean matches( final Node node, final SortedSet<String> filter, final int nodeLimit,
+                final int relationshipLimit, final long generation )
+        {
+            return startId == node.getId() && this.filter.equals( filter ) && this.nodeLimit == nodeLimit
+                   && this.relationshipLimit == relationshipLimit && this.generation == generation;
+        }
+
+        private int depth()
+        {
+            return rings.size() - 1;
+        }
+
+        /**
+         * Add a node at a depth.
+         * 
+         * @return false if the node limit was reached
+         */
+        private boolean add( final Node node, final int depth )
+        {
+            if ( size >= nodeLimit )
+            {
+                truncated = true;
+                return false;
+            }
+            if ( !visited.add( node.getId() ) )
+            {
+                return true;
+            }
+            while ( rings.size() <= depth )
+            {
+                rings.add( new ArrayList<Node>() );
+            }
+            rings.get( depth ).add( node );
+            size++;
+            return true;
+        }
+
+        private void cross( final Relationship rel )
+        {
+            if ( crossedIds.add( rel.getId() ) )
+            {
+                crossed.add( rel );
+            }
+        }
+
+        private List<Node> nodes()
+        {
+            List<Node> nodes = new ArrayList<Node>( size );
+            for ( List<Node> ring : rings )
+            {
+                nodes.addAll( ring );
+            }
+            return nodes;
+        }
+    }
+
     private final Set<RelationshipType> relTypes = new RelationshipTypeHashSet();
+    /**
+     * Relationships between the nodes found by the last traversal.
+     */
+    private volatile AdjacencyIndex adjacency = null;
+    private TraversalState lastTraversal = null;
+    private volatile boolean reuseLastTraversal = false;
+    /**
+     * Relationships the last traversal didn't follow.
+     */
+    private volatile Collection<HiddenRelationships> hidden = new ArrayList<HiddenRelationships>();
+
+    @Override
+    public void reuseLastTraversal()
+    {
+        reuseLastTraversal = true;
+    }
 
     @Override
     public Collection<Node> getNodes( final Node node,
             final Collection<? extends DirectedRelationship> directedRels,
-            final int depth, final int nodeLimit, GraphDbServiceManager gsm )
+            final int depth, final int nodeLimit, final int relationshipLimit, GraphDbServiceManager gsm )
             {
-        List<Node> nodes = new ArrayList<Node>();
+        boolean reuse = reuseLastTraversal;
+        reuseLastTraversal = false;
+        hidden = new ArrayList<HiddenRelationships>();
         if ( directedRels.isEmpty() )
         {
+            List<Node> nodes = new ArrayList<Node>();
             nodes.add( node );
+            relTypes.clear();
+            lastTraversal = null;
+            // a single node, look up its loops if asked
+            adjacency = null;
             return nodes;
         }
-        try
+        relTypes.clear();
+        for ( DirectedRelationship directedRel : directedRels )
         {
-            TraversalDescription description = gsm.isRemote() ? RestTraversal.description().maxDepth( depth ) : Traversal.description().evaluator( Evaluators.toDepth( depth ) ); 
-            description.breadthFirst().evaluator( Evaluators.all() );
-            relTypes.clear();
-            for ( DirectedRelationship directedRel : directedRels )
+            relTypes.add( directedRel.getRelType() );
+        }
+        SortedSet<String> filter = filterOf( directedRels );
+        TraversalCache cache = gsm.getTraversalCache();
+        long generation = cache.generation();
+        // rebuilding nodes from ids costs a round trip each over REST
+        boolean cacheable = !gsm.isRemote();
+        TraversalState last = lastTraversal;
+        if ( reuse && last != null && last.matches( node, filter, nodeLimit, relationshipLimit, generation ) )
+        {
+            if ( depth == last.depth() - 1 && depth >= 0 )
             {
-                Direction d = directedRel.hasDirection() ?  directedRel.getDirection() : Direction.BOTH;
-                description.relationships( directedRel.getRelType(), d );
-                relTypes.add( directedRel.getRelType() );
+                Collection<Node> nodes = shrink( last );
+                remember( last, cache, generation, cacheable );
+                return nodes;
             }
-            for ( Node currentNode : description.traverse( node ).nodes() )
+            if ( depth == last.depth() + 1 && !last.truncated )
             {
-                if ( nodes.size() >= nodeLimit )
+                try
                 {
-                    break;
+                    expand( last, directedRels );
+                    connect( last, directedRels );
+                    List<Node> nodes = last.nodes();
+                    indexRelationships( nodes, last.crossed );
+                    hidden = new ArrayList<HiddenRelationships>( last.hidden.values() );
+                    remember( last, cache, generation, cacheable );
+                    return nodes;
                 }
-                nodes.add( currentNode );
+                catch ( NotFoundException nfe )
+                {
+                    // the graph changed under us, start over
+                }
+            }
+        }
+        if ( cacheable )
+        {
+            TraversalCache.Entry entry = cache.get( new TraversalCache.Key( node.getId(), depth, filter, nodeLimit,
+                    relationshipLimit ) );
+            if ( entry != null )
+            {
+                try
+                {
+                    return restore( node, entry, filter, nodeLimit, relationshipLimit, generation );
+                }
+                catch ( NotFoundException nfe )
+                {
+                    // the graph changed under us, start over
+                    cache.invalidate();
+                }
+            }
+        }
+        TraversalState state = new TraversalState( node.getId(), filter, nodeLimit, relationshipLimit, generation );
+        try
+        {
+            if ( !gsm.isRemote() )
+            {
+                // walk ring by ring, so hubs can be cut off at the limit and
+                // the relationships crossed are known
+                state.add( node, 0 );
+                while ( state.depth() < depth && !state.truncated )
+                {
+                    expand( state, directedRels );
+                }
+                connect( state, directedRels );
+            }
+            else
+            {
+                traverse( node, directedRels, depth, state );
+            }
+            while ( state.depth() < depth )
+            {
+                state.rings.add( new ArrayList<Node>() );
             }
         }
         catch ( NotFoundException nfe )
@@ -76,13 +267,336 @@ public class DefaultTraverser implements TraversalStrategy
             // somehow (could be a rollback operation)
             // just return an empty array then
         }
+        lastTraversal = state;
+        List<Node> nodes = state.nodes();
+        if ( gsm.isRemote() )
+        {
+            // the server doesn't tell which relationships it crossed, look
+            // them up as needed
+            adjacency = null;
+        }
+        else
+        {
+            indexRelationships( nodes, state.crossed );
+        }
+        hidden = new ArrayList<HiddenRelationships>( state.hidden.values() );
+        remember( state, cache, generation, cacheable );
         return nodes;
     }
 
+    /**
+     * Traverse using the traversal framework of a remote database, following
+     * all relationships.
+     */
+    private static void traverse( final Node node, final Collection<? extends DirectedRelationship> directedRels,
+            final int depth, final TraversalState state )
+    {
+        TraversalDescription description = RestTraversal.description().maxDepth( depth );
+        description = description.breadthFirst().evaluator( Evaluators.all() );
+        for ( DirectedRelationship directedRel : directedRels )
+        {
+            description = description.relationships( directedRel.getRelType(), directionOf( directedRel ) );
+        }
+        for ( Path path : description.traverse( node ) )
+        {
+            if ( !state.add( path.endNode(), path.length() ) )
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Rebuild a traversal result from the cache.
+     */
+    private Collection<Node> restore( final Node node, final TraversalCache.Entry entry,
+            final SortedSet<String> filter, final int nodeLimit, final int relationshipLimit, final long generation )
+    {
+        TraversalState state = new TraversalState( node.getId(), filter, nodeLimit, relationshipLimit, generation );
+        GraphDatabaseService graphDb = node.getGraphDatabase();
+        int position = 0;
+        for ( int depth = 0; depth < entry.ringSizes.length; depth++ )
+        {
+            List<Node> ring = new ArrayList<Node>( entry.ringSizes[depth] );
+            for ( int i = 0; i < entry.ringSizes[depth]; i++ )
+            {
+                long id = entry.nodeIds[position++];
+                ring.add( id == node.getId() ? node : graphDb.getNodeById( id ) );
+                state.visited.add( id );
+            }
+            state.rings.add( ring );
+        }
+        state.size = entry.nodeIds.length;
+        state.truncated = entry.truncated;
+        List<Long> ids = new ArrayList<Long>( entry.nodeIds.length );
+        for ( long id : entry.nodeIds )
+        {
+            ids.add( id );
+        }
+        AdjacencyIndex index = new AdjacencyIndex( ids );
+        for ( int i = 0; i < entry.relationships.length; i += 3 )
+        {
+            Relationship rel = graphDb.getRelationshipById( entry.relationships[i] );
+            state.cross( rel );
+            index.add( entry.relationships[i + 1], entry.relationships[i + 2], rel );
+        }
+        for ( int i = 0; i < entry.hiddenIds.length; i++ )
+        {
+            long id = entry.hiddenIds[i];
+            Node owner = id == node.getId() ? node : graphDb.getNodeById( id );
+            state.hidden.put( id, new HiddenRelationships( owner, entry.hiddenCounts[i] ) );
+        }
+        lastTraversal = state;
+        adjacency = index;
+        hidden = new ArrayList<HiddenRelationships>( state.hidden.values() );
+        return state.nodes();
+    }
+
+    /**
+     * Put a traversal result in the cache.
+     */
+    private void remember( final TraversalState state, final TraversalCache cache, final long generation,
+            final boolean cacheable )
+    {
+        AdjacencyIndex index = adjacency;
+        if ( !cacheable || index == null )
+        {
+            return;
+        }
+        long[] nodeIds = new long[state.size];
+        int[] ringSizes = new int[state.rings.size()];
+        int position = 0;
+        for ( int depth = 0; depth < ringSizes.length; depth++ )
+        {
+            List<Node> ring = state.rings.get( depth );
+            ringSizes[depth] = ring.size();
+            for ( Node node : ring )
+            {
+                nodeIds[position++] = node.getId();
+            }
+        }
+        long[] hiddenIds = new long[state.hidden.size()];
+        long[] hiddenCounts = new long[hiddenIds.length];
+        position = 0;
+        for ( HiddenRelationships more : state.hidden.values() )
+        {
+            hiddenIds[position] = more.getNode().getId();
+            hiddenCounts[position++] = more.getCount();
+        }
+        cache.put( new TraversalCache.Key( state.startId, state.depth(), state.filter, state.nodeLimit,
+                state.relationshipLimit ), new TraversalCache.Entry( nodeIds, ringSizes, state.truncated,
+                index.relationshipIds(), hiddenIds, hiddenCounts ), generation );
+    }
+
+    private static Direction directionOf( final DirectedRelationship directedRel )
+    {
+        return directedRel.hasDirection() ? directedRel.getDirection() : Direction.BOTH;
+    }
+
+    /**
+     * Describe a relationship filter by value, as the filter objects change
+     * state when the user toggles them.
+     */
+    private static SortedSet<String> filterOf( final Collection<? extends DirectedRelationship> directedRels )
+    {
+        SortedSet<String> filter = new TreeSet<String>();
+        for ( DirectedRelationship directedRel : directedRels )
+        {
+            filter.add( directedRel.getRelType().name() + ':' + directionOf( directedRel ) );
+        }
+        return filter;
+    }
+
+    /**
+     * Go one step deeper, starting from the frontier of a traversal. When the
+     * state has a relationship limit, only the first relationships of each
+     * type and direction are followed from a node; the rest are only counted.
+     */
+    private static void expand( final TraversalState state,
+            final Collection<? extends DirectedRelationship> directedRels )
+    {
+        List<Node> frontier = state.rings.get( state.depth() );
+        int depth = state.depth() + 1;
+        state.rings.add( new ArrayList<Node>() );
+        state.unexpanded = Collections.emptyList();
+        int limit = state.relationshipLimit;
+        for ( int position = 0; position < frontier.size(); position++ )
+        {
+            Node current = frontier.get( position );
+            long notFollowed = 0;
+            for ( DirectedRelationship directedRel : directedRels )
+            {
+                Iterator<Relationship> rels = current.getRelationships( directedRel.getRelType(),
+                        directionOf( directedRel ) ).iterator();
+                int count = 0;
+                while ( rels.hasNext() )
+                {
+                    if ( limit > 0 && count == limit )
+                    {
+                        notFollowed += countRemaining( rels );
+                        break;
+                    }
+                    Relationship rel = rels.next();
+                    count++;
+                    if ( !state.add( rel.getOtherNode( current ), depth ) )
+                    {
+                        state.unexpanded = new ArrayList<Node>( frontier.subList( position, frontier.size() ) );
+                        return;
+                    }
+                    state.cross( rel );
+                }
+            }
+            if ( notFollowed > 0 )
+            {
+                state.hidden.put( current.getId(), new HiddenRelationships( current, notFollowed ) );
+            }
+        }
+    }
+
+    /**
+     * Record the relationships between nodes of the result that expanding
+     * didn't cross: those from the frontier, and from nodes left unexpanded
+     * at the node limit. They are looked at like when expanding, up to the
+     * relationship limit, but no nodes are added.
+     */
+    private static void connect( final TraversalState state,
+            final Collection<? extends DirectedRelationship> directedRels )
+    {
+        List<Node> nodes = new ArrayList<Node>( state.unexpanded );
+        nodes.addAll( state.rings.get( state.depth() ) );
+        int limit = state.relationshipLimit;
+        for ( Node current : nodes )
+        {
+            for ( DirectedRelationship directedRel : directedRels )
+            {
+                int count = 0;
+                for ( Relationship rel : current.getRelationships( directedRel.getRelType(),
+                        directionOf( directedRel ) ) )
+                {
+                    if ( limit > 0 && count++ == limit )
+                    {
+                        break;
+                    }
+                    if ( state.visited.contains( rel.getOtherNode( current ).getId() ) )
+                    {
+                        state.cross( rel );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Count relationships without looking at them. There's no degree lookup
+     * to use instead, but counting doesn't load the nodes at the other end.
+     */
+    private static long countRemaining( final Iterator<Relationship> rels )
+    {
+        long count = 0;
+        while ( rels.hasNext() )
+        {
+            rels.next();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Drop the outermost ring of the last traversal.
+     */
+    private Collection<Node> shrink( final TraversalState state )
+    {
+        List<Node> ring = state.rings.remove( state.depth() );
+        for ( Node node : ring )
+        {
+            state.visited.remove( node.getId() );
+            state.hidden.remove( node.getId() );
+        }
+        // the new frontier isn't expanded anymore
+        for ( Node node : state.rings.get( state.depth() ) )
+        {
+            state.hidden.remove( node.getId() );
+        }
+        state.size -= ring.size();
+        state.truncated = false;
+        state.unexpanded = Collections.emptyList();
+        List<Node> nodes = state.nodes();
+        indexRelationships( nodes, state.crossed );
+        hidden = new ArrayList<HiddenRelationships>( state.hidden.values() );
+        return nodes;
+    }
+
+    /**
+     * Record the relationships between the nodes of a traversal result, so
+     * {@link #getRelationships(Node, Node)} doesn't have to look for them in
+     * the database again. Only the relationships the traversal crossed are
+     * used, nothing more is read; with a relationship limit, relationships
+     * between two hubs may then be missed.
+     * 
+     * @param nodes the nodes found
+     * @param crossed relationships the traversal crossed
+     */
+    private void indexRelationships( final List<Node> nodes, final List<Relationship> crossed )
+    {
+        List<Long> ids = new ArrayList<Long>( nodes.size() );
+        for ( Node node : nodes )
+        {
+            ids.add( node.getId() );
+        }
+        AdjacencyIndex index = new AdjacencyIndex( ids );
+        try
+        {
+            for ( Relationship rel : crossed )
+            {
+                long startId = rel.getStartNode().getId();
+                long endId = rel.getEndNode().getId();
+                if ( index.containsNode( startId ) && index.containsNode( endId ) )
+                {
+                    index.add( startId, endId, rel );
+                }
+            }
+            adjacency = index;
+        }
+        catch ( NotFoundException nfe )
+        {
+            // the nodes changed under us, look relationships up as needed
+            adjacency = null;
+        }
+    }
+
+    @Override
+    public Collection<HiddenRelationships> getHiddenRelationships()
+    {
+        return hidden;
+    }
+
+    @Override
+    public Collection<Relationship> getKnownRelationships( final Node start, final Node end )
+    {
+        AdjacencyIndex index = adjacency;
+        if ( index == null || !index.containsNode( start.getId() ) || !index.containsNode( end.getId() ) )
+        {
+            return null;
+        }
+        return index.get( start.getId(), end.getId() );
+    }
+
+    @Override
+    public long[] getKnownConnections()
+    {
+        AdjacencyIndex index = adjacency;
+        return index == null ? new long[0] : index.pairs();
+    }
+
     @Override
     public Collection<Relationship> getRelationships( final Node start,
             final Node end )
             {
+        Collection<Relationship> known = getKnownRelationships( start, end );
+        if ( known != null )
+        {
+            return new ArrayList<Relationship>( known );
+        }
         List<Relationship> rels = new ArrayList<Relationship>();
         if ( relTypes.isEmpty() )
         {
@@ -18,7 +18,14 @@
  */
 package org.neo4j.neoclipse.graphdb;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.cypher.javacompat.ExecutionEngine;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestGraphDatabase;
 
 /**
  * Manages the life cycle of a {@link GraphDatabaseService} as well as other
@@ -28,12 +35,37 @@ import org.neo4j.graphdb.GraphDatabaseService;
  */
 public class GraphDbLifecycle
 {
+    /**
+     * Number of distinct query texts to remember, the default
+     * <code>query_cache_size</code> of Neo4j.
+     */
+    private static final int RECENT_QUERIES_SIZE = 100;
     /**
      * Field not final since it's nulled in the shutdown process (to be able to
      * support multiple calls to shutdown).
      */
     private GraphDatabaseService graphDb;
     private Thread shutdownHook;
+    /**
+     * Cypher engine, shared by all queries so its plan cache is reused.
+     */
+    private ExecutionEngine executionEngine;
+    /**
+     * The query texts run recently. The engine doesn't tell whether it had a
+     * plan for a query, so this only says if the same text was run before.
+     */
+    private final Map<String, Boolean> recentQueries = new LinkedHashMap<String, Boolean>( 16, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<String, Boolean> eldest )
+        {
+            return size() > RECENT_QUERIES_SIZE;
+        }
+    };
+    private final AtomicLong repeatedQueries = new AtomicLong();
+    private final AtomicLong newQueries = new AtomicLong();
 
     /**
      * Constructs a new {@link GraphDbLifecycle} instance with {@code graphDb}
@@ -86,6 +118,10 @@ public class GraphDbLifecycle
     {
         if ( this.graphDb != null )
         {
+            synchronized ( this )
+            {
+                executionEngine = null;
+            }
             this.graphDb.shutdown();
             this.graphDb = null;
         }
@@ -100,6 +136,63 @@ public class GraphDbLifecycle
         runShutdown();
     }
 
+    /**
+     * Get the Cypher engine of the embedded database, created on first use.
+     * 
+     * @return the engine
+     */
+    public synchronized ExecutionEngine executionEngine()
+    {
+        if ( executionEngine == null )
+        {
+            executionEngine = new ExecutionEngine( graphDb );
+        }
+        return executionEngine;
+    }
+
+    /**
+     * Get the REST API of the remote database.
+     * 
+     * @return the API
+     */
+    public RestAPI restApi()
+    {
+        return ( (RestGraphDatabase) graphDb ).getRestAPI();
+    }
+
+    /**
+     * Record the execution of a query.
+     * 
+     * @param query the query text, without parameter values
+     * @return true if the same text was among the recent queries
+     */
+    public boolean recordQuery( final String query )
+    {
+        boolean repeated;
+        synchronized ( recentQueries )
+        {
+            repeated = recentQueries.put( query, Boolean.TRUE ) != null;
+        }
+        ( repeated ? repeatedQueries : newQueries ).incrementAndGet();
+        return repeated;
+    }
+
+    /**
+     * @return number of queries whose text was run recently
+     */
+    public long getRepeatedQueries()
+    {
+        return repeatedQueries.get();
+    }
+
+    /**
+     * @return number of queries with a text not run recently
+     */
+    public long getNewQueries()
+    {
+        return newQueries.get();
+    }
+
     /**
      * @return the {@link GraphDatabaseService} instance passed in to the
      *         constructor,
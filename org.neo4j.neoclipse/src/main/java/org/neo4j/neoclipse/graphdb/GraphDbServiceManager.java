@@ -18,27 +18,36 @@
  */
 package org.neo4j.neoclipse.graphdb;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.jface.preference.IPreferenceStore;
-import org.neo4j.cypher.javacompat.ExecutionEngine;
 import org.neo4j.cypher.javacompat.ExecutionResult;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
@@ -50,12 +59,9 @@ import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.connection.Alias;
 import org.neo4j.neoclipse.connection.ConnectionMode;
 import org.neo4j.neoclipse.editor.CypherResultSet;
-import org.neo4j.neoclipse.editor.NodeWrapper;
 import org.neo4j.neoclipse.preference.Preferences;
-import org.neo4j.neoclipse.util.ApplicationUtil;
 import org.neo4j.neoclipse.view.UiHelper;
 import org.neo4j.rest.graphdb.RestGraphDatabase;
-import org.neo4j.rest.graphdb.query.RestCypherQueryEngine;
 
 
 /**
@@ -70,6 +76,40 @@ public class GraphDbServiceManager
     private static final String FIND_REFERENCE_NODE_WITH_RELS_STATEMENT = "START n=node(*) MATCH n--() RETURN id(n) as id LIMIT 1";
     private static final String FIND_REFERENCE_NODE_STATEMENT = "START n=node(*) RETURN id(n) as id LIMIT 1";
     private static final String NEOCLIPSE_PACKAGE = "org.neo4j.neoclipse.";
+    /**
+     * Number of worker threads serving read-only tasks.
+     */
+    private static final int READ_LANE_THREADS = Math.max( 2, Runtime.getRuntime().availableProcessors() );
+    /**
+     * Number of read cursors that can be open at the same time; more have to
+     * wait for one to be closed.
+     */
+    private static final int CURSOR_LANE_THREADS = 8;
+    /**
+     * How long stopping the database waits for cursors to let go of it
+     * before closing them again, in milliseconds.
+     */
+    private static final long CURSOR_CLOSE_WAIT = 100;
+    /**
+     * Cypher clauses that make a query modify the database.
+     */
+    private static final Pattern UPDATING_CLAUSE = Pattern.compile( "\\b(CREATE|MERGE|SET|DELETE|REMOVE|FOREACH)\\b",
+            Pattern.CASE_INSENSITIVE );
+    /**
+     * Parts of a Cypher query that can't be clauses: comments, string
+     * literals, quoted names, property keys, labels, relationship types and
+     * parameters.
+     */
+    private static final Pattern NOT_A_CLAUSE = Pattern.compile( "//[^\\n]*|'(?:[^'\\\\]|\\\\.)*'"
+                                                                 + "|\"(?:[^\"\\\\]|\\\\.)*\"|`[^`]*`"
+                                                                 + "|[.:]\\s*\\w+|\\{\\s*\\w+\\s*\\}" );
+    /**
+     * Marks the threads owned by the reader and writer lanes.
+     */
+    private static final ThreadLocal<String> LANE_THREAD = new ThreadLocal<String>();
+    private static final String WRITER_LANE = "neoclipse-writer";
+    private static final String READER_LANE = "neoclipse-reader";
+    private static final String CURSOR_LANE = "neoclipse-cursor";
     private static Logger logger = Logger.getLogger( GraphDbServiceManager.class.getName() );
     private Alias currentAlias;
 
@@ -87,6 +127,20 @@ public class GraphDbServiceManager
         {
             @Override
             public void run()
+            {
+                Lock lock = lifecycleLock.writeLock();
+                lock.lock();
+                try
+                {
+                    start();
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+
+            private void start()
             {
                 if ( lifecycle != null )
                 {
@@ -127,11 +181,14 @@ public class GraphDbServiceManager
                 }
 
                 lifecycle = new GraphDbLifecycle( graphDb );
+                traversalCache.invalidate();
+                metrics.resetQueues();
                 if ( !isReadOnlyMode() )
                 {
                     logFine( "starting tx" );
                     tx = graphDb.beginTx();
                 }
+                uncommittedWrites = false;
                 fireServiceChangedEvent( GraphDbServiceStatus.STARTED );
             }
         };
@@ -140,6 +197,34 @@ public class GraphDbServiceManager
         {
             @Override
             public void run()
+            {
+                Lock lock = lifecycleLock.writeLock();
+                try
+                {
+                    // cursors hold the database open, close them until the
+                    // last one has let go, also those opened meanwhile
+                    do
+                    {
+                        closeCursors();
+                    }
+                    while ( !lock.tryLock( CURSOR_CLOSE_WAIT, TimeUnit.MILLISECONDS ) );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try
+                {
+                    stop();
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+
+            private void stop()
             {
                 logInfo( "stopping/disconnecting ..." );
                 if ( lifecycle == null )
@@ -172,6 +257,8 @@ public class GraphDbServiceManager
                 finally
                 {
                     lifecycle = null;
+                    uncommittedWrites = false;
+                    traversalCache.invalidate();
                     fireServiceChangedEvent( GraphDbServiceStatus.STOPPED );
                 }
             }
@@ -217,6 +304,8 @@ public class GraphDbServiceManager
                 {
                     tx.finish();
                     tx = lifecycle.graphDb().beginTx();
+                    uncommittedWrites = false;
+                    traversalCache.invalidate();
                     fireServiceChangedEvent( GraphDbServiceStatus.COMMIT );
                 }
             }
@@ -231,6 +320,8 @@ public class GraphDbServiceManager
                 {
                     tx.finish();
                     tx = lifecycle.graphDb().beginTx();
+                    uncommittedWrites = false;
+                    traversalCache.invalidate();
                     fireServiceChangedEvent( GraphDbServiceStatus.ROLLBACK );
                 }
             }
@@ -283,6 +374,183 @@ public class GraphDbServiceManager
         }
     }
 
+    /**
+     * Runs a read-only task inside its own transaction, so it doesn't depend
+     * on the long-running transaction owned by the writer lane. On the writer
+     * lane itself the task runs as it is: a nested transaction would only be
+     * a placebo there, and a task failing inside it would mark the
+     * long-running transaction for rollback.
+     */
+    private class ReadTask<T> implements Callable<T>
+    {
+        private final Callable<T> task;
+
+        public ReadTask( final Callable<T> task )
+        {
+            this.task = task;
+        }
+
+        @Override
+        public T call() throws Exception
+        {
+            if ( isOnLane( WRITER_LANE ) )
+            {
+                return task.call();
+            }
+            Lock lock = lifecycleLock.readLock();
+            lock.lock();
+            try
+            {
+                GraphDbLifecycle current = lifecycle;
+                if ( current == null || current.graphDb() == null || isRemote() )
+                {
+                    return task.call();
+                }
+                Transaction readTx = current.graphDb().beginTx();
+                try
+                {
+                    return task.call();
+                }
+                finally
+                {
+                    // nothing to roll back, and a failed nested transaction
+                    // would spoil the one it's nested in
+                    readTx.success();
+                    readTx.finish();
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Everything a read cursor does, from opening the result to closing it,
+     * runs as one task on the cursor lanes, so the cursor keeps its thread
+     * (and with it its transaction) while other cursors share the pool. The
+     * session holds the database open until the cursor is closed.
+     */
+    private class CursorSession extends AbstractExecutorService implements Runnable
+    {
+        private final String laneName;
+        private final BlockingQueue<Runnable> work = new LinkedBlockingQueue<Runnable>();
+        private final CountDownLatch terminated = new CountDownLatch( 1 );
+        private volatile boolean shutdown = false;
+
+        CursorSession( final String laneName )
+        {
+            this.laneName = laneName;
+        }
+
+        @Override
+        public void run()
+        {
+            String poolLane = LANE_THREAD.get();
+            Lock lock = lifecycleLock.readLock();
+            lock.lock();
+            LANE_THREAD.set( laneName );
+            try
+            {
+                while ( true )
+                {
+                    Runnable next = work.take();
+                    if ( next == this )
+                    {
+                        break;
+                    }
+                    next.run();
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                LANE_THREAD.set( poolLane );
+                lock.unlock();
+                terminated.countDown();
+            }
+        }
+
+        @Override
+        public void execute( final Runnable command )
+        {
+            if ( shutdown )
+            {
+                throw new RejectedExecutionException( laneName + " is closed" );
+            }
+            work.add( command );
+        }
+
+        /**
+         * End the session once the work already handed to it is done.
+         */
+        @Override
+        public void shutdown()
+        {
+            if ( !shutdown )
+            {
+                shutdown = true;
+                work.add( this );
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow()
+        {
+            shutdown();
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown()
+        {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated()
+        {
+            return terminated.getCount() == 0;
+        }
+
+        @Override
+        public boolean awaitTermination( final long timeout, final TimeUnit unit ) throws InterruptedException
+        {
+            return terminated.await( timeout, unit );
+        }
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory
+    {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        public LaneThreadFactory( final String prefix )
+        {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread( final Runnable runnable )
+        {
+            Thread thread = new Thread( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    LANE_THREAD.set( prefix );
+                    runnable.run();
+                }
+            }, prefix + "-" + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+
     private class DisplayRunnable implements Runnable
     {
         private final Runnable runnable;
@@ -302,29 +570,82 @@ public class GraphDbServiceManager
         }
     }
 
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    /**
+     * The writer lane: serializes everything touching the long-running
+     * transaction.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor( new LaneThreadFactory( WRITER_LANE ) );
+    /**
+     * The reader lanes: read-only tasks run here concurrently, each in a
+     * transaction of its own.
+     */
+    private final ExecutorService readExecutor = Executors.newFixedThreadPool( READ_LANE_THREADS,
+            new LaneThreadFactory( READER_LANE ) );
+    /**
+     * The cursor lanes: each thread serves one read cursor at a time, see
+     * {@link CursorSession}.
+     */
+    private final ExecutorService cursorExecutor = Executors.newFixedThreadPool( CURSOR_LANE_THREADS,
+            new LaneThreadFactory( CURSOR_LANE ) );
+    /**
+     * Readers hold the read lock while running, start/stop takes the write
+     * lock so the database doesn't go away under a reader.
+     */
+    private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+    /**
+     * True when the long-running transaction may hold changes that read
+     * transactions can't see yet; reads then go to the writer lane.
+     */
+    private volatile boolean uncommittedWrites = false;
+    /**
+     * Cursors that may still hold a transaction.
+     */
+    private final Set<CypherCursor> openCursors = Collections
+            .newSetFromMap( new ConcurrentHashMap<CypherCursor, Boolean>() );
+    private final AtomicInteger cursorCount = new AtomicInteger();
+    /**
+     * Timings of the tasks run on the lanes.
+     */
+    private final TaskMetrics metrics = new TaskMetrics( this );
+    /**
+     * Recent traversal results, valid until the database changes.
+     */
+    private final TraversalCache traversalCache = new TraversalCache();
     private final Tasks tasks = new Tasks();
 
     /**
      * The service instance.
      */
     private GraphDbServiceMode serviceMode;
-    private GraphDbLifecycle lifecycle = null;
+    private volatile GraphDbLifecycle lifecycle = null;
 
     /**
      * The registered service change listeners.
      */
     private final ListenerList listeners = new ListenerList();
     private Transaction tx;
-    private final IPreferenceStore preferenceStore = Activator.getDefault().getPreferenceStore();
+    private final IPreferenceStore preferenceStore;
 
     /**
      * The constructor.
      */
     public GraphDbServiceManager()
     {
+        this( Activator.getDefault().getPreferenceStore() );
+    }
+
+    /**
+     * Create a manager that reads its settings from the given store, for use
+     * outside of the workbench.
+     * 
+     * @param preferenceStore the preferences to use
+     */
+    public GraphDbServiceManager( final IPreferenceStore preferenceStore )
+    {
+        this.preferenceStore = preferenceStore;
         serviceMode = GraphDbServiceMode.valueOf( preferenceStore.getString( Preferences.CONNECTION_MODE ) );
         logInfo( "Starting " + this.getClass().getSimpleName() );
+        metrics.register();
     }
 
     private void logFine( final String message )
@@ -352,30 +673,129 @@ public class GraphDbServiceManager
         logFine( type + " -> " + name + ":\n" + info );
     }
 
+    /**
+     * Route a task to the lane matching its intent. Reads go to the reader
+     * lanes unless the long-running transaction has uncommitted changes they
+     * need to see; tasks without a declared intent stay on the writer lane.
+     * Every task is timed under its description.
+     */
+    private <T> Future<T> submit( final Callable<T> task, final String info, final TaskIntent intent )
+    {
+        if ( intent == TaskIntent.READ )
+        {
+            if ( LANE_THREAD.get() != null )
+            {
+                // already on a lane, waiting for another one could deadlock
+                FutureTask<T> inline = new FutureTask<T>( metrics.timed( new ReadTask<T>( task ), info, null ) );
+                inline.run();
+                return inline;
+            }
+            if ( !uncommittedWrites )
+            {
+                return enqueue( readExecutor, new ReadTask<T>( task ), info, TaskMetrics.Lane.READER );
+            }
+        }
+        else if ( intent == TaskIntent.WRITE && !isReadOnlyMode() )
+        {
+            uncommittedWrites = true;
+            traversalCache.invalidate();
+            return enqueue( executor, invalidatingTraversals( task ), info, TaskMetrics.Lane.WRITER );
+        }
+        return enqueue( executor, task, info, TaskMetrics.Lane.WRITER );
+    }
+
+    /**
+     * Hand a timed task to a lane, so it isn't counted as queued if the lane
+     * rejects it.
+     */
+    private <T> Future<T> enqueue( final ExecutorService lane, final Callable<T> task, final String info,
+            final TaskMetrics.Lane metricsLane )
+    {
+        Callable<T> timed = metrics.timed( task, info, metricsLane );
+        try
+        {
+            return lane.submit( timed );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            metrics.rejected( metricsLane );
+            throw e;
+        }
+    }
+
+    /**
+     * Wrap a task that changes the database, so cached traversal results are
+     * dropped once it's done.
+     */
+    private <T> Callable<T> invalidatingTraversals( final Callable<T> task )
+    {
+        return new Callable<T>()
+        {
+            @Override
+            public T call() throws Exception
+            {
+                try
+                {
+                    return task.call();
+                }
+                finally
+                {
+                    traversalCache.invalidate();
+                }
+            }
+        };
+    }
+
     public <T> Future<T> submitTask( final Callable<T> task, final String info )
     {
         printTask( task, "C", info );
-        return executor.submit( task );
+        return submit( task, info, null );
+    }
+
+    public <T> Future<T> submitTask( final Callable<T> task, final String info, final TaskIntent intent )
+    {
+        printTask( task, "C/" + intent, info );
+        return submit( task, info, intent );
     }
 
     public <T> Future<T> submitTask( final GraphCallable<T> callable, final String info )
     {
         printTask( callable, "GC", info );
         TaskWrapper<T> wrapped = new TaskWrapper<T>( callable );
-        return executor.submit( wrapped );
+        return submit( wrapped, info, null );
+    }
+
+    public <T> Future<T> submitTask( final GraphCallable<T> callable, final String info, final TaskIntent intent )
+    {
+        printTask( callable, "GC/" + intent, info );
+        TaskWrapper<T> wrapped = new TaskWrapper<T>( callable );
+        return submit( wrapped, info, intent );
     }
 
     public Future<?> submitTask( final Runnable runnable, final String info )
     {
         printTask( runnable, "R", info );
-        return executor.submit( runnable );
+        return submit( Executors.callable( runnable ), info, null );
+    }
+
+    public Future<?> submitTask( final Runnable runnable, final String info, final TaskIntent intent )
+    {
+        printTask( runnable, "R/" + intent, info );
+        return submit( Executors.callable( runnable ), info, intent );
     }
 
     public Future<?> submitTask( final GraphRunnable runnable, final String info )
     {
         printTask( runnable, "GR", info );
         RunnableWrapper wrapped = new RunnableWrapper( runnable, info );
-        return executor.submit( wrapped );
+        return submit( Executors.callable( wrapped ), info, null );
+    }
+
+    public Future<?> submitTask( final GraphRunnable runnable, final String info, final TaskIntent intent )
+    {
+        printTask( runnable, "GR/" + intent, info );
+        RunnableWrapper wrapped = new RunnableWrapper( runnable, info );
+        return submit( Executors.callable( wrapped ), info, intent );
     }
 
     /**
@@ -388,7 +808,7 @@ public class GraphDbServiceManager
     public void submitDisplayTask( final Runnable runnable, final String info )
     {
         DisplayRunnable wrapped = new DisplayRunnable( runnable, info );
-        executor.submit( wrapped );
+        enqueue( executor, Executors.callable( wrapped ), info, TaskMetrics.Lane.WRITER );
     }
 
     public void executeTask( final GraphRunnable runnable, final String info )
@@ -410,6 +830,35 @@ public class GraphDbServiceManager
         {
             executor.shutdown();
         }
+        if ( !readExecutor.isShutdown() )
+        {
+            readExecutor.shutdown();
+        }
+        if ( !cursorExecutor.isShutdown() )
+        {
+            cursorExecutor.shutdown();
+        }
+        metrics.unregister();
+    }
+
+    /**
+     * Get the cache of traversal results for the current database.
+     * 
+     * @return the traversal cache
+     */
+    public TraversalCache getTraversalCache()
+    {
+        return traversalCache;
+    }
+
+    /**
+     * Get the timings of the tasks run by this manager.
+     * 
+     * @return the task metrics
+     */
+    public TaskMetrics getTaskMetrics()
+    {
+        return metrics;
     }
 
     public boolean isRunning()
@@ -488,7 +937,8 @@ public class GraphDbServiceManager
     }
 
     /**
-     * ExecuteCypher query.
+     * Execute a Cypher query. The rows are not read until they are fetched
+     * from the returned result set, page by page.
      * 
      * @param cypherSql
      * @return CypherResultSet
@@ -496,106 +946,192 @@ public class GraphDbServiceManager
      */
     public CypherResultSet executeCypher( final String cypherSql ) throws Exception
     {
-        return submitTask( new GraphCallable<CypherResultSet>()
+        return executeCypher( cypherSql, Collections.<String, Object>emptyMap() );
+    }
+
+    /**
+     * Execute a parameterized Cypher query. Passing values as parameters
+     * instead of literals lets repeated queries reuse their plan.
+     * 
+     * @param cypherSql the query, referring to parameters as <code>{name}</code>
+     * @param parameters the parameter values
+     * @return CypherResultSet
+     * @throws Exception
+     */
+    public CypherResultSet executeCypher( final String cypherSql, final Map<String, Object> parameters )
+            throws Exception
+    {
+        CypherCursor cursor = openCypherCursor( cypherSql, parameters );
+        String message = null;
+        if ( !isRemote() )
         {
-            @Override
-            public CypherResultSet call( GraphDatabaseService graphDb )
+            message = ( cursor.isRepeatedQuery() ? "Repeated query text" : "New query text" ) + " ("
+                      + Math.round( getRepeatedQueryRate() * 100 ) + "% repeated)";
+        }
+        return new CypherResultSet( cursor, message );
+    }
+
+    /**
+     * Get the share of queries run on the embedded database since it was
+     * started that repeated the text of a recent query. Those are the queries
+     * the engine may have a cached plan for, the engine itself doesn't tell.
+     * 
+     * @return rate between 0 and 1, 0 for a remote database
+     */
+    public double getRepeatedQueryRate()
+    {
+        GraphDbLifecycle current = lifecycle;
+        if ( current == null )
+        {
+            return 0;
+        }
+        long repeated = current.getRepeatedQueries();
+        long total = repeated + current.getNewQueries();
+        return total == 0 ? 0 : (double) repeated / total;
+    }
+
+    public CypherCursor openCypherCursor( final String cypherSql ) throws Exception
+    {
+        return openCypherCursor( cypherSql, Collections.<String, Object>emptyMap() );
+    }
+
+    /**
+     * Open a cursor over the result of a Cypher query. Read queries get a
+     * cursor lane and a transaction of their own for as long as the cursor is
+     * open, and wait for another cursor to be closed when all cursor lanes
+     * are taken. Updating queries (and reads that need to see uncommitted
+     * changes) run on the writer lane. The cursor has to be closed unless
+     * it's read to the end.
+     * 
+     * @param cypherSql the query
+     * @param parameters the parameter values
+     * @return cursor positioned before the first row
+     * @throws Exception
+     */
+    public CypherCursor openCypherCursor( final String cypherSql, final Map<String, Object> parameters )
+            throws Exception
+    {
+        if ( !isRunning() )
+        {
+            throw new RuntimeException( "Please start the graphdb." );
+        }
+        final GraphDbLifecycle current = lifecycle;
+        boolean write = isUpdatingQuery( cypherSql );
+        if ( write && !isReadOnlyMode() )
+        {
+            uncommittedWrites = true;
+            traversalCache.invalidate();
+        }
+        // over REST the connection is held by the cursor, so it can be closed
+        // to abort the query
+        final RestCypherStream stream = isRemote() ? new RestCypherStream( current.restApi(),
+                currentAlias.getUri(), currentAlias.getUserName(), currentAlias.getPassword(), cypherSql,
+                parameters ) : null;
+        CypherCursor cursor;
+        if ( write || uncommittedWrites )
+        {
+            cursor = new CypherCursor( this, executor, WRITER_LANE, false, false );
+        }
+        else
+        {
+            String laneName = CURSOR_LANE + "-" + cursorCount.incrementAndGet();
+            CursorSession session = new CursorSession( laneName );
+            cursorExecutor.execute( session );
+            cursor = new CypherCursor( this, session, laneName, true, !isRemote() );
+        }
+        printTask( cursor, write ? "CC/WRITE" : "CC/READ", "open cypher cursor" );
+        if ( !isRemote() )
+        {
+            cursor.setRepeatedQuery( current.recordQuery( cypherSql ) );
+        }
+        openCursors.add( cursor );
+        try
+        {
+            cursor.open( current.graphDb(), new CypherCursor.ResultOpener()
             {
-                if ( !isRunning() )
-                {
-                    throw new RuntimeException( "Please start the graphdb." );
-                }
-                final String cypherQuery = cypherSql.replace( '\"', '\'' ).replace( '\n', ' ' );
-                String message = null;
-                Iterator<Map<String, Object>> iterator = null;
-                List<String> columns = new ArrayList<String>();
-                //
-                if ( currentAlias.getConnectionMode() != ConnectionMode.REMOTE )
+                @Override
+                public Iterator<Map<String, Object>> open( final GraphDatabaseService graphDb,
+                        final List<String> columns ) throws IOException
                 {
-                    ExecutionEngine engine = new ExecutionEngine( graphDb );
-                    ExecutionResult result = engine.execute( cypherQuery );
-                    // message = result.toString().substring( result.toString().lastIndexOf( "+" ) + 1 ).trim();
-                    columns = result.columns();
-                    iterator = result.iterator();
-                }
-                else if ( currentAlias.getConnectionMode() == ConnectionMode.REMOTE )
-                {
-                    Iterable<Map<String, Object>> execute = new RestCypherQueryEngine(( (RestGraphDatabase) graphDb ).getRestAPI()).query(cypherQuery,
-                            new HashMap<String, Object>() );
-                    iterator = execute.iterator();
+                    if ( stream != null )
+                    {
+                        stream.open( columns );
+                        return stream;
+                    }
+                    ExecutionResult result = current.executionEngine().execute( cypherSql, parameters );
+                    columns.addAll( result.columns() );
+                    return result.iterator();
                 }
 
-                final LinkedList<Map<String, Object>> resultList = new LinkedList<Map<String, Object>>();
-                while ( iterator.hasNext() )
+                @Override
+                public void abort()
                 {
-                    Map<String, Object> resultMap = iterator.next();
-                    LinkedHashMap<String, Object> newMap = new LinkedHashMap<String, Object>();
-                    Set<Entry<String, Object>> entrySet = resultMap.entrySet();
-                    for ( Entry<String, Object> entry : entrySet )
+                    if ( stream != null )
                     {
-                        if ( !columns.contains( entry.getKey() ) )
-                        {
-                            columns.add( entry.getKey() );
-                        } 
-                        Object objectNode = entry.getValue();
-                        if ( objectNode == null )
-                        {
-                            continue;
-                        }
-
-                        Object obj = null;
-                        if ( objectNode instanceof Node )
-                        {
-                            Node node = (Node) objectNode;
-                            NodeWrapper oMap = ApplicationUtil.extractToNodeWrapper( node, true );
-                            obj = oMap;
-                        }
-                        else
-                        {
-                            obj = objectNode;
-                        }
-                        newMap.put( entry.getKey(), obj );
+                        stream.abort();
                     }
-                    resultList.add( newMap );
                 }
-                return new CypherResultSet( resultList, columns, message );
-            }
+            } );
+        }
+        catch ( Exception e )
+        {
+            cursor.close();
+            throw e;
+        }
+        return cursor;
+    }
 
-            private List<String> getColumns( String cypherQuery )
-            {
-                int indexOf = cypherQuery.toLowerCase().indexOf( "return" );
-                String[] columns = cypherQuery.substring( indexOf + 7 ).split( "," );
-                return Arrays.asList( columns );
-            }
+    /**
+     * Check if the current thread belongs to a lane.
+     * 
+     * @param laneName name of the lane
+     * @return true if running on the lane
+     */
+    static boolean isOnLane( final String laneName )
+    {
+        return laneName.equals( LANE_THREAD.get() );
+    }
 
-        }, "execute cypher query" ).get();
+    void cursorClosed( final CypherCursor cursor )
+    {
+        openCursors.remove( cursor );
+        if ( uncommittedWrites )
+        {
+            // an updating query may have changed the graph while being read
+            traversalCache.invalidate();
+        }
     }
 
-    
     /**
-     * getAllNodes
-     * 
-     * @return List<Map<String, Object>>
-     * @throws Exception
+     * Close the cursors still open, releasing their transactions. The cursors
+     * are cancelled first, so closing doesn't wait for their lanes; a cursor
+     * lane may still be waiting for a thread.
      */
-    public List<NodeWrapper> getAllNodes() throws Exception
+    private void closeCursors()
     {
-        return submitTask( new GraphCallable<List<NodeWrapper>>()
+        CypherCursor[] cursors = openCursors.toArray( new CypherCursor[0] );
+        for ( CypherCursor cursor : cursors )
         {
-            @Override
-            public List<NodeWrapper> call( GraphDatabaseService graphDb )
-            {
-                final LinkedList<NodeWrapper> list = new LinkedList<NodeWrapper>();
-                Iterable<Node> iterable =  graphDb.getAllNodes();
-                for ( Node node : iterable )
-                {
-                    NodeWrapper nodeWrapper = ApplicationUtil.extractToNodeWrapper( node, true );
-                    list.add( nodeWrapper );
-                }
-                return list;
-            }
+            cursor.cancel();
+        }
+        for ( CypherCursor cursor : cursors )
+        {
+            cursor.close();
+        }
+    }
 
-        }, "get all nodes" ).get();
+    /**
+     * Check if a Cypher query contains clauses that modify the database.
+     * Words in strings and names, like <code>n.set</code> or
+     * <code>'delete'</code>, don't count.
+     * 
+     * @param cypherSql the query
+     * @return true if the query may write
+     */
+    private static boolean isUpdatingQuery( final String cypherSql )
+    {
+        String clauses = NOT_A_CLAUSE.matcher( cypherSql ).replaceAll( " " );
+        return UPDATING_CLAUSE.matcher( clauses ).find();
     }
 
     /**
@@ -661,9 +1197,9 @@ public class GraphDbServiceManager
 
     public Node getAnyReferenceNode() throws Exception
     {
-        List<Map<String, Object>> result = executeCypher( FIND_REFERENCE_NODE_WITH_RELS_STATEMENT ).getIterator();
+        List<Map<String, Object>> result = fetchFirstRow( FIND_REFERENCE_NODE_WITH_RELS_STATEMENT );
         if ( result.isEmpty() ) {
-            result = executeCypher( FIND_REFERENCE_NODE_STATEMENT ).getIterator();
+            result = fetchFirstRow( FIND_REFERENCE_NODE_STATEMENT );
         }
         if ( result.isEmpty() ) {
             return null;
@@ -672,6 +1208,19 @@ public class GraphDbServiceManager
         return getNodeById( id );
     }
 
+    private List<Map<String, Object>> fetchFirstRow( final String cypherSql ) throws Exception
+    {
+        CypherCursor cursor = openCypherCursor( cypherSql );
+        try
+        {
+            return cursor.fetch( 1 );
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
     public Node getNodeById( final long id )
     {
         return executeTask( new GraphCallable<Node>()
@@ -690,6 +1239,6 @@ public class GraphDbServiceManager
 
     public boolean isRemote()
     {
-        return currentAlias.getConnectionMode() == ConnectionMode.REMOTE;
+        return currentAlias != null && currentAlias.getConnectionMode() == ConnectionMode.REMOTE;
     }
 }
@@ -116,7 +116,7 @@ public class GraphDbUtil
                             createTheRelationship( sourceNodes, destNodes,
                                     relType, graphView, graphDb );
                         }
-                    }, "create relationship" )
+                    }, "create relationship", TaskIntent.WRITE )
                     .get();
         }
         catch ( Exception e )
@@ -233,7 +233,7 @@ public class GraphDbUtil
                             deleteThePropertyContainers( containers, graphView,
                                     graphDb );
                         }
-                    }, "delete property containers" )
+                    }, "delete property containers", TaskIntent.WRITE )
                     .get();
         }
         catch ( Exception e )
@@ -280,6 +280,7 @@ public class GraphDbUtil
                     }
                     iter.remove(); // remove from list to not mess up the list
                     node.delete();
+                    graphView.forgetPosition( node.getId() );
                 }
                 else if ( container instanceof Relationship )
                 {
@@ -484,7 +485,7 @@ public class GraphDbUtil
                         {
                             container.removeProperty( key );
                         }
-                    }, "removing a property" );
+                    }, "removing a property", TaskIntent.WRITE );
         }
         catch ( Exception e )
         {
@@ -577,7 +578,7 @@ public class GraphDbUtil
                         {
                             container.setProperty( key, value );
                         }
-                    }, "set property" )
+                    }, "set property", TaskIntent.WRITE )
                     .get();
         }
         catch ( Exception e )
@@ -620,7 +621,7 @@ public class GraphDbUtil
                                     container.getProperty( key ) );
                             container.removeProperty( key );
                         }
-                    }, "rename property" )
+                    }, "rename property", TaskIntent.WRITE )
                     .get();
         }
         catch ( Exception e )
@@ -644,7 +645,7 @@ public class GraphDbUtil
                         {
                             return container.getProperty( key, null );
                         }
-                    }, "get property" )
+                    }, "get property", TaskIntent.READ )
                     .get();
         }
         catch ( Exception e )
@@ -673,7 +674,7 @@ public class GraphDbUtil
                             }
                             return props;
                         }
-                    }, "get properties" )
+                    }, "get properties", TaskIntent.READ )
                     .get();
         }
         catch ( Exception e )
@@ -705,7 +706,7 @@ public class GraphDbUtil
                             }
                             return props;
                         }
-                    }, "get properties" )
+                    }, "get properties", TaskIntent.READ )
                     .get();
         }
         catch ( Exception e )
@@ -0,0 +1,121 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+import java.text.NumberFormat;
+
+import org.neo4j.graphdb.Node;
+
+/**
+ * Stands in for the relationships of a node that a traversal didn't follow,
+ * because the node has more of them than the configured limit. Shown in the
+ * graph as a single node connected to the node the relationships belong to.
+ */
+public class HiddenRelationships
+{
+    /**
+     * The connection between a node and its hidden relationships.
+     */
+    public static class Link
+    {
+        private final HiddenRelationships hidden;
+
+        private Link( final HiddenRelationships hidden )
+        {
+            this.hidden = hidden;
+        }
+
+        public HiddenRelationships getHiddenRelationships()
+        {
+            return hidden;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hidden.hashCode();
+        }
+
+        @Override
+        public boolean equals( final Object obj )
+        {
+            return obj instanceof Link && hidden.equals( ( (Link) obj ).hidden );
+        }
+
+        @Override
+        public String toString()
+        {
+            return "";
+        }
+    }
+
+    private final Node node;
+    private final long count;
+    private final Link link = new Link( this );
+
+    public HiddenRelationships( final Node node, final long count )
+    {
+        this.node = node;
+        this.count = count;
+    }
+
+    /**
+     * The node the hidden relationships belong to.
+     */
+    public Node getNode()
+    {
+        return node;
+    }
+
+    /**
+     * Number of relationships not followed.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    public Link getLink()
+    {
+        return link;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        long id = node.getId();
+        return (int) ( id ^ ( id >>> 32 ) );
+    }
+
+    /**
+     * There is at most one of these for each node, so it stays the same
+     * element in the viewer when the count changes.
+     */
+    @Override
+    public boolean equals( final Object obj )
+    {
+        return obj instanceof HiddenRelationships && node.getId() == ( (HiddenRelationships) obj ).node.getId();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "+" + NumberFormat.getIntegerInstance().format( count ) + " more";
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+/**
+ * Records durations in log-linear buckets: every power of two is split into
+ * eight buckets, so percentiles are accurate to within 12.5% while the
+ * memory footprint stays fixed no matter how many values are recorded.
+ */
+class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+
+    /**
+     * Record a duration.
+     * 
+     * @param micros duration in microseconds
+     */
+    synchronized void record( final long micros )
+    {
+        long value = Math.max( 0, micros );
+        counts[bucketOf( value )]++;
+        count++;
+        total += value;
+        max = Math.max( max, value );
+    }
+
+    synchronized long getCount()
+    {
+        return count;
+    }
+
+    synchronized long getMax()
+    {
+        return max;
+    }
+
+    synchronized long getMean()
+    {
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * Get the value below which the given share of the recorded durations
+     * fall.
+     * 
+     * @param quantile between 0 and 1
+     * @return duration in microseconds
+     */
+    synchronized long getPercentile( final double quantile )
+    {
+        if ( count == 0 )
+        {
+            return 0;
+        }
+        long rank = Math.max( 1, (long) Math.ceil( quantile * count ) );
+        long seen = 0;
+        for ( int bucket = 0; bucket < BUCKETS; bucket++ )
+        {
+            seen += counts[bucket];
+            if ( seen >= rank )
+            {
+                return Math.min( upperBound( bucket ), max );
+            }
+        }
+        return max;
+    }
+
+    private static int bucketOf( final long value )
+    {
+        if ( value < SUB_BUCKETS )
+        {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros( value );
+        int sub = (int) ( value >>> ( magnitude - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 );
+        return ( magnitude - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound( final int bucket )
+    {
+        if ( bucket < SUB_BUCKETS )
+        {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ( ( (long) SUB_BUCKETS + sub + 1 ) << ( magnitude - SUB_BUCKET_BITS ) ) - 1;
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestEntityExtractor;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * The rows of a Cypher query run over the REST API, read as the server
+ * streams them. The query engine of the REST binding keeps its connection to
+ * itself, this class holds on to it so a query can be aborted by closing the
+ * connection from another thread.
+ */
+class RestCypherStream implements ResourceIterator<Map<String, Object>>
+{
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    private final RestEntityExtractor extractor;
+    private final HttpURLConnection connection;
+    private final String authorization;
+    private final String body;
+    private final List<String> columns = new ArrayList<String>();
+    private JsonReader reader;
+    private Map<String, Object> next = null;
+    private volatile boolean aborted = false;
+
+    /**
+     * Prepare a query, nothing is sent yet.
+     * 
+     * @param restApi API of the remote database, to turn nodes and
+     *            relationships into entities
+     * @param uri URI of the remote database
+     * @param userName user name, may be null
+     * @param password password, may be null
+     * @param cypherSql the query
+     * @param parameters the parameter values
+     * @throws IOException
+     */
+    RestCypherStream( final RestAPI restApi, final String uri, final String userName, final String password,
+            final String cypherSql, final Map<String, Object> parameters ) throws IOException
+    {
+        extractor = new RestEntityExtractor( restApi );
+        connection = (HttpURLConnection) new URL( uri.endsWith( "/" ) ? uri + "cypher" : uri + "/cypher" )
+                .openConnection();
+        authorization = userName == null || userName.isEmpty() ? null : "Basic "
+            + DatatypeConverter.printBase64Binary( ( userName + ":" + ( password == null ? "" : password ) )
+                    .getBytes( UTF8 ) );
+        Map<String, Object> request = new HashMap<String, Object>();
+        request.put( "query", cypherSql );
+        request.put( "params", parameters );
+        body = new Gson().toJson( request );
+    }
+
+    /**
+     * Send the query and read up to the first row.
+     * 
+     * @param resultColumns receives the column names
+     * @throws IOException
+     */
+    void open( final List<String> resultColumns ) throws IOException
+    {
+        if ( aborted )
+        {
+            throw new IOException( "The query was aborted." );
+        }
+        connection.setRequestMethod( "POST" );
+        connection.setDoOutput( true );
+        connection.setRequestProperty( "Content-Type", "application/json" );
+        connection.setRequestProperty( "Accept", "application/json" );
+        connection.setRequestProperty( "X-Stream", "true" );
+        if ( authorization != null )
+        {
+            connection.setRequestProperty( "Authorization", authorization );
+        }
+        OutputStream out = connection.getOutputStream();
+        try
+        {
+            out.write( body.getBytes( UTF8 ) );
+        }
+        finally
+        {
+            out.close();
+        }
+        if ( connection.getResponseCode() >= 400 )
+        {
+            throw new IOException( errorMessage() );
+        }
+        reader = new JsonReader( new InputStreamReader( connection.getInputStream(), UTF8 ) );
+        reader.beginObject();
+        while ( reader.hasNext() )
+        {
+            String name = reader.nextName();
+            if ( "columns".equals( name ) )
+            {
+                reader.beginArray();
+                while ( reader.hasNext() )
+                {
+                    columns.add( reader.nextString() );
+                }
+                reader.endArray();
+                resultColumns.addAll( columns );
+            }
+            else if ( "data".equals( name ) )
+            {
+                reader.beginArray();
+                return;
+            }
+            else
+            {
+                reader.skipValue();
+            }
+        }
+        // no rows at all
+        close();
+    }
+
+    private String errorMessage() throws IOException
+    {
+        InputStream error = connection.getErrorStream();
+        if ( error == null )
+        {
+            return connection.getResponseMessage();
+        }
+        Reader errorReader = new InputStreamReader( error, UTF8 );
+        try
+        {
+            Map<?, ?> response = new Gson().fromJson( errorReader, Map.class );
+            Object message = response == null ? null : response.get( "message" );
+            return message == null ? connection.getResponseMessage() : message.toString();
+        }
+        finally
+        {
+            errorReader.close();
+        }
+    }
+
+    /**
+     * Stop the query from any thread, by closing the connection. A thread
+     * reading rows then gets an exception.
+     */
+    void abort()
+    {
+        aborted = true;
+        connection.disconnect();
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if ( next != null )
+        {
+            return true;
+        }
+        if ( reader == null )
+        {
+            return false;
+        }
+        try
+        {
+            if ( !reader.hasNext() )
+            {
+                close();
+                return false;
+            }
+            Map<String, Object> row = new LinkedHashMap<String, Object>();
+            reader.beginArray();
+            for ( String column : columns )
+            {
+                row.put( column, readValue() );
+            }
+            reader.endArray();
+            next = row;
+            return true;
+        }
+        catch ( IOException e )
+        {
+            close();
+            throw new IllegalStateException( aborted ? "The query was aborted." : e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public Map<String, Object> next()
+    {
+        if ( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+        Map<String, Object> row = next;
+        next = null;
+        return row;
+    }
+
+    /**
+     * Read a value, turning representations of nodes, relationships and
+     * paths into entities. Whole numbers stay whole.
+     */
+    private Object readValue() throws IOException
+    {
+        JsonToken token = reader.peek();
+        switch ( token )
+        {
+        case BEGIN_ARRAY:
+            List<Object> list = new ArrayList<Object>();
+            reader.beginArray();
+            while ( reader.hasNext() )
+            {
+                list.add( readValue() );
+            }
+            reader.endArray();
+            return list;
+        case BEGIN_OBJECT:
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            reader.beginObject();
+            while ( reader.hasNext() )
+            {
+                map.put( reader.nextName(), readValue() );
+            }
+            reader.endObject();
+            return extractor.convertFromRepresentation( map );
+        case NUMBER:
+            String number = reader.nextString();
+            try
+            {
+                return Long.valueOf( number );
+            }
+            catch ( NumberFormatException e )
+            {
+                return Double.valueOf( number );
+            }
+        case BOOLEAN:
+            return reader.nextBoolean();
+        case NULL:
+            reader.nextNull();
+            return null;
+        default:
+            return reader.nextString();
+        }
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Release the connection.
+     */
+    @Override
+    public void close()
+    {
+        next = null;
+        if ( reader == null )
+        {
+            return;
+        }
+        try
+        {
+            reader.close();
+        }
+        catch ( IOException e )
+        {
+            // the connection is gone either way
+        }
+        reader = null;
+    }
+}
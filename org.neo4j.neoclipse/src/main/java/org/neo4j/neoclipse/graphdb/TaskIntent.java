@@ -0,0 +1,37 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+/**
+ * What a task submitted to the {@link GraphDbServiceManager} intends to do
+ * with the database. Decides which lane the task is executed on.
+ */
+public enum TaskIntent
+{
+    /**
+     * The task only reads from the database and can run concurrently with
+     * other readers.
+     */
+    READ,
+    /**
+     * The task modifies the database through the long-running transaction and
+     * has to run on the serialized writer lane.
+     */
+    WRITE;
+}
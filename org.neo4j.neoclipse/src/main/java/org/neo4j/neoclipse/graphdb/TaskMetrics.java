@@ -0,0 +1,326 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Times the tasks run by the {@link GraphDbServiceManager}. Every task is
+ * timed from submission to start and from start to finish, aggregated per
+ * task label, next to the depth of the lane queues and throughput counters.
+ */
+public class TaskMetrics implements TaskMetricsMXBean
+{
+    /**
+     * Name of the MBean.
+     */
+    public static final String OBJECT_NAME = "org.neo4j.neoclipse:type=TaskMetrics";
+
+    /**
+     * The queue a task waits in.
+     */
+    enum Lane
+    {
+        WRITER,
+        READER;
+    }
+
+    /**
+     * Timings of one task label.
+     */
+    private static class LabelMetrics
+    {
+        private final LatencyHistogram wait = new LatencyHistogram();
+        private final LatencyHistogram run = new LatencyHistogram();
+        private final AtomicLong failures = new AtomicLong();
+    }
+
+    private final GraphDbServiceManager manager;
+    private final ConcurrentMap<String, LabelMetrics> labels = new ConcurrentHashMap<String, LabelMetrics>();
+    private final AtomicInteger writerQueue = new AtomicInteger();
+    private final AtomicInteger readerQueue = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long since = System.nanoTime();
+    private ObjectName registeredName = null;
+
+    TaskMetrics( final GraphDbServiceManager manager )
+    {
+        this.manager = manager;
+    }
+
+    /**
+     * Wrap a task so it gets timed. Has to be called right before the task is
+     * handed to its lane, as the task is counted as queued from here on; call
+     * {@link #rejected(Lane)} if the lane doesn't take it.
+     * 
+     * @param task the task
+     * @param label short description of the task
+     * @param lane the lane the task is queued on, null if it runs right away
+     * @return the timed task
+     */
+    <T> Callable<T> timed( final Callable<T> task, final String label, final Lane lane )
+    {
+        final long enqueued = System.nanoTime();
+        final AtomicInteger queue = queueOf( lane );
+        if ( queue != null )
+        {
+            queue.incrementAndGet();
+        }
+        return new Callable<T>()
+        {
+            @Override
+            public T call() throws Exception
+            {
+                long started = System.nanoTime();
+                dequeue( queue );
+                running.incrementAndGet();
+                LabelMetrics metrics = metricsOf( label );
+                metrics.wait.record( TimeUnit.NANOSECONDS.toMicros( started - enqueued ) );
+                boolean success = false;
+                try
+                {
+                    T result = task.call();
+                    success = true;
+                    return result;
+                }
+                finally
+                {
+                    metrics.run.record( TimeUnit.NANOSECONDS.toMicros( System.nanoTime() - started ) );
+                    running.decrementAndGet();
+                    completed.incrementAndGet();
+                    if ( !success )
+                    {
+                        metrics.failures.incrementAndGet();
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Stop counting a task as queued, as its lane didn't take it.
+     * 
+     * @param lane the lane the task was timed for
+     */
+    void rejected( final Lane lane )
+    {
+        dequeue( queueOf( lane ) );
+    }
+
+    /**
+     * Start counting queued tasks from zero, when the database is started.
+     * Tasks dropped from a queue without running, like those cancelled
+     * before they started, would otherwise be counted forever.
+     */
+    void resetQueues()
+    {
+        writerQueue.set( 0 );
+        readerQueue.set( 0 );
+    }
+
+    /**
+     * Count a task as no longer queued. Never goes below zero, as tasks
+     * queued before a reset may still be taken off the queue.
+     */
+    private static void dequeue( final AtomicInteger queue )
+    {
+        if ( queue == null )
+        {
+            return;
+        }
+        int depth;
+        do
+        {
+            depth = queue.get();
+            if ( depth == 0 )
+            {
+                return;
+            }
+        }
+        while ( !queue.compareAndSet( depth, depth - 1 ) );
+    }
+
+    private AtomicInteger queueOf( final Lane lane )
+    {
+        if ( lane == Lane.WRITER )
+        {
+            return writerQueue;
+        }
+        if ( lane == Lane.READER )
+        {
+            return readerQueue;
+        }
+        return null;
+    }
+
+    private LabelMetrics metricsOf( final String label )
+    {
+        String key = label == null ? "(unnamed)" : label;
+        LabelMetrics metrics = labels.get( key );
+        if ( metrics == null )
+        {
+            LabelMetrics created = new LabelMetrics();
+            metrics = labels.putIfAbsent( key, created );
+            if ( metrics == null )
+            {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    @Override
+    public int getWriterQueueDepth()
+    {
+        return writerQueue.get();
+    }
+
+    @Override
+    public int getReaderQueueDepth()
+    {
+        return readerQueue.get();
+    }
+
+    @Override
+    public int getRunningTasks()
+    {
+        return running.get();
+    }
+
+    @Override
+    public long getCompletedTasks()
+    {
+        return completed.get();
+    }
+
+    @Override
+    public long getFailedTasks()
+    {
+        return failed.get();
+    }
+
+    @Override
+    public double getThroughput()
+    {
+        double seconds = ( System.nanoTime() - since ) / 1e9;
+        return seconds <= 0 ? 0 : completed.get() / seconds;
+    }
+
+    @Override
+    public double getRepeatedQueryRate()
+    {
+        return manager.getRepeatedQueryRate();
+    }
+
+    @Override
+    public List<TaskStatistics> getTaskStatistics()
+    {
+        List<TaskStatistics> statistics = new ArrayList<TaskStatistics>( labels.size() );
+        for ( Entry<String, LabelMetrics> entry : labels.entrySet() )
+        {
+            LabelMetrics metrics = entry.getValue();
+            statistics.add( new TaskStatistics( entry.getKey(), metrics.run.getCount(), metrics.failures.get(),
+                    metrics.wait.getPercentile( 0.5 ), metrics.wait.getPercentile( 0.99 ), metrics.wait.getMax(),
+                    metrics.run.getPercentile( 0.5 ), metrics.run.getPercentile( 0.99 ), metrics.run.getMax(),
+                    metrics.run.getMean() ) );
+        }
+        Collections.sort( statistics, new Comparator<TaskStatistics>()
+        {
+            @Override
+            public int compare( final TaskStatistics first, final TaskStatistics second )
+            {
+                long difference = second.getRunTotal() - first.getRunTotal();
+                return difference < 0 ? -1 : ( difference > 0 ? 1 : 0 );
+            }
+        } );
+        return statistics;
+    }
+
+    @Override
+    public void reset()
+    {
+        labels.clear();
+        completed.set( 0 );
+        failed.set( 0 );
+        since = System.nanoTime();
+    }
+
+    /**
+     * Make the metrics available to JMX clients.
+     */
+    synchronized void register()
+    {
+        if ( registeredName != null )
+        {
+            return;
+        }
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( OBJECT_NAME );
+            if ( !server.isRegistered( name ) )
+            {
+                server.registerMBean( this, name );
+                registeredName = name;
+            }
+        }
+        catch ( JMException e )
+        {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized void unregister()
+    {
+        if ( registeredName == null )
+        {
+            return;
+        }
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean( registeredName );
+        }
+        catch ( JMException e )
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            registeredName = null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+import java.util.List;
+
+/**
+ * Management interface of the task metrics, registered with the platform
+ * MBean server as {@value TaskMetrics#OBJECT_NAME}.
+ */
+public interface TaskMetricsMXBean
+{
+    /**
+     * Tasks waiting for the writer lane.
+     */
+    int getWriterQueueDepth();
+
+    /**
+     * Tasks waiting for a reader lane.
+     */
+    int getReaderQueueDepth();
+
+    /**
+     * Tasks currently running on any lane.
+     */
+    int getRunningTasks();
+
+    /**
+     * Tasks finished since the metrics were last reset.
+     */
+    long getCompletedTasks();
+
+    /**
+     * Tasks that finished by throwing since the metrics were last reset.
+     */
+    long getFailedTasks();
+
+    /**
+     * Finished tasks per second since the metrics were last reset.
+     */
+    double getThroughput();
+
+    /**
+     * Share of Cypher queries on the embedded database that repeated the text
+     * of a recent query.
+     */
+    double getRepeatedQueryRate();
+
+    /**
+     * Timings per task label, busiest first.
+     */
+    List<TaskStatistics> getTaskStatistics();
+
+    /**
+     * Forget everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A snapshot of the timings recorded for one task label. All durations are
+ * in microseconds. Wait time is measured from submission until the task
+ * starts running, run time from start to finish.
+ */
+public class TaskStatistics
+{
+    private final String label;
+    private final long count;
+    private final long failures;
+    private final long waitP50;
+    private final long waitP99;
+    private final long waitMax;
+    private final long runP50;
+    private final long runP99;
+    private final long runMax;
+    private final long runMean;
+
+    @ConstructorProperties( { "label", "count", "failures", "waitP50", "waitP99", "waitMax", "runP50", "runP99",
+            "runMax", "runMean" } )
+    public TaskStatistics( final String label, final long count, final long failures, final long waitP50,
+            final long waitP99, final long waitMax, final long runP50, final long runP99, final long runMax,
+            final long runMean )
+    {
+        this.label = label;
+        this.count = count;
+        this.failures = failures;
+        this.waitP50 = waitP50;
+        this.waitP99 = waitP99;
+        this.waitMax = waitMax;
+        this.runP50 = runP50;
+        this.runP99 = runP99;
+        this.runMax = runMax;
+        this.runMean = runMean;
+    }
+
+    /**
+     * The description the task was submitted with.
+     */
+    public String getLabel()
+    {
+        return label;
+    }
+
+    /**
+     * Number of finished tasks.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Number of tasks that finished by throwing.
+     */
+    public long getFailures()
+    {
+        return failures;
+    }
+
+    public long getWaitP50()
+    {
+        return waitP50;
+    }
+
+    public long getWaitP99()
+    {
+        return waitP99;
+    }
+
+    public long getWaitMax()
+    {
+        return waitMax;
+    }
+
+    public long getRunP50()
+    {
+        return runP50;
+    }
+
+    public long getRunP99()
+    {
+        return runP99;
+    }
+
+    public long getRunMax()
+    {
+        return runMax;
+    }
+
+    public long getRunMean()
+    {
+        return runMean;
+    }
+
+    /**
+     * Total time spent running tasks with this label, the best single
+     * indicator of what is keeping the lanes busy.
+     */
+    public long getRunTotal()
+    {
+        return runMean * count;
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.graphdb;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * Keeps the results of recent traversals, so showing a recently visited node
+ * again doesn't need another traversal. Results are kept as node and
+ * relationship ids only, and are thrown away as soon as the database may have
+ * changed.
+ */
+public class TraversalCache
+{
+    /**
+     * Number of traversal results to keep.
+     */
+    private static final int CAPACITY = 32;
+
+    /**
+     * What a traversal result depends on.
+     */
+    static class Key
+    {
+        private final long startId;
+        private final int depth;
+        private final SortedSet<String> filter;
+        private final int nodeLimit;
+        private final int relationshipLimit;
+
+        Key( final long startId, final int depth, final SortedSet<String> filter, final int nodeLimit,
+                final int relationshipLimit )
+        {
+            this.startId = startId;
+            this.depth = depth;
+            this.filter = filter;
+            this.nodeLimit = nodeLimit;
+            this.relationshipLimit = relationshipLimit;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = (int) ( startId ^ ( startId >>> 32 ) );
+            result = 31 * result + depth;
+            result = 31 * result + filter.hashCode();
+            result = 31 * result + nodeLimit;
+            return 31 * result + relationshipLimit;
+        }
+
+        @Override
+        public boolean equals( final Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof Key ) )
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return startId == other.startId && depth == other.depth && nodeLimit == other.nodeLimit
+                   && relationshipLimit == other.relationshipLimit && filter.equals( other.filter );
+        }
+    }
+
+    /**
+     * A traversal result.
+     */
+    static class Entry
+    {
+        /**
+         * Ids of the nodes found, ring by ring.
+         */
+        final long[] nodeIds;
+        /**
+         * Number of nodes found at each depth.
+         */
+        final int[] ringSizes;
+        final boolean truncated;
+        /**
+         * Relationships between the nodes found: the id, start node id and
+         * end node id of each, one relationship after the other.
+         */
+        final long[] relationships;
+        /**
+         * Nodes with relationships that weren't followed, and how many.
+         */
+        final long[] hiddenIds;
+        final long[] hiddenCounts;
+
+        Entry( final long[] nodeIds, final int[] ringSizes, final boolean truncated, final long[] relationships,
+                final long[] hiddenIds, final long[] hiddenCounts )
+        {
+            this.nodeIds = nodeIds;
+            this.ringSizes = ringSizes;
+            this.truncated = truncated;
+            this.relationships = relationships;
+            this.hiddenIds = hiddenIds;
+            this.hiddenCounts = hiddenCounts;
+        }
+    }
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>( CAPACITY, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<Key, Entry> eldest )
+        {
+            return size() > CAPACITY;
+        }
+    };
+    /**
+     * Changes on every invalidation, so results computed from an older
+     * state of the database don't get cached.
+     */
+    private long generation = 0;
+
+    synchronized Entry get( final Key key )
+    {
+        return entries.get( key );
+    }
+
+    /**
+     * Get the current generation, to pass to {@link #put} once the traversal
+     * is done, or to check later whether the database changed since.
+     */
+    public synchronized long generation()
+    {
+        return generation;
+    }
+
+    /**
+     * Cache a traversal result, unless the cache was invalidated since the
+     * traversal started.
+     */
+    synchronized void put( final Key key, final Entry entry, final long startGeneration )
+    {
+        if ( startGeneration == generation )
+        {
+            entries.put( key, entry );
+        }
+    }
+
+    /**
+     * Forget all results, the database may have changed.
+     */
+    public synchronized void invalidate()
+    {
+        entries.clear();
+        generation++;
+    }
+}
@@ -26,9 +26,47 @@ import org.neo4j.neoclipse.reltype.DirectedRelationship;
 
 public interface TraversalStrategy
 {
+    /**
+     * Find the nodes around a node.
+     * 
+     * @param relationshipLimit maximum number of relationships of one type
+     *            and direction to follow from a node, 0 for no limit
+     */
     Collection<Node> getNodes( Node node,
             Collection<? extends DirectedRelationship> directedRels, int depth,
-            int nodeLimit, GraphDbServiceManager gsm );
+            int nodeLimit, int relationshipLimit, GraphDbServiceManager gsm );
+
+    /**
+     * Get the relationships the last call to {@link #getNodes} didn't follow
+     * because of the relationship limit.
+     * 
+     * @return one entry for each node with relationships left out
+     */
+    Collection<HiddenRelationships> getHiddenRelationships();
+
+    /**
+     * Let the next call to {@link #getNodes} build on the previous result if
+     * only the depth changed by one, instead of traversing all over again.
+     */
+    void reuseLastTraversal();
 
     Collection<Relationship> getRelationships( Node start, Node end );
+
+    /**
+     * Get the relationships between two nodes from what the last call to
+     * {@link #getNodes} found, without going to the database.
+     * 
+     * @param start start node
+     * @param end end node
+     * @return the relationships, null if the nodes weren't both found
+     */
+    Collection<Relationship> getKnownRelationships( Node start, Node end );
+
+    /**
+     * Get the pairs of nodes connected by relationships the last call to
+     * {@link #getNodes} found, without going to the database.
+     * 
+     * @return start and end node ids, alternating; empty if not known
+     */
+    long[] getKnownConnections();
 }
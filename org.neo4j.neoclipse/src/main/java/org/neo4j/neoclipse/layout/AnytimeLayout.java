@@ -0,0 +1,43 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.layout;
+
+/**
+ * A layout that improves the positions of a {@link LayoutSnapshot} a step at
+ * a time, so it can be stopped after any step and still leave a usable
+ * picture. Runs on a worker thread, never touches widgets.
+ */
+public interface AnytimeLayout
+{
+    /**
+     * Prepare for laying out the snapshot, called once before the first step.
+     * 
+     * @param snapshot the positions to improve
+     */
+    void init( LayoutSnapshot snapshot );
+
+    /**
+     * Move the nodes of the snapshot one step. Pinned nodes stay where they
+     * are.
+     * 
+     * @return true if the layout has converged and further steps are of no
+     *         use
+     */
+    boolean step();
+}
@@ -0,0 +1,466 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.layout;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.zest.core.widgets.Graph;
+import org.eclipse.zest.core.widgets.GraphNode;
+import org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm;
+import org.eclipse.zest.layouts.dataStructures.InternalNode;
+import org.eclipse.zest.layouts.dataStructures.InternalRelationship;
+import org.neo4j.graphdb.Node;
+import org.neo4j.neoclipse.view.UiHelper;
+
+/**
+ * Zest layout algorithm that returns right away and leaves the work to an
+ * {@link AnytimeLayout} in a background job. The job works on a snapshot of
+ * the shown nodes and relationships and puts the nodes at their current
+ * positions at a fixed frame rate, so the layout can be watched converging.
+ * Nodes the user drags meanwhile stay where they were dropped. A new layout
+ * of the same graph cancels the running one, the job can also be cancelled
+ * from the progress view or by {@link #stop(Graph)}.
+ * <p>
+ * With a {@link PositionCache}, nodes with a remembered position are put
+ * there right away and stay fixed, only the other nodes are laid out, starting
+ * next to a placed neighbour. The final positions are remembered in turn.
+ */
+public abstract class BackgroundLayoutAlgorithm extends AbstractLayoutAlgorithm
+{
+    /**
+     * Time between two published frames, 25 per second.
+     */
+    private static final long FRAME_MILLIS = 40;
+    /**
+     * Distance from a placed node to the new nodes put around it.
+     */
+    private static final float NEW_NODE_DISTANCE = 80f;
+
+    private PositionCache positions = null;
+
+    public BackgroundLayoutAlgorithm( final int styles )
+    {
+        super( styles );
+    }
+
+    /**
+     * Background version of the spring layout.
+     * 
+     * @param styles Zest layout styles
+     * @return the algorithm
+     */
+    public static BackgroundLayoutAlgorithm springLayout( final int styles )
+    {
+        return new BackgroundLayoutAlgorithm( styles )
+        {
+            @Override
+            protected AnytimeLayout createLayout()
+            {
+                return new ForceDirectedLayout();
+            }
+        };
+    }
+
+    /**
+     * Background Barnes-Hut layout, for large graphs.
+     * 
+     * @param styles Zest layout styles
+     * @return the algorithm
+     */
+    public static BackgroundLayoutAlgorithm barnesHutLayout( final int styles )
+    {
+        return new BackgroundLayoutAlgorithm( styles )
+        {
+            @Override
+            protected AnytimeLayout createLayout()
+            {
+                return new BarnesHutLayout();
+            }
+        };
+    }
+
+    /**
+     * Use remembered node positions, or null to lay out all nodes.
+     * 
+     * @param positions the cache of the current database
+     */
+    public void setPositionCache( final PositionCache positions )
+    {
+        this.positions = positions;
+    }
+
+    /**
+     * Create the layout for one run.
+     * 
+     * @return a new layout
+     */
+    protected abstract AnytimeLayout createLayout();
+
+    /**
+     * Cancel the background layout of a graph, if any. The nodes stay where
+     * the last frame put them.
+     * 
+     * @param graph the graph control
+     */
+    public static void stop( final Graph graph )
+    {
+        Job.getJobManager().cancel( graph );
+    }
+
+    @Override
+    protected void applyLayoutInternal( final InternalNode[] entitiesToLayout,
+            final InternalRelationship[] relationshipsToConsider, final double boundsX, final double boundsY,
+            final double boundsWidth, final double boundsHeight )
+    {
+        int n = entitiesToLayout.length;
+        GraphNode[] nodes = new GraphNode[n];
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] width = new float[n];
+        float[] height = new float[n];
+        Map<InternalNode, Integer> index = new HashMap<InternalNode, Integer>( n * 2 );
+        Graph graph = null;
+        for ( int i = 0; i < n; i++ )
+        {
+            InternalNode entity = entitiesToLayout[i];
+            Object data = entity.getLayoutEntity().getGraphData();
+            if ( data instanceof GraphNode )
+            {
+                nodes[i] = (GraphNode) data;
+                graph = nodes[i].getGraphModel();
+            }
+            width[i] = (float) entity.getInternalWidth();
+            height[i] = (float) entity.getInternalHeight();
+            x[i] = (float) entity.getInternalX() + width[i] / 2;
+            y[i] = (float) entity.getInternalY() + height[i] / 2;
+            index.put( entity, i );
+        }
+        if ( graph == null )
+        {
+            return;
+        }
+        int[] sources = new int[relationshipsToConsider.length];
+        int[] targets = new int[relationshipsToConsider.length];
+        int count = 0;
+        for ( InternalRelationship relationship : relationshipsToConsider )
+        {
+            Integer source = index.get( relationship.getSource() );
+            Integer target = index.get( relationship.getDestination() );
+            if ( source != null && target != null && !source.equals( target ) )
+            {
+                sources[count] = source;
+                targets[count] = target;
+                count++;
+            }
+        }
+        int[] usedSources = new int[count];
+        int[] usedTargets = new int[count];
+        System.arraycopy( sources, 0, usedSources, 0, count );
+        System.arraycopy( targets, 0, usedTargets, 0, count );
+        LayoutSnapshot snapshot = new LayoutSnapshot( x, y, width, height, usedSources, usedTargets,
+                (float) boundsWidth, (float) boundsHeight );
+        stop( graph );
+        long[] ids = nodeIds( nodes );
+        if ( positions != null && placeKnownNodes( nodes, ids, snapshot ) )
+        {
+            return;
+        }
+        new LayoutJob( graph, nodes, snapshot, createLayout(), ids, positions ).schedule();
+    }
+
+    private static long[] nodeIds( final GraphNode[] nodes )
+    {
+        long[] ids = new long[nodes.length];
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            ids[i] = nodes[i] != null && nodes[i].getData() instanceof Node ? ( (Node) nodes[i].getData() ).getId()
+                    : -1;
+        }
+        return ids;
+    }
+
+    /**
+     * Put and pin the nodes with a remembered position, start the others
+     * around a placed neighbour.
+     * 
+     * @return true if all nodes were placed
+     */
+    private boolean placeKnownNodes( final GraphNode[] nodes, final long[] ids, final LayoutSnapshot snapshot )
+    {
+        float[] x = snapshot.getX();
+        float[] y = snapshot.getY();
+        float[] position = new float[2];
+        int known = 0;
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            if ( ids[i] != -1 && positions.get( ids[i], position ) )
+            {
+                snapshot.pin( i, position[0], position[1] );
+                nodes[i].setLocation( position[0] - snapshot.getWidth()[i] / 2,
+                        position[1] - snapshot.getHeight()[i] / 2 );
+                known++;
+            }
+        }
+        if ( known == nodes.length )
+        {
+            return true;
+        }
+        if ( known == 0 )
+        {
+            return false;
+        }
+        boolean[] placed = snapshot.getPinned().clone();
+        Random random = new Random( known );
+        int[] sources = snapshot.getSources();
+        int[] targets = snapshot.getTargets();
+        for ( int r = 0; r < sources.length; r++ )
+        {
+            int from = placed[sources[r]] ? sources[r] : targets[r];
+            int to = from == sources[r] ? targets[r] : sources[r];
+            if ( placed[from] && !placed[to] )
+            {
+                double angle = random.nextDouble() * 2 * Math.PI;
+                x[to] = x[from] + NEW_NODE_DISTANCE * (float) Math.cos( angle );
+                y[to] = y[from] + NEW_NODE_DISTANCE * (float) Math.sin( angle );
+                placed[to] = true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean isValidConfiguration( final boolean asynchronous, final boolean continuous )
+    {
+        return true;
+    }
+
+    @Override
+    protected void preLayoutAlgorithm( final InternalNode[] entitiesToLayout,
+            final InternalRelationship[] relationshipsToConsider, final double x, final double y,
+            final double width, final double height )
+    {
+    }
+
+    @Override
+    protected void postLayoutAlgorithm( final InternalNode[] entitiesToLayout,
+            final InternalRelationship[] relationshipsToConsider )
+    {
+    }
+
+    @Override
+    protected int getTotalNumberOfLayoutSteps()
+    {
+        return 1;
+    }
+
+    @Override
+    protected int getCurrentLayoutStep()
+    {
+        return 1;
+    }
+
+    @Override
+    public void setLayoutArea( final double x, final double y, final double width, final double height )
+    {
+    }
+
+    /**
+     * Runs the layout and publishes frames to the display thread.
+     */
+    private static class LayoutJob extends Job
+    {
+        private final Graph graph;
+        private final GraphNode[] nodes;
+        private final LayoutSnapshot snapshot;
+        private final AnytimeLayout layout;
+        private final long[] ids;
+        private final PositionCache positions;
+        /**
+         * Top left corners as last put by this job, display thread only.
+         */
+        private final int[] shownX;
+        private final int[] shownY;
+        private final ConcurrentLinkedQueue<float[]> pins = new ConcurrentLinkedQueue<float[]>();
+        private final AtomicBoolean framePending = new AtomicBoolean();
+        private volatile boolean cancelled = false;
+
+        LayoutJob( final Graph graph, final GraphNode[] nodes, final LayoutSnapshot snapshot,
+                final AnytimeLayout layout, final long[] ids, final PositionCache positions )
+        {
+            super( "Graph layout" );
+            this.graph = graph;
+            this.nodes = nodes;
+            this.snapshot = snapshot;
+            this.layout = layout;
+            this.ids = ids;
+            this.positions = positions;
+            shownX = new int[nodes.length];
+            shownY = new int[nodes.length];
+            for ( int i = 0; i < nodes.length; i++ )
+            {
+                if ( nodes[i] != null )
+                {
+                    Point location = nodes[i].getLocation();
+                    shownX[i] = location.x;
+                    shownY[i] = location.y;
+                }
+            }
+            setSystem( true );
+            setPriority( Job.LONG );
+        }
+
+        @Override
+        protected void canceling()
+        {
+            // frames still on their way must not undo a newer layout
+            cancelled = true;
+        }
+
+        @Override
+        public boolean belongsTo( final Object family )
+        {
+            return family == graph;
+        }
+
+        @Override
+        protected IStatus run( final IProgressMonitor monitor )
+        {
+            layout.init( snapshot );
+            long lastFrame = System.currentTimeMillis();
+            boolean converged = false;
+            while ( !converged && !monitor.isCanceled() )
+            {
+                for ( float[] pin = pins.poll(); pin != null; pin = pins.poll() )
+                {
+                    snapshot.pin( (int) pin[0], pin[1], pin[2] );
+                }
+                converged = layout.step();
+                long now = System.currentTimeMillis();
+                if ( converged || now - lastFrame >= FRAME_MILLIS )
+                {
+                    publish( converged );
+                    lastFrame = now;
+                }
+            }
+            return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+        }
+
+        /**
+         * Hand a copy of the positions to the display thread. Frames are
+         * dropped while the previous one is still waiting, except the last.
+         */
+        private void publish( final boolean last )
+        {
+            if ( !framePending.compareAndSet( false, true ) && !last )
+            {
+                return;
+            }
+            final float[] x = snapshot.getX().clone();
+            final float[] y = snapshot.getY().clone();
+            UiHelper.asyncExec( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    framePending.set( false );
+                    if ( cancelled || graph.isDisposed() )
+                    {
+                        return;
+                    }
+                    showFrame( x, y );
+                    if ( last )
+                    {
+                        remember();
+                    }
+                }
+            } );
+        }
+
+        /**
+         * Store where the nodes ended up, including the ones the user moved.
+         */
+        private void remember()
+        {
+            if ( positions == null )
+            {
+                return;
+            }
+            try
+            {
+                for ( int i = 0; i < nodes.length; i++ )
+                {
+                    if ( ids[i] != -1 && !nodes[i].isDisposed() )
+                    {
+                        positions.put( ids[i], shownX[i] + snapshot.getWidth()[i] / 2,
+                                shownY[i] + snapshot.getHeight()[i] / 2 );
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                e.printStackTrace();
+            }
+        }
+
+        private void showFrame( final float[] x, final float[] y )
+        {
+            float[] width = snapshot.getWidth();
+            float[] height = snapshot.getHeight();
+            graph.setRedraw( false );
+            try
+            {
+                for ( int i = 0; i < nodes.length; i++ )
+                {
+                    GraphNode node = nodes[i];
+                    if ( node == null || node.isDisposed() )
+                    {
+                        continue;
+                    }
+                    Point location = node.getLocation();
+                    if ( location.x != shownX[i] || location.y != shownY[i] )
+                    {
+                        // moved by the user, keep it there
+                        pins.add( new float[] { i, location.x + width[i] / 2, location.y + height[i] / 2 } );
+                        shownX[i] = location.x;
+                        shownY[i] = location.y;
+                        continue;
+                    }
+                    node.setLocation( x[i] - width[i] / 2, y[i] - height[i] / 2 );
+                    location = node.getLocation();
+                    shownX[i] = location.x;
+                    shownY[i] = location.y;
+                }
+            }
+            finally
+            {
+                graph.setRedraw( true );
+            }
+        }
+    }
+}
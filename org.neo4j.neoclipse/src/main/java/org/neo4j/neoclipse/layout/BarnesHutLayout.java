@@ -0,0 +1,341 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Force-directed layout for large graphs. The repulsion between all nodes is
+ * approximated with a Barnes-Hut quadtree, groups of nodes far enough away act
+ * as a single node at their center of mass. That takes a step from O(n^2) down
+ * to O(n log n). The quadtree is kept in primitive arrays and rebuilt every
+ * step, the forces are then accumulated by several threads, each one for its
+ * own range of nodes.
+ */
+public class BarnesHutLayout extends ForceDirectedLayout
+{
+    /**
+     * Cells smaller than this fraction of their distance count as one node.
+     * Below 1/sqrt(2), so a cell never stands in for the node it contains.
+     */
+    private static final float THETA = 0.7f;
+    /**
+     * Nodes in the same spot would split cells forever, below this depth they
+     * share a leaf.
+     */
+    private static final int MAX_DEPTH = 24;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * Nodes handed to a thread at once.
+     */
+    private static final int CHUNK_SIZE = 512;
+    private static final ExecutorService POOL = Executors.newFixedThreadPool( THREADS, new ThreadFactory()
+    {
+        private int count = 0;
+
+        @Override
+        public synchronized Thread newThread( final Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, "neoclipse-layout-" + count++ );
+            thread.setDaemon( true );
+            thread.setPriority( Thread.MIN_PRIORITY );
+            return thread;
+        }
+    } );
+
+    // quadtree cells, the root is cell 0
+    private int cellCount;
+    private float[] cellX;
+    private float[] cellY;
+    private float[] cellSize;
+    private float[] mass;
+    private float[] massX;
+    private float[] massY;
+    /**
+     * First child of a cell, the four children are consecutive; -1 for a
+     * leaf.
+     */
+    private int[] firstChild;
+    /**
+     * First node of a leaf, -1 for none.
+     */
+    private int[] firstNode;
+    /**
+     * Next node in the same leaf, -1 for none.
+     */
+    private int[] nextNode;
+
+    @Override
+    public void init( final LayoutSnapshot snapshot )
+    {
+        super.init( snapshot );
+        int capacity = Math.max( 16, snapshot.getNodeCount() * 2 );
+        cellX = new float[capacity];
+        cellY = new float[capacity];
+        cellSize = new float[capacity];
+        mass = new float[capacity];
+        massX = new float[capacity];
+        massY = new float[capacity];
+        firstChild = new int[capacity];
+        firstNode = new int[capacity];
+        nextNode = new int[snapshot.getNodeCount()];
+    }
+
+    @Override
+    protected void repulse()
+    {
+        buildTree();
+        final int n = snapshot.getNodeCount();
+        if ( n <= CHUNK_SIZE )
+        {
+            int[] stack = new int[4 * ( MAX_DEPTH + 2 )];
+            for ( int i = 0; i < n; i++ )
+            {
+                repulse( i, stack );
+            }
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for ( int start = 0; start < n; start += CHUNK_SIZE )
+        {
+            final int from = start;
+            final int to = Math.min( n, start + CHUNK_SIZE );
+            tasks.add( new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    int[] stack = new int[4 * ( MAX_DEPTH + 2 )];
+                    for ( int i = from; i < to; i++ )
+                    {
+                        repulse( i, stack );
+                    }
+                    return null;
+                }
+            } );
+        }
+        try
+        {
+            for ( Future<Void> future : POOL.invokeAll( tasks ) )
+            {
+                future.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IllegalStateException( e.getCause() );
+        }
+    }
+
+    /**
+     * Add the repulsion of all other nodes on one node to its displacement.
+     * Only writes to the displacement of that node, so nodes can be handled
+     * in parallel.
+     */
+    private void repulse( final int node, final int[] stack )
+    {
+        float[] x = snapshot.getX();
+        float[] y = snapshot.getY();
+        float k2 = k * k;
+        float theta2 = THETA * THETA;
+        float forceX = 0;
+        float forceY = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while ( top > 0 )
+        {
+            int cell = stack[--top];
+            if ( mass[cell] == 0 )
+            {
+                continue;
+            }
+            if ( firstChild[cell] == -1 )
+            {
+                for ( int other = firstNode[cell]; other != -1; other = nextNode[other] )
+                {
+                    if ( other != node )
+                    {
+                        float ddx = x[node] - x[other];
+                        float ddy = y[node] - y[other];
+                        float f = k2 / Math.max( ddx * ddx + ddy * ddy, 0.01f );
+                        forceX += ddx * f;
+                        forceY += ddy * f;
+                    }
+                }
+                continue;
+            }
+            float ddx = x[node] - massX[cell];
+            float ddy = y[node] - massY[cell];
+            float d2 = ddx * ddx + ddy * ddy;
+            if ( cellSize[cell] * cellSize[cell] < theta2 * d2 )
+            {
+                float f = mass[cell] * k2 / d2;
+                forceX += ddx * f;
+                forceY += ddy * f;
+            }
+            else
+            {
+                int child = firstChild[cell];
+                stack[top++] = child;
+                stack[top++] = child + 1;
+                stack[top++] = child + 2;
+                stack[top++] = child + 3;
+            }
+        }
+        dx[node] += forceX;
+        dy[node] += forceY;
+    }
+
+    private void buildTree()
+    {
+        float[] x = snapshot.getX();
+        float[] y = snapshot.getY();
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for ( int i = 0; i < x.length; i++ )
+        {
+            minX = Math.min( minX, x[i] );
+            minY = Math.min( minY, y[i] );
+            maxX = Math.max( maxX, x[i] );
+            maxY = Math.max( maxY, y[i] );
+        }
+        cellCount = 0;
+        newCell( minX, minY, Math.max( 1f, Math.max( maxX - minX, maxY - minY ) ) * 1.0001f );
+        Arrays.fill( nextNode, -1 );
+        for ( int i = 0; i < x.length; i++ )
+        {
+            insert( i );
+        }
+        summarize( 0 );
+    }
+
+    private int newCell( final float x, final float y, final float size )
+    {
+        if ( cellCount == firstChild.length )
+        {
+            int capacity = cellCount * 2;
+            cellX = Arrays.copyOf( cellX, capacity );
+            cellY = Arrays.copyOf( cellY, capacity );
+            cellSize = Arrays.copyOf( cellSize, capacity );
+            mass = Arrays.copyOf( mass, capacity );
+            massX = Arrays.copyOf( massX, capacity );
+            massY = Arrays.copyOf( massY, capacity );
+            firstChild = Arrays.copyOf( firstChild, capacity );
+            firstNode = Arrays.copyOf( firstNode, capacity );
+        }
+        int cell = cellCount++;
+        cellX[cell] = x;
+        cellY[cell] = y;
+        cellSize[cell] = size;
+        firstChild[cell] = -1;
+        firstNode[cell] = -1;
+        return cell;
+    }
+
+    private void insert( final int node )
+    {
+        int cell = 0;
+        for ( int depth = 0;; depth++ )
+        {
+            if ( firstChild[cell] != -1 )
+            {
+                cell = childFor( cell, node );
+            }
+            else if ( firstNode[cell] == -1 || depth >= MAX_DEPTH )
+            {
+                nextNode[node] = firstNode[cell];
+                firstNode[cell] = node;
+                return;
+            }
+            else
+            {
+                // split the leaf and move its node down
+                float half = cellSize[cell] / 2;
+                int child = newCell( cellX[cell], cellY[cell], half );
+                newCell( cellX[cell] + half, cellY[cell], half );
+                newCell( cellX[cell], cellY[cell] + half, half );
+                newCell( cellX[cell] + half, cellY[cell] + half, half );
+                firstChild[cell] = child;
+                int moved = firstNode[cell];
+                firstNode[cell] = -1;
+                int target = childFor( cell, moved );
+                nextNode[moved] = -1;
+                firstNode[target] = moved;
+                cell = childFor( cell, node );
+            }
+        }
+    }
+
+    private int childFor( final int cell, final int node )
+    {
+        float half = cellSize[cell] / 2;
+        int quadrant = ( snapshot.getX()[node] >= cellX[cell] + half ? 1 : 0 )
+                       + ( snapshot.getY()[node] >= cellY[cell] + half ? 2 : 0 );
+        return firstChild[cell] + quadrant;
+    }
+
+    /**
+     * Compute mass and center of mass of a cell and everything below it.
+     */
+    private void summarize( final int cell )
+    {
+        float totalMass = 0;
+        float sumX = 0;
+        float sumY = 0;
+        if ( firstChild[cell] == -1 )
+        {
+            for ( int node = firstNode[cell]; node != -1; node = nextNode[node] )
+            {
+                totalMass++;
+                sumX += snapshot.getX()[node];
+                sumY += snapshot.getY()[node];
+            }
+        }
+        else
+        {
+            for ( int child = firstChild[cell]; child < firstChild[cell] + 4; child++ )
+            {
+                summarize( child );
+                totalMass += mass[child];
+                sumX += massX[child] * mass[child];
+                sumY += massY[child] * mass[child];
+            }
+        }
+        mass[cell] = totalMass;
+        if ( totalMass > 0 )
+        {
+            massX[cell] = sumX / totalMass;
+            massY[cell] = sumY / totalMass;
+        }
+    }
+}
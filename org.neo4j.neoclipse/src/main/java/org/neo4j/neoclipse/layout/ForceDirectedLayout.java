@@ -0,0 +1,193 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.layout;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Fruchterman-Reingold force-directed layout: all nodes push each other away,
+ * relationships pull their nodes together and a slowly cooling temperature
+ * limits how far a node moves in one step. Every step compares all pairs of
+ * nodes, which is fine for the graphs shown by traversal.
+ */
+public class ForceDirectedLayout implements AnytimeLayout
+{
+    /**
+     * Shortest ideal relationship length, keeps large graphs readable
+     * instead of squeezing them into the visible area.
+     */
+    static final float MIN_DISTANCE = 60f;
+    /**
+     * Pull of every node towards the center, keeps unconnected parts close.
+     */
+    static final float GRAVITY = 0.02f;
+    static final float COOLING = 0.95f;
+    static final float MIN_TEMPERATURE = 0.5f;
+    private static final int MAX_STEPS = 500;
+
+    protected LayoutSnapshot snapshot;
+    protected float[] dx;
+    protected float[] dy;
+    protected float k;
+    private float temperature;
+    private int steps;
+    private final Random random = new Random( 0 );
+
+    @Override
+    public void init( final LayoutSnapshot snapshot )
+    {
+        this.snapshot = snapshot;
+        int n = snapshot.getNodeCount();
+        dx = new float[n];
+        dy = new float[n];
+        float area = snapshot.getAreaWidth() * snapshot.getAreaHeight();
+        k = Math.max( MIN_DISTANCE, (float) Math.sqrt( area / Math.max( 1, n ) ) );
+        int free = 0;
+        for ( boolean pinned : snapshot.getPinned() )
+        {
+            free += pinned ? 0 : 1;
+        }
+        // only a few new nodes among placed ones don't need to travel far
+        temperature = Math.max( Math.max( snapshot.getAreaWidth(), snapshot.getAreaHeight() ),
+                k * (float) Math.sqrt( free ) ) / 10 * Math.max( 0.1f, (float) free / Math.max( 1, n ) );
+        steps = 0;
+        separateOverlapping();
+    }
+
+    @Override
+    public boolean step()
+    {
+        Arrays.fill( dx, 0 );
+        Arrays.fill( dy, 0 );
+        repulse();
+        attract();
+        float moved = move();
+        temperature *= COOLING;
+        steps++;
+        return temperature < MIN_TEMPERATURE || moved < MIN_TEMPERATURE || steps >= MAX_STEPS;
+    }
+
+    /**
+     * Add the repulsion between all pairs of nodes to the displacements.
+     */
+    protected void repulse()
+    {
+        float[] x = snapshot.getX();
+        float[] y = snapshot.getY();
+        float k2 = k * k;
+        for ( int i = 0; i < x.length; i++ )
+        {
+            for ( int j = i + 1; j < x.length; j++ )
+            {
+                float ddx = x[i] - x[j];
+                float ddy = y[i] - y[j];
+                float d2 = Math.max( ddx * ddx + ddy * ddy, 0.01f );
+                float f = k2 / d2;
+                dx[i] += ddx * f;
+                dy[i] += ddy * f;
+                dx[j] -= ddx * f;
+                dy[j] -= ddy * f;
+            }
+        }
+    }
+
+    /**
+     * Add the pull along relationships and towards the center to the
+     * displacements.
+     */
+    protected void attract()
+    {
+        float[] x = snapshot.getX();
+        float[] y = snapshot.getY();
+        int[] sources = snapshot.getSources();
+        int[] targets = snapshot.getTargets();
+        for ( int r = 0; r < sources.length; r++ )
+        {
+            int s = sources[r];
+            int t = targets[r];
+            float ddx = x[s] - x[t];
+            float ddy = y[s] - y[t];
+            float f = (float) Math.sqrt( ddx * ddx + ddy * ddy ) / k;
+            dx[s] -= ddx * f;
+            dy[s] -= ddy * f;
+            dx[t] += ddx * f;
+            dy[t] += ddy * f;
+        }
+        float centerX = snapshot.getAreaWidth() / 2;
+        float centerY = snapshot.getAreaHeight() / 2;
+        for ( int i = 0; i < x.length; i++ )
+        {
+            dx[i] -= ( x[i] - centerX ) * GRAVITY * k / MIN_DISTANCE;
+            dy[i] -= ( y[i] - centerY ) * GRAVITY * k / MIN_DISTANCE;
+        }
+    }
+
+    /**
+     * Move the nodes by their displacements, at most the temperature.
+     * 
+     * @return the longest move
+     */
+    private float move()
+    {
+        float[] x = snapshot.getX();
+        float[] y = snapshot.getY();
+        boolean[] pinned = snapshot.getPinned();
+        float longest = 0;
+        for ( int i = 0; i < x.length; i++ )
+        {
+            if ( pinned[i] )
+            {
+                continue;
+            }
+            float length = (float) Math.sqrt( dx[i] * dx[i] + dy[i] * dy[i] );
+            if ( length < 0.001f )
+            {
+                continue;
+            }
+            float limited = Math.min( length, temperature );
+            x[i] += dx[i] / length * limited;
+            y[i] += dy[i] / length * limited;
+            longest = Math.max( longest, limited );
+        }
+        return longest;
+    }
+
+    /**
+     * New nodes often start out on the same spot, where no force can tell
+     * them apart.
+     */
+    private void separateOverlapping()
+    {
+        float[] x = snapshot.getX();
+        float[] y = snapshot.getY();
+        Set<Long> seen = new HashSet<Long>();
+        for ( int i = 0; i < x.length; i++ )
+        {
+            long spot = ( (long) Math.round( x[i] ) << 32 ) ^ ( Math.round( y[i] ) & 0xffffffffL );
+            if ( !seen.add( spot ) && !snapshot.getPinned()[i] )
+            {
+                x[i] += ( random.nextFloat() - 0.5f ) * k;
+                y[i] += ( random.nextFloat() - 0.5f ) * k;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.layout;
+
+/**
+ * Nodes and relationships of the graph view copied to primitive arrays, so a
+ * layout can work on them off the display thread. Nodes are numbered from 0,
+ * positions are node centers.
+ */
+public class LayoutSnapshot
+{
+    private final float[] x;
+    private final float[] y;
+    private final float[] width;
+    private final float[] height;
+    private final boolean[] pinned;
+    private final int[] sources;
+    private final int[] targets;
+    private final float areaWidth;
+    private final float areaHeight;
+
+    /**
+     * @param x center x of the nodes, changed by the layout
+     * @param y center y of the nodes, changed by the layout
+     * @param width node widths
+     * @param height node heights
+     * @param sources start node of every relationship
+     * @param targets end node of every relationship
+     * @param areaWidth width of the visible area
+     * @param areaHeight height of the visible area
+     */
+    public LayoutSnapshot( final float[] x, final float[] y, final float[] width, final float[] height,
+            final int[] sources, final int[] targets, final float areaWidth, final float areaHeight )
+    {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.pinned = new boolean[x.length];
+        this.sources = sources;
+        this.targets = targets;
+        this.areaWidth = areaWidth;
+        this.areaHeight = areaHeight;
+    }
+
+    public int getNodeCount()
+    {
+        return x.length;
+    }
+
+    public int getRelationshipCount()
+    {
+        return sources.length;
+    }
+
+    public float[] getX()
+    {
+        return x;
+    }
+
+    public float[] getY()
+    {
+        return y;
+    }
+
+    public float[] getWidth()
+    {
+        return width;
+    }
+
+    public float[] getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Nodes the layout must not move, like the ones the user dragged.
+     */
+    public boolean[] getPinned()
+    {
+        return pinned;
+    }
+
+    public int[] getSources()
+    {
+        return sources;
+    }
+
+    public int[] getTargets()
+    {
+        return targets;
+    }
+
+    public float getAreaWidth()
+    {
+        return areaWidth;
+    }
+
+    public float getAreaHeight()
+    {
+        return areaHeight;
+    }
+
+    /**
+     * Put a node at a fixed position.
+     * 
+     * @param node index of the node
+     * @param centerX new center x
+     * @param centerY new center y
+     */
+    public void pin( final int node, final float centerX, final float centerY )
+    {
+        x[node] = centerX;
+        y[node] = centerY;
+        pinned[node] = true;
+    }
+}
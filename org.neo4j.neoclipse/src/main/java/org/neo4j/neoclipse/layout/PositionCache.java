@@ -0,0 +1,318 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.layout;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.neo4j.neoclipse.util.ApplicationUtil;
+
+/**
+ * Remembered node positions of one database, kept in a memory-mapped file so
+ * they survive restarts. The file is a hash table with linear probing: a
+ * header, then slots of a long key (node id + 1, 0 for an empty slot) and the
+ * x and y of the node center as floats. The table doubles in place when it
+ * gets three quarters full.
+ * <p>
+ * Node ids are reused by the database, so positions of deleted nodes have to
+ * be removed, and the file of a database that was generated anew has to be
+ * discarded.
+ */
+public class PositionCache implements Closeable
+{
+    private static final int MAGIC = 0x4e504f53;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+
+    /**
+     * Open the cache file, creating it if needed. A file that isn't a cache
+     * file is started over.
+     * 
+     * @param file the cache file
+     * @throws IOException
+     */
+    public PositionCache( final File file ) throws IOException
+    {
+        this.file = file;
+        File dir = file.getParentFile();
+        if ( dir != null && !dir.exists() && !dir.mkdirs() )
+        {
+            throw new IOException( "Could not create the directory: " + dir );
+        }
+        raf = new RandomAccessFile( file, "rw" );
+        int stored = 0;
+        if ( raf.length() >= HEADER_SIZE && raf.readInt() == MAGIC && raf.readInt() == VERSION )
+        {
+            stored = raf.readInt();
+        }
+        if ( stored > 0 && Integer.bitCount( stored ) == 1
+             && raf.length() >= HEADER_SIZE + (long) stored * SLOT_SIZE )
+        {
+            map( stored );
+            size = buffer.getInt( 12 );
+        }
+        else
+        {
+            raf.setLength( 0 );
+            map( INITIAL_CAPACITY );
+            size = 0;
+            writeHeader();
+        }
+    }
+
+    /**
+     * The cache file of a database.
+     * 
+     * @param name name of the database connection
+     * @return the file
+     */
+    public static File fileFor( final String name )
+    {
+        return new File( new File( ApplicationUtil.NEOCLIPSE_SETTINGS_DIR, "positions" ),
+                name.replaceAll( "[^A-Za-z0-9._-]", "_" ) + ".positions" );
+    }
+
+    /**
+     * Throw away the remembered positions of a database. The cache must not
+     * be open.
+     * 
+     * @param name name of the database connection
+     * @return false if there was a file that couldn't be deleted
+     */
+    public static boolean discard( final String name )
+    {
+        File file = fileFor( name );
+        return !file.exists() || file.delete();
+    }
+
+    private void map( final int newCapacity ) throws IOException
+    {
+        capacity = newCapacity;
+        buffer = raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) capacity * SLOT_SIZE );
+    }
+
+    private void writeHeader()
+    {
+        buffer.putInt( 0, MAGIC );
+        buffer.putInt( 4, VERSION );
+        buffer.putInt( 8, capacity );
+        buffer.putInt( 12, size );
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Look up the position of a node.
+     * 
+     * @param id node id
+     * @param position receives x and y of the center
+     * @return true if the position is known
+     */
+    public synchronized boolean get( final long id, final float[] position )
+    {
+        int slot = find( id );
+        if ( slot == -1 )
+        {
+            return false;
+        }
+        int offset = offset( slot );
+        position[0] = buffer.getFloat( offset + 8 );
+        position[1] = buffer.getFloat( offset + 12 );
+        return true;
+    }
+
+    /**
+     * Remember the position of a node.
+     * 
+     * @param id node id
+     * @param x center x
+     * @param y center y
+     */
+    public synchronized void put( final long id, final float x, final float y ) throws IOException
+    {
+        if ( ( size + 1 ) * 4L > capacity * 3L )
+        {
+            grow();
+        }
+        long key = id + 1;
+        int mask = capacity - 1;
+        int slot = hash( key ) & mask;
+        while ( true )
+        {
+            int offset = offset( slot );
+            long found = buffer.getLong( offset );
+            if ( found == 0 || found == key )
+            {
+                if ( found == 0 )
+                {
+                    buffer.putLong( offset, key );
+                    size++;
+                    buffer.putInt( 12, size );
+                }
+                buffer.putFloat( offset + 8, x );
+                buffer.putFloat( offset + 12, y );
+                return;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+    }
+
+    /**
+     * Forget the position of a node.
+     * 
+     * @param id node id
+     */
+    public synchronized void remove( final long id )
+    {
+        int slot = find( id );
+        if ( slot == -1 )
+        {
+            return;
+        }
+        // shift following entries back so lookups don't stop at the hole
+        int mask = capacity - 1;
+        int hole = slot;
+        for ( int next = ( hole + 1 ) & mask;; next = ( next + 1 ) & mask )
+        {
+            long key = buffer.getLong( offset( next ) );
+            if ( key == 0 )
+            {
+                break;
+            }
+            int home = hash( key ) & mask;
+            boolean movable = hole <= next ? home <= hole || home > next : home <= hole && home > next;
+            if ( movable )
+            {
+                copySlot( next, hole );
+                hole = next;
+            }
+        }
+        buffer.putLong( offset( hole ), 0 );
+        size--;
+        buffer.putInt( 12, size );
+    }
+
+    private void copySlot( final int from, final int to )
+    {
+        int source = offset( from );
+        int target = offset( to );
+        buffer.putLong( target, buffer.getLong( source ) );
+        buffer.putFloat( target + 8, buffer.getFloat( source + 8 ) );
+        buffer.putFloat( target + 12, buffer.getFloat( source + 12 ) );
+    }
+
+    private int find( final long id )
+    {
+        long key = id + 1;
+        int mask = capacity - 1;
+        int slot = hash( key ) & mask;
+        while ( true )
+        {
+            long found = buffer.getLong( offset( slot ) );
+            if ( found == key )
+            {
+                return slot;
+            }
+            if ( found == 0 )
+            {
+                return -1;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+    }
+
+    private void grow() throws IOException
+    {
+        long[] keys = new long[size];
+        float[] xs = new float[size];
+        float[] ys = new float[size];
+        int count = 0;
+        for ( int slot = 0; slot < capacity; slot++ )
+        {
+            int offset = offset( slot );
+            long key = buffer.getLong( offset );
+            if ( key != 0 )
+            {
+                keys[count] = key;
+                xs[count] = buffer.getFloat( offset + 8 );
+                ys[count] = buffer.getFloat( offset + 12 );
+                count++;
+            }
+        }
+        map( capacity * 2 );
+        for ( int slot = 0; slot < capacity; slot++ )
+        {
+            buffer.putLong( offset( slot ), 0 );
+        }
+        size = 0;
+        writeHeader();
+        for ( int i = 0; i < count; i++ )
+        {
+            put( keys[i] - 1, xs[i], ys[i] );
+        }
+    }
+
+    private static int offset( final int slot )
+    {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static int hash( final long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) ( h ^ ( h >>> 32 ) );
+    }
+
+    /**
+     * Write the positions to disk and close the file. The mapping itself is
+     * released by the garbage collector.
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if ( buffer != null )
+        {
+            buffer.force();
+            buffer = null;
+        }
+        raf.close();
+    }
+
+    @Override
+    public String toString()
+    {
+        return file.getPath();
+    }
+}
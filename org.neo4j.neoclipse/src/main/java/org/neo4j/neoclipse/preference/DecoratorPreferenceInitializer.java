@@ -42,6 +42,9 @@ public class DecoratorPreferenceInitializer extends
         pref.setDefault( DecoratorPreferences.RELATIONSHIP_PROPERTY_NAMES, "" );
         pref.setDefault( DecoratorPreferences.NODE_ICON_LOCATION, "" );
         pref.setDefault( DecoratorPreferences.NODE_ICON_PROPERTY_NAMES, "" );
+        pref.setDefault( DecoratorPreferences.SHORT_LABEL_ZOOM, 50 );
+        pref.setDefault( DecoratorPreferences.FULL_LABEL_ZOOM, 75 );
+        pref.setDefault( DecoratorPreferences.NODE_ICON_ZOOM, 100 );
         // view menu settings
         pref.setDefault( DecoratorPreferences.SHOW_RELATIONSHIP_TYPES, true );
         pref.setDefault( DecoratorPreferences.SHOW_NODE_COLORS, true );
@@ -19,6 +19,7 @@
 package org.neo4j.neoclipse.preference;
 
 import org.eclipse.jface.preference.DirectoryFieldEditor;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.StringFieldEditor;
 
 /**
@@ -41,6 +42,11 @@ public class DecoratorPreferencePage extends AbstractPreferencePage
     // node icon filename properties
     private static final String NODE_ICON_FILENAME_PROPERTIES_LABEL = "Node icon filename properties:";
     private static final String ICON_PROPERTY_NAMES_NOTE = "comma-separated list (see node labels); file EXTENSIONS are added automatically to the property values found";
+    // detail levels
+    private static final String SHORT_LABEL_ZOOM_LABEL = "Zoom level for short labels (%):";
+    private static final String FULL_LABEL_ZOOM_LABEL = "Zoom level for full labels (%):";
+    private static final String NODE_ICON_ZOOM_LABEL = "Zoom level for node icons (%):";
+    private static final String ZOOM_NOTE = "below these zoom levels less is shown, and read from the database; below the short label level only ids are shown";
 
     /**
      * Initializes the several input fields.
@@ -76,5 +82,22 @@ public class DecoratorPreferencePage extends AbstractPreferencePage
                 NODE_ICON_FILENAME_PROPERTIES_LABEL, getFieldEditorParent() );
         iconPropertyNameField.setEmptyStringAllowed( true );
         addField( iconPropertyNameField, ICON_PROPERTY_NAMES_NOTE );
+
+        // detail levels
+        IntegerFieldEditor shortLabelZoomField = new IntegerFieldEditor(
+                DecoratorPreferences.SHORT_LABEL_ZOOM, SHORT_LABEL_ZOOM_LABEL,
+                getFieldEditorParent(), 4 );
+        shortLabelZoomField.setValidRange( 0, 1000 );
+        super.addField( shortLabelZoomField );
+        IntegerFieldEditor fullLabelZoomField = new IntegerFieldEditor(
+                DecoratorPreferences.FULL_LABEL_ZOOM, FULL_LABEL_ZOOM_LABEL,
+                getFieldEditorParent(), 4 );
+        fullLabelZoomField.setValidRange( 0, 1000 );
+        super.addField( fullLabelZoomField );
+        IntegerFieldEditor iconZoomField = new IntegerFieldEditor(
+                DecoratorPreferences.NODE_ICON_ZOOM, NODE_ICON_ZOOM_LABEL,
+                getFieldEditorParent(), 4 );
+        iconZoomField.setValidRange( 0, 1000 );
+        addField( iconZoomField, ZOOM_NOTE );
     }
 }
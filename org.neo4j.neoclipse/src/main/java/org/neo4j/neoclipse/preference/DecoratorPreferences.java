@@ -51,6 +51,19 @@ public final class DecoratorPreferences
      * The property to use for icon names.
      */
     public static final String NODE_ICON_PROPERTY_NAMES = "nodeIconPropertyNames";
+    /**
+     * The lowest zoom level, in percent, to show short labels at. Below it
+     * only ids are shown.
+     */
+    public static final String SHORT_LABEL_ZOOM = "shortLabelZoom";
+    /**
+     * The lowest zoom level, in percent, to show full labels at.
+     */
+    public static final String FULL_LABEL_ZOOM = "fullLabelZoom";
+    /**
+     * The lowest zoom level, in percent, to show node icons at.
+     */
+    public static final String NODE_ICON_ZOOM = "nodeIconZoom";
     // view settings, not exposed on the preference page
     /**
      * Keep track of relationship types display on/off.
@@ -45,6 +45,10 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer
                 GraphDbServiceMode.READ_WRITE_EMBEDDED.name() );
         pref.setDefault( Preferences.MAX_NODES, 500 );
         pref.setDefault( Preferences.MAX_TRAVERSAL_DEPTH, 1 );
+        pref.setDefault( Preferences.MAX_RELATIONSHIPS_PER_NODE, 100 );
+        pref.setDefault( Preferences.EXPORT_COMPRESSED, false );
+        pref.setDefault( Preferences.MAX_SEARCH_RESULTS, 1000 );
+        pref.setDefault( Preferences.MAX_SCANNED_NODES, 100000 );
 
 
     }
@@ -37,6 +37,9 @@ public class PreferencePage extends AbstractPreferencePage
     private RadioGroupFieldEditor connectionMode;
     private IntegerFieldEditor maxNodesField;
     private IntegerFieldEditor maxTraversalDepthField;
+    private IntegerFieldEditor maxRelationshipsPerNodeField;
+    private IntegerFieldEditor maxSearchResultsField;
+    private IntegerFieldEditor maxScannedNodesField;
 
     /**
      * Initializes the several input fields.
@@ -71,5 +74,24 @@ public class PreferencePage extends AbstractPreferencePage
                 getFieldEditorParent(), 4 );
         maxTraversalDepthField.setEmptyStringAllowed( false );
         addField( maxTraversalDepthField );
+
+        maxRelationshipsPerNodeField = new IntegerFieldEditor( Preferences.MAX_RELATIONSHIPS_PER_NODE,
+                "Maximum relationships per node and type (0 = no limit)", getFieldEditorParent(), 6 );
+        maxRelationshipsPerNodeField.setEmptyStringAllowed( false );
+        addField( maxRelationshipsPerNodeField );
+
+        maxSearchResultsField = new IntegerFieldEditor( Preferences.MAX_SEARCH_RESULTS,
+                "Maximum number of search results (0 = no limit)", getFieldEditorParent(), 8 );
+        maxSearchResultsField.setEmptyStringAllowed( false );
+        addField( maxSearchResultsField );
+
+        maxScannedNodesField = new IntegerFieldEditor( Preferences.MAX_SCANNED_NODES,
+                "Maximum number of nodes to scan when searching without an index", getFieldEditorParent(), 10 );
+        maxScannedNodesField.setEmptyStringAllowed( false );
+        addField( maxScannedNodesField );
+
+        BooleanFieldEditor exportCompressed = new BooleanFieldEditor( Preferences.EXPORT_COMPRESSED,
+                "Compress exported files (gzip)", getFieldEditorParent() );
+        addField( exportCompressed );
     }
 }
@@ -55,4 +55,21 @@ public final class Preferences
     public static final String MAX_NODES = "maxNodes";
 
     public static final String MAX_TRAVERSAL_DEPTH = "maxTraversalDepth";
+    /**
+     * Maximum number of relationships of one type and direction to follow
+     * from a single node, 0 for no limit.
+     */
+    public static final String MAX_RELATIONSHIPS_PER_NODE = "maxRelationshipsPerNode";
+    /**
+     * Compress exported files with gzip.
+     */
+    public static final String EXPORT_COMPRESSED = "exportCompressed";
+    /**
+     * Maximum number of search results to show, 0 for no limit.
+     */
+    public static final String MAX_SEARCH_RESULTS = "maxSearchResults";
+    /**
+     * Maximum number of nodes to scan when a search can't use an index.
+     */
+    public static final String MAX_SCANNED_NODES = "maxScannedNodes";
 }
@@ -31,6 +31,7 @@ import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
 import org.neo4j.neoclipse.graphdb.GraphDbUtil;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
 import org.neo4j.neoclipse.property.PropertyTransform.PropertyHandler;
 import org.neo4j.neoclipse.view.Dialog;
 
@@ -138,7 +139,7 @@ public class PropertySource implements IPropertySource
                 {
                     return container.hasProperty( (String) id );
                 }
-            }, "check if property exists" ).get();
+            }, "check if property exists", TaskIntent.READ ).get();
         }
         catch ( Exception e )
         {
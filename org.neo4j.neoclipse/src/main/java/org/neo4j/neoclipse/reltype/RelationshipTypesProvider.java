@@ -38,6 +38,7 @@ import org.neo4j.neoclipse.event.NeoclipseEventListener;
 import org.neo4j.neoclipse.event.NeoclipseListenerList;
 import org.neo4j.neoclipse.graphdb.GraphCallable;
 import org.neo4j.neoclipse.graphdb.GraphDbUtil;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
 import org.neo4j.neoclipse.view.ErrorMessage;
 import org.neo4j.neoclipse.view.NeoGraphLabelProviderWrapper;
 
@@ -132,7 +133,7 @@ IStructuredContentProvider
                                 {
                             return GraphDbUtil.getRelationshipTypesFromDb( graphDb );
                                 }
-                    }, "get relationship types" ).get();
+                    }, "get relationship types", TaskIntent.READ ).get();
         }
         catch ( Exception e )
         {
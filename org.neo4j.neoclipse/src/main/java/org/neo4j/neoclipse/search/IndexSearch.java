@@ -18,6 +18,8 @@
  */
 package org.neo4j.neoclipse.search;
 
+import java.util.Collections;
+
 /**
  * Encapsulates an index lookup or search.
  * 
@@ -28,25 +30,64 @@ public class IndexSearch
     enum Mode
     {
         EXACT_MATCH,
-        QUERY;
+        QUERY,
+        /**
+         * Exact value of a property of labeled nodes.
+         */
+        LABEL_EXACT,
+        /**
+         * String property of labeled nodes starting with a prefix.
+         */
+        LABEL_PREFIX,
+        /**
+         * Property of labeled nodes within bounds, written as "from..to".
+         */
+        LABEL_RANGE,
+        /**
+         * Exact value of a node property, found by scanning all nodes.
+         */
+        SCAN;
+
+        boolean isLabelMode()
+        {
+            return this == LABEL_EXACT || this == LABEL_PREFIX || this == LABEL_RANGE;
+        }
     }
+    /**
+     * Separates the bounds of a range.
+     */
+    static final String RANGE_SEPARATOR = "..";
     private final Mode mode;
 
     private final String key;
     private final String valueOrQuery;
     private final Iterable<String> nodeIndexNames;
     private final Iterable<String> relationshipIndexNames;
+    private final Iterable<LabelProperty> labelProperties;
+    private final int scanLimit;
 
     private IndexSearch( final Mode mode, final String key,
             final String valueOrQuery,
             final Iterable<String> nodeIndexNames,
             final Iterable<String> relationshipIndexNames )
+    {
+        this( mode, key, valueOrQuery, nodeIndexNames, relationshipIndexNames,
+                Collections.<LabelProperty>emptyList(), 0 );
+    }
+
+    private IndexSearch( final Mode mode, final String key,
+            final String valueOrQuery,
+            final Iterable<String> nodeIndexNames,
+            final Iterable<String> relationshipIndexNames,
+            final Iterable<LabelProperty> labelProperties, final int scanLimit )
     {
         this.mode = mode;
         this.key = key;
         this.valueOrQuery = valueOrQuery;
         this.nodeIndexNames = nodeIndexNames;
         this.relationshipIndexNames = relationshipIndexNames;
+        this.labelProperties = labelProperties;
+        this.scanLimit = scanLimit;
     }
 
     public static IndexSearch exact( final String key,
@@ -67,6 +108,38 @@ public class IndexSearch
                 nodeIndexNames, relationshipIndexNames );
     }
 
+    /**
+     * Search labeled nodes by a property. Exact lookups seek the schema index
+     * where there is one; prefix and range lookups, and lookups without a
+     * schema index, scan the nodes of the label.
+     * 
+     * @param mode one of the label modes
+     * @param value the value, prefix or range
+     * @param labelProperties labels and keys to search
+     * @param scanLimit maximum number of nodes to scan per label, 0 to
+     *            only use schema indexes
+     */
+    static IndexSearch label( final Mode mode, final String value,
+            final Iterable<LabelProperty> labelProperties, final int scanLimit )
+    {
+        Iterable<String> none = Collections.emptyList();
+        return new IndexSearch( mode, null, value, none, none,
+                labelProperties, scanLimit );
+    }
+
+    /**
+     * Find nodes by a property value without an index, by scanning all
+     * nodes.
+     * 
+     * @param key the property key
+     * @param value the value
+     */
+    static IndexSearch scan( final String key, final String value )
+    {
+        Iterable<String> none = Collections.emptyList();
+        return new IndexSearch( Mode.SCAN, key, value, none, none );
+    }
+
     public Mode getMode()
     {
         return mode;
@@ -91,4 +164,37 @@ public class IndexSearch
     {
         return relationshipIndexNames;
     }
+
+    public Iterable<LabelProperty> getLabelProperties()
+    {
+        return labelProperties;
+    }
+
+    /**
+     * Maximum number of nodes to scan per label when a lookup can't use a
+     * schema index, 0 for no scanning.
+     */
+    public int getScanLimit()
+    {
+        return scanLimit;
+    }
+
+    /**
+     * The lower bound of a range, empty for none.
+     */
+    public String getLowerBound()
+    {
+        int separator = valueOrQuery.indexOf( RANGE_SEPARATOR );
+        return separator == -1 ? valueOrQuery : valueOrQuery.substring( 0, separator ).trim();
+    }
+
+    /**
+     * The upper bound of a range, empty for none.
+     */
+    public String getUpperBound()
+    {
+        int separator = valueOrQuery.indexOf( RANGE_SEPARATOR );
+        return separator == -1 ? valueOrQuery
+                : valueOrQuery.substring( separator + RANGE_SEPARATOR.length() ).trim();
+    }
 }
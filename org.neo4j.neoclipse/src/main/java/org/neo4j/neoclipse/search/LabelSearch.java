@@ -0,0 +1,146 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema.IndexState;
+import org.neo4j.neoclipse.property.PropertyTransform;
+
+/**
+ * Lookups by label and property: the schema index tells if a lookup can be
+ * a seek, values typed in as text are matched against property values of
+ * any type.
+ */
+public final class LabelSearch
+{
+    private LabelSearch()
+    {
+        // preventing instantiation
+    }
+
+    /**
+     * Check if an online schema index covers a label and property key. Has to
+     * be called from a graph task.
+     * 
+     * @param graphDb the database
+     * @param labelProperty label and key to look up
+     * @return true if lookups can use the schema index
+     */
+    public static boolean isIndexed( final GraphDatabaseService graphDb, final LabelProperty labelProperty )
+    {
+        for ( IndexDefinition index : graphDb.schema().getIndexes( DynamicLabel.label( labelProperty.getLabel() ) ) )
+        {
+            for ( String key : index.getPropertyKeys() )
+            {
+                if ( key.equals( labelProperty.getKey() )
+                     && graphDb.schema().getIndexState( index ) == IndexState.ONLINE )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The property values a text can stand for: the text itself, and a number
+     * or boolean if it reads as one.
+     * 
+     * @param text the text typed in
+     * @return values to look up
+     */
+    public static List<Object> candidates( final String text )
+    {
+        List<Object> values = new ArrayList<Object>( 2 );
+        values.add( text );
+        try
+        {
+            values.add( Long.valueOf( text ) );
+        }
+        catch ( NumberFormatException e )
+        {
+            try
+            {
+                values.add( Double.valueOf( text ) );
+            }
+            catch ( NumberFormatException e2 )
+            {
+                if ( "true".equals( text ) || "false".equals( text ) )
+                {
+                    values.add( Boolean.valueOf( text ) );
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Check if a property value matches a search.
+     * 
+     * @param search the search, in one of the label modes or scanning
+     * @param value the property value, may be null
+     * @return true if it matches
+     */
+    public static boolean matches( final IndexSearch search, final Object value )
+    {
+        if ( value == null )
+        {
+            return false;
+        }
+        switch ( search.getMode() )
+        {
+        case LABEL_PREFIX:
+            return value instanceof String && ( (String) value ).startsWith( search.getValueOrQuery() );
+        case LABEL_RANGE:
+            return compare( value, search.getLowerBound() ) >= 0 && compare( value, search.getUpperBound() ) <= 0;
+        default:
+            return search.getValueOrQuery().equals( PropertyTransform.render( value ) );
+        }
+    }
+
+    /**
+     * Compare a value to a bound typed in as text. Numbers compare as
+     * numbers, everything else as text. An empty bound is open, so the
+     * comparison goes in the direction of the caller.
+     */
+    private static int compare( final Object value, final String bound )
+    {
+        if ( bound.length() == 0 )
+        {
+            return 0;
+        }
+        if ( value instanceof Number )
+        {
+            try
+            {
+                return Double.compare( ( (Number) value ).doubleValue(), Double.parseDouble( bound ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                // compare as text
+            }
+        }
+        return PropertyTransform.render( value ).compareTo( bound );
+    }
+}
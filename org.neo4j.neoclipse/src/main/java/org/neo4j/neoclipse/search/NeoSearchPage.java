@@ -22,8 +22,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.eclipse.jface.dialogs.DialogPage;
+import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.search.ui.ISearchPage;
 import org.eclipse.search.ui.ISearchPageContainer;
 import org.eclipse.search.ui.NewSearchUI;
@@ -39,11 +42,17 @@ import org.eclipse.swt.widgets.Text;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeItem;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.schema.IndexDefinition;
 import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.graphdb.GraphCallable;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceEvent;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceEventListener;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
+import org.neo4j.neoclipse.preference.Preferences;
+import org.neo4j.neoclipse.view.ErrorMessage;
+import org.neo4j.tooling.GlobalGraphOperations;
 
 /**
  * This class represents a search page in the search dialog to perform
@@ -55,8 +64,13 @@ import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
  */
 public class NeoSearchPage extends DialogPage implements ISearchPage
 {
+    private static final int SCAN_MODE = 5;
+    private static final int LABEL_RANGE_MODE = 4;
+    private static final int LABEL_PREFIX_MODE = 3;
+    private static final int LABEL_EXACT_MODE = 2;
     private static final int QUERY_MODE = 1;
     private static final int EXACT_MODE = 0;
+    private static final String SCHEMA_INDEX_SUFFIX = " (schema index)";
     public static final String ID = "org.neo4j.neoclipse.search.NeoSearchPage";
     /**
      * Choose the index to search.
@@ -75,6 +89,7 @@ public class NeoSearchPage extends DialogPage implements ISearchPage
 
     private TreeItem nodeRoot;
     private TreeItem relRoot;
+    private TreeItem labelRoot;
     private Combo modeCombo;
     private GraphDbServiceEventListener listener;
     private GraphDbServiceManager gsm;
@@ -121,6 +136,10 @@ public class NeoSearchPage extends DialogPage implements ISearchPage
         modeCombo = new Combo( comp, SWT.READ_ONLY );
         modeCombo.add( "Exact matches", EXACT_MODE );
         modeCombo.add( "Query", QUERY_MODE );
+        modeCombo.add( "Label: exact value", LABEL_EXACT_MODE );
+        modeCombo.add( "Label: value prefix", LABEL_PREFIX_MODE );
+        modeCombo.add( "Label: value range (from..to)", LABEL_RANGE_MODE );
+        modeCombo.add( "Scan all nodes for an exact value (no index needed)", SCAN_MODE );
         modeCombo.select( EXACT_MODE );
 
         Label propertyLabel = new Label( comp, SWT.NONE );
@@ -193,7 +212,16 @@ public class NeoSearchPage extends DialogPage implements ISearchPage
     {
         String searchString = valueOrQueryField.getText();
         String propertyName = keyField.getText();
-        if ( nodeRoot != null )
+        int mode = modeCombo.getSelectionIndex();
+        if ( mode == LABEL_EXACT_MODE || mode == LABEL_PREFIX_MODE || mode == LABEL_RANGE_MODE )
+        {
+            return performLabelSearch( mode, searchString, propertyName );
+        }
+        if ( mode == SCAN_MODE )
+        {
+            return performScan( searchString, propertyName );
+        }
+        if ( nodeRoot != null || relRoot != null )
         {
             IndexSearch search;
             if ( modeCombo.getSelectionIndex() == QUERY_MODE )
@@ -213,6 +241,118 @@ public class NeoSearchPage extends DialogPage implements ISearchPage
         return false;
     }
 
+    /**
+     * Search labeled nodes. Lookups no schema index can serve need a scan,
+     * which the user has to agree to.
+     */
+    private boolean performLabelSearch( final int mode, final String value, final String key )
+    {
+        final List<LabelProperty> labelProperties = labelPropertiesFromRoot( key );
+        if ( labelProperties.isEmpty() )
+        {
+            MessageDialog.openInformation( getShell(), "Label search",
+                    "Check the labels or schema indexes to search. A label needs a key to be given." );
+            return false;
+        }
+        IndexSearch.Mode searchMode = mode == LABEL_EXACT_MODE ? IndexSearch.Mode.LABEL_EXACT
+                : mode == LABEL_PREFIX_MODE ? IndexSearch.Mode.LABEL_PREFIX : IndexSearch.Mode.LABEL_RANGE;
+        List<LabelProperty> unindexed = labelProperties;
+        if ( searchMode == IndexSearch.Mode.LABEL_EXACT )
+        {
+            try
+            {
+                unindexed = gsm.submitTask( new GraphCallable<List<LabelProperty>>()
+                {
+                    @Override
+                    public List<LabelProperty> call( final GraphDatabaseService graphDb )
+                    {
+                        List<LabelProperty> unindexed = new ArrayList<LabelProperty>();
+                        for ( LabelProperty labelProperty : labelProperties )
+                        {
+                            if ( !LabelSearch.isIndexed( graphDb, labelProperty ) )
+                            {
+                                unindexed.add( labelProperty );
+                            }
+                        }
+                        return unindexed;
+                    }
+                }, "check schema indexes", TaskIntent.READ ).get();
+            }
+            catch ( Exception e )
+            {
+                ErrorMessage.showDialog( "Label search", e );
+                return false;
+            }
+        }
+        int scanLimit = 0;
+        if ( !unindexed.isEmpty() )
+        {
+            scanLimit = Activator.getDefault().getPreferenceStore().getInt( Preferences.MAX_SCANNED_NODES );
+            String message = searchMode == IndexSearch.Mode.LABEL_EXACT ? "No online schema index covers "
+                    : "Schema indexes only serve exact lookups, so no index can be used for ";
+            message += unindexed + ".\n\nScan up to " + scanLimit + " nodes per label instead?";
+            if ( !MessageDialog.openQuestion( getShell(), "Label search", message ) )
+            {
+                return false;
+            }
+        }
+        NewSearchUI.runQueryInBackground( new NeoSearchQuery( IndexSearch.label( searchMode, value, labelProperties,
+                scanLimit ) ) );
+        return true;
+    }
+
+    /**
+     * Search all nodes for a property value, without using any index.
+     */
+    private boolean performScan( final String value, final String key )
+    {
+        if ( gsm.isRemote() )
+        {
+            MessageDialog.openInformation( getShell(), "Scan", "Scanning all nodes isn't supported over REST." );
+            return false;
+        }
+        if ( key.length() == 0 )
+        {
+            MessageDialog.openInformation( getShell(), "Scan", "Give the key of the property to look for." );
+            return false;
+        }
+        NewSearchUI.runQueryInBackground( new NeoSearchQuery( IndexSearch.scan( key, value ) ) );
+        return true;
+    }
+
+    /**
+     * Collect the checked labels and schema indexes. A checked schema index
+     * brings its own key, a label checked without any of its indexes uses
+     * the given key.
+     */
+    private List<LabelProperty> labelPropertiesFromRoot( final String key )
+    {
+        List<LabelProperty> labelProperties = new ArrayList<LabelProperty>();
+        if ( labelRoot == null )
+        {
+            return labelProperties;
+        }
+        for ( TreeItem labelItem : labelRoot.getItems() )
+        {
+            boolean indexChecked = false;
+            for ( TreeItem indexItem : labelItem.getItems() )
+            {
+                if ( indexItem.getChecked() )
+                {
+                    String indexKey = indexItem.getText();
+                    indexKey = indexKey.substring( 0, indexKey.length() - SCHEMA_INDEX_SUFFIX.length() );
+                    labelProperties.add( new LabelProperty( labelItem.getText(), indexKey ) );
+                    indexChecked = true;
+                }
+            }
+            if ( !indexChecked && labelItem.getChecked() && key.length() > 0 )
+            {
+                labelProperties.add( new LabelProperty( labelItem.getText(), key ) );
+            }
+        }
+        return labelProperties;
+    }
+
     private Iterable<String> namesFromRoot( final TreeItem treeItem )
     {
         if ( treeItem == null )
@@ -266,6 +406,7 @@ public class NeoSearchPage extends DialogPage implements ISearchPage
                     }
                 }, "Get relationship index names." );
         Arrays.sort( relIndexNames );
+        final Map<String, List<String>> labels = loadLabels();
         gsm.submitDisplayTask( new Runnable()
         {
             @Override
@@ -277,6 +418,7 @@ public class NeoSearchPage extends DialogPage implements ISearchPage
                     return;
                 }
                 indexTree.removeAll();
+                labelRoot = null;
                 if ( nodeIndexNames.length > 0 )
                 {
                     nodeRoot = new TreeItem( indexTree, SWT.None );
@@ -297,10 +439,72 @@ public class NeoSearchPage extends DialogPage implements ISearchPage
                         item.setText( name );
                     }
                 }
+                if ( !labels.isEmpty() )
+                {
+                    labelRoot = new TreeItem( indexTree, SWT.None );
+                    labelRoot.setText( "Labels" );
+                    for ( Map.Entry<String, List<String>> label : labels.entrySet() )
+                    {
+                        TreeItem item = new TreeItem( labelRoot, SWT.None );
+                        item.setText( label.getKey() );
+                        for ( String key : label.getValue() )
+                        {
+                            TreeItem indexItem = new TreeItem( item, SWT.None );
+                            indexItem.setText( key + SCHEMA_INDEX_SUFFIX );
+                        }
+                    }
+                }
             }
         }, "Add index names to the UI." );
     }
 
+    /**
+     * Read the labels in use and the keys of their schema indexes. Labels
+     * aren't listed over REST.
+     */
+    private Map<String, List<String>> loadLabels()
+    {
+        if ( gsm.isRemote() )
+        {
+            return Collections.emptyMap();
+        }
+        try
+        {
+            return gsm.submitTask( new GraphCallable<Map<String, List<String>>>()
+            {
+                @Override
+                public Map<String, List<String>> call( final GraphDatabaseService graphDb )
+                {
+                    Map<String, List<String>> labels = new TreeMap<String, List<String>>();
+                    for ( Label label : GlobalGraphOperations.at( graphDb ).getAllLabels() )
+                    {
+                        labels.put( label.name(), new ArrayList<String>() );
+                    }
+                    for ( IndexDefinition index : graphDb.schema().getIndexes() )
+                    {
+                        List<String> keys = labels.get( index.getLabel().name() );
+                        if ( keys == null )
+                        {
+                            keys = new ArrayList<String>();
+                            labels.put( index.getLabel().name(), keys );
+                        }
+                        for ( String key : index.getPropertyKeys() )
+                        {
+                            keys.add( key );
+                        }
+                        Collections.sort( keys );
+                    }
+                    return labels;
+                }
+            }, "Get labels and schema indexes.", TaskIntent.READ ).get();
+        }
+        catch ( Exception e )
+        {
+            e.printStackTrace();
+            return Collections.emptyMap();
+        }
+    }
+
     private static void checkPath( final TreeItem item, boolean checked,
             boolean grayed )
     {
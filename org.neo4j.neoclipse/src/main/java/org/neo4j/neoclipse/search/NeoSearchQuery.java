@@ -18,8 +18,17 @@
  */
 package org.neo4j.neoclipse.search;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -27,18 +36,26 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.search.ui.ISearchQuery;
 import org.eclipse.search.ui.ISearchResult;
+import org.neo4j.graphdb.DynamicLabel;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.graphdb.index.IndexHits;
 import org.neo4j.graphdb.index.IndexManager;
 import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.graphdb.GraphCallable;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
+import org.neo4j.neoclipse.preference.Preferences;
 import org.neo4j.neoclipse.view.ErrorMessage;
 import org.neo4j.neoclipse.view.UiHelper;
+import org.neo4j.tooling.GlobalGraphOperations;
 
 /**
  * This class represents a search query for Neo objects.
@@ -54,6 +71,26 @@ public class NeoSearchQuery implements ISearchQuery
     private final NeoSearchResult result;
 
     private final IndexSearch search;
+    /**
+     * Number of match ids delivered to the result at a time.
+     */
+    private static final int BATCH_SIZE = 200;
+    /**
+     * Units of work each task counts for in the progress monitor.
+     */
+    private static final int WORK_PER_TASK = 100;
+    /**
+     * How often to report progress, in milliseconds.
+     */
+    private static final long PROGRESS_INTERVAL = 200;
+    /**
+     * Number of node ids in a partition of a scan.
+     */
+    private static final int PARTITION_SIZE = 50000;
+    /**
+     * Node ids to scan between checks for cancellation.
+     */
+    private static final int SCAN_CHECK_INTERVAL = 1024;
 
     /**
      * The constructor.
@@ -121,25 +158,76 @@ public class NeoSearchQuery implements ISearchQuery
             return new Status( IStatus.ERROR, Activator.PLUGIN_ID, "There is no active Neo4j service." );
         }
 
+        int limit = Activator.getDefault().getPreferenceStore().getInt( Preferences.MAX_SEARCH_RESULTS );
+        AtomicInteger slots = new AtomicInteger( limit > 0 ? limit : Integer.MAX_VALUE );
+        final List<SearchTask> tasks = new ArrayList<SearchTask>();
+        for ( String indexName : search.getNodeIndexNames() )
+        {
+            tasks.add( new IndexTask( indexName, false, slots, monitor ) );
+        }
+        for ( String indexName : search.getRelationshipIndexNames() )
+        {
+            tasks.add( new IndexTask( indexName, true, slots, monitor ) );
+        }
+        for ( LabelProperty labelProperty : search.getLabelProperties() )
+        {
+            tasks.add( new LabelTask( labelProperty, slots, monitor ) );
+        }
+        if ( search.getMode() == IndexSearch.Mode.SCAN )
+        {
+            tasks.add( new ScanTask( slots, monitor ) );
+        }
+        UiHelper.asyncExec( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                result.clear();
+                for ( SearchTask task : tasks )
+                {
+                    result.addGroup( task.group );
+                }
+            }
+        } );
+        monitor.beginTask( "Searching", tasks.size() * WORK_PER_TASK );
         try
         {
-            gsm.submitTask( new GraphCallable<Boolean>()
+            // the indexes are searched concurrently on the reader lanes
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for ( SearchTask task : tasks )
             {
-                @Override
-                public Boolean call( final GraphDatabaseService graphDb )
+                futures.add( gsm.submitTask( task, "search " + task.group.getName(), TaskIntent.READ ) );
+            }
+            Exception failure = null;
+            int worked = 0;
+            for ( Future<Void> future : futures )
+            {
+                while ( true )
                 {
-                    final Iterable<PropertyContainer> matches = getMatchingNodesFromIndices( monitor, graphDb );
-                    UiHelper.asyncExec( new Runnable()
+                    try
+                    {
+                        future.get( PROGRESS_INTERVAL, TimeUnit.MILLISECONDS );
+                        break;
+                    }
+                    catch ( TimeoutException e )
+                    {
+                        worked = reportProgress( tasks, monitor, worked );
+                    }
+                    catch ( ExecutionException e )
                     {
-                        @Override
-                        public void run()
+                        if ( failure == null )
                         {
-                            result.setMatches( matches );
+                            failure = e;
                         }
-                    } );
-                    return true;
+                        break;
+                    }
                 }
-            }, "run search" ).get();
+                worked = reportProgress( tasks, monitor, worked );
+            }
+            if ( failure != null )
+            {
+                throw failure;
+            }
             if ( monitor.isCanceled() )
             {
                 return new Status( IStatus.CANCEL, Activator.PLUGIN_ID, "Cancelled." );
@@ -162,63 +250,505 @@ public class NeoSearchQuery implements ISearchQuery
                 ErrorMessage.showDialog( "Search error", e );
             }
         }
+        finally
+        {
+            UiHelper.asyncExec( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    result.setComplete();
+                }
+            } );
+            monitor.done();
+        }
         return null;
     }
 
-    private Iterable<PropertyContainer> getMatchingNodesFromIndices( final IProgressMonitor monitor,
-            final GraphDatabaseService graphDb )
+    /**
+     * Report the progress of the tasks, from the thread running the search.
+     * 
+     * @return the work reported so far
+     */
+    private static int reportProgress( final List<SearchTask> tasks, final IProgressMonitor monitor,
+            final int worked )
     {
-        List<PropertyContainer> matches = new LinkedList<PropertyContainer>();
-        IndexManager indexManager = graphDb.index();
-        for ( String indexName : search.getNodeIndexNames() )
+        double progress = 0;
+        for ( SearchTask task : tasks )
+        {
+            progress += task.getProgress();
+            String status = task.getStatus();
+            if ( status != null )
+            {
+                monitor.subTask( status );
+            }
+        }
+        int work = (int) ( progress * WORK_PER_TASK );
+        if ( work > worked )
+        {
+            monitor.worked( work - worked );
+            return work;
+        }
+        return worked;
+    }
+
+    private <T extends PropertyContainer> IndexHits<T> lookup( final Index<T> index )
+    {
+        switch ( search.getMode() )
         {
-            if ( !indexManager.existsForNodes( indexName ) )
+        case QUERY:
+            return index.query( search.getKey(), search.getValueOrQuery() );
+        default:
+            return index.get( search.getKey(), search.getValueOrQuery() );
+        }
+    }
+
+    /**
+     * Searches a single index or label and delivers the matches to its group
+     * in batches. The tasks of a search share the result limit.
+     */
+    private abstract class SearchTask implements GraphCallable<Void>
+    {
+        protected final SearchResultGroup group;
+        private final AtomicInteger slots;
+        protected final IProgressMonitor monitor;
+        private long[] batch = new long[BATCH_SIZE];
+        private int batchSize = 0;
+        private volatile boolean done = false;
+
+        SearchTask( final SearchResultGroup group, final AtomicInteger slots, final IProgressMonitor monitor )
+        {
+            this.group = group;
+            this.slots = slots;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public Void call( final GraphDatabaseService graphDb )
+        {
+            long start = System.nanoTime();
+            long totalCount = 0;
+            try
             {
-                continue;
+                if ( !monitor.isCanceled() )
+                {
+                    totalCount = search( graphDb );
+                }
             }
-            Index<Node> nodeIndex = indexManager.forNodes( indexName );
-            Iterable<Node> hits;
-            switch ( search.getMode() )
+            finally
             {
-            case EXACT_MATCH:
-                hits = nodeIndex.get( search.getKey(), search.getValueOrQuery() );
-                break;
-            case QUERY:
-                String key = search.getKey();
-                hits = nodeIndex.query( key, search.getValueOrQuery() );
-                break;
-            default:
-                hits = null;
+                flush();
+                done = true;
+                final long total = totalCount;
+                final long millis = ( System.nanoTime() - start ) / 1000000;
+                UiHelper.asyncExec( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        result.setComplete( group, total, millis );
+                    }
+                } );
             }
-            for ( Node hit : hits )
+            return null;
+        }
+
+        /**
+         * Run the search, handing matches to {@link #offer(long)}.
+         * 
+         * @return the number of matches, including those past the limit if
+         *         known
+         */
+        protected abstract long search( GraphDatabaseService graphDb );
+
+        /**
+         * How far the task has come, from 0 to 1. Can be called from any
+         * thread.
+         */
+        double getProgress()
+        {
+            return done ? 1 : 0;
+        }
+
+        /**
+         * Describe what the task is doing, for the progress monitor.
+         * 
+         * @return the status, null if there is nothing to say
+         */
+        String getStatus()
+        {
+            return null;
+        }
+
+        /**
+         * Add a match to the result. Can be called from several threads.
+         * 
+         * @param id the id of the matching node or relationship
+         * @return false when the limit is reached or the search is cancelled
+         */
+        protected synchronized boolean offer( final long id )
+        {
+            if ( slots.getAndDecrement() <= 0 )
             {
-                matches.add( hit );
+                return false;
             }
+            batch[batchSize++] = id;
+            if ( batchSize == BATCH_SIZE )
+            {
+                flush();
+                return !monitor.isCanceled();
+            }
+            return true;
         }
-        for ( String indexName : search.getRelationshipIndexNames() )
+
+        private synchronized void flush()
         {
-            if ( !indexManager.existsForRelationships( indexName ) )
+            if ( batchSize == 0 )
             {
-                continue;
+                return;
             }
-            Index<Relationship> relIndex = indexManager.forRelationships( indexName );
-            IndexHits<Relationship> hits;
-            switch ( search.getMode() )
+            final long[] matches = Arrays.copyOf( batch, batchSize );
+            batchSize = 0;
+            UiHelper.asyncExec( new Runnable()
             {
-            case EXACT_MATCH:
-                hits = relIndex.get( search.getKey(), search.getValueOrQuery() );
-                break;
-            case QUERY:
-                hits = relIndex.query( search.getKey(), search.getValueOrQuery() );
-                break;
-            default:
-                hits = null;
+                @Override
+                public void run()
+                {
+                    result.addMatches( group, matches );
+                }
+            } );
+        }
+    }
+
+    /**
+     * Searches a legacy index. Hits past the limit are only counted.
+     */
+    private class IndexTask extends SearchTask
+    {
+        private final boolean relationships;
+
+        IndexTask( final String indexName, final boolean relationships, final AtomicInteger slots,
+                final IProgressMonitor monitor )
+        {
+            super( new SearchResultGroup( indexName, relationships ? "relationships" : "nodes", relationships ),
+                    slots, monitor );
+            this.relationships = relationships;
+        }
+
+        @Override
+        protected long search( final GraphDatabaseService graphDb )
+        {
+            IndexManager indexManager = graphDb.index();
+            String indexName = group.getName();
+            if ( relationships && indexManager.existsForRelationships( indexName ) )
+            {
+                return collect( lookup( indexManager.forRelationships( indexName ) ) );
+            }
+            else if ( !relationships && indexManager.existsForNodes( indexName ) )
+            {
+                return collect( lookup( indexManager.forNodes( indexName ) ) );
             }
-            for ( Relationship hit : hits )
+            return 0;
+        }
+
+        /**
+         * Read index hits until the limit is reached or the search is
+         * cancelled, then close them.
+         * 
+         * @return the number of hits in the index
+         */
+        private long collect( final IndexHits<? extends PropertyContainer> hits )
+        {
+            try
             {
-                matches.add( hit );
+                while ( hits.hasNext() )
+                {
+                    PropertyContainer hit = hits.next();
+                    if ( !offer( hit instanceof Node ? ( (Node) hit ).getId() : ( (Relationship) hit ).getId() ) )
+                    {
+                        break;
+                    }
+                }
+                return hits.size();
+            }
+            finally
+            {
+                hits.close();
+            }
+        }
+    }
+
+    /**
+     * Searches the nodes of a label by a property, seeking the schema index
+     * when there is one and otherwise scanning up to the scan limit.
+     */
+    private class LabelTask extends SearchTask
+    {
+        private final LabelProperty labelProperty;
+
+        LabelTask( final LabelProperty labelProperty, final AtomicInteger slots, final IProgressMonitor monitor )
+        {
+            super( new SearchResultGroup( labelProperty.toString(), "label", false ), slots, monitor );
+            this.labelProperty = labelProperty;
+        }
+
+        @Override
+        protected long search( final GraphDatabaseService graphDb )
+        {
+            Label label = DynamicLabel.label( labelProperty.getLabel() );
+            String key = labelProperty.getKey();
+            long count = 0;
+            if ( search.getMode() == IndexSearch.Mode.LABEL_EXACT && LabelSearch.isIndexed( graphDb, labelProperty ) )
+            {
+                group.setKind( "schema index seek" );
+                for ( Object value : LabelSearch.candidates( search.getValueOrQuery() ) )
+                {
+                    ResourceIterator<Node> hits = graphDb.findNodesByLabelAndProperty( label, key, value ).iterator();
+                    try
+                    {
+                        while ( hits.hasNext() )
+                        {
+                            count++;
+                            if ( !offer( hits.next().getId() ) )
+                            {
+                                return count;
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        hits.close();
+                    }
+                }
+                return count;
+            }
+            if ( search.getScanLimit() == 0 )
+            {
+                group.setKind( "no schema index, not scanned" );
+                return 0;
+            }
+            group.setKind( "label scan" );
+            ResourceIterator<Node> nodes = GlobalGraphOperations.at( graphDb ).getAllNodesWithLabel( label ).iterator();
+            try
+            {
+                int scanned = 0;
+                while ( nodes.hasNext() && scanned < search.getScanLimit() )
+                {
+                    Node node = nodes.next();
+                    scanned++;
+                    if ( LabelSearch.matches( search, node.getProperty( key, null ) ) )
+                    {
+                        count++;
+                        if ( !offer( node.getId() ) )
+                        {
+                            return count;
+                        }
+                    }
+                }
+                if ( nodes.hasNext() )
+                {
+                    group.setKind( "label scan, stopped after " + search.getScanLimit() + " nodes" );
+                }
+            }
+            finally
+            {
+                nodes.close();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Scans all nodes for a property value, when there is no index to use.
+     * The node id space is cut into partitions that fork-join workers scan in
+     * parallel, each in a read transaction of its own. If the size of the id
+     * space can't be told, all nodes are scanned in a row instead. Runs in a
+     * read task, so the database can't be stopped during the scan.
+     */
+    private class ScanTask extends SearchTask
+    {
+        private final AtomicInteger partitionsDone = new AtomicInteger();
+        private final AtomicLong scanned = new AtomicLong();
+        /**
+         * Set when the result limit is reached.
+         */
+        private volatile boolean stopped = false;
+        private volatile int partitions = 0;
+        private volatile long highestId = 0;
+
+        ScanTask( final AtomicInteger slots, final IProgressMonitor monitor )
+        {
+            super( new SearchResultGroup( search.getKey(), "scan of all nodes", false ), slots, monitor );
+        }
+
+        @Override
+        protected long search( final GraphDatabaseService graphDb )
+        {
+            highestId = NodeIdSpace.highestNodeId( graphDb );
+            if ( highestId < 0 )
+            {
+                group.setKind( "sequential scan of all nodes" );
+                return scanAll( graphDb );
+            }
+            partitions = (int) ( highestId / PARTITION_SIZE + 1 );
+            ForkJoinPool pool = new ForkJoinPool();
+            try
+            {
+                return pool.invoke( new ScanPartitions( graphDb, 0, partitions ) );
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+
+        @Override
+        double getProgress()
+        {
+            int total = partitions;
+            return total == 0 ? super.getProgress() : partitionsDone.get() / (double) total;
+        }
+
+        @Override
+        String getStatus()
+        {
+            if ( partitions == 0 )
+            {
+                long done = scanned.get();
+                return done == 0 ? null : "Scanned " + done + " nodes";
+            }
+            return "Scanned " + scanned.get() + " of " + ( highestId + 1 ) + " node ids, " + partitionsDone.get()
+                   + " of " + partitions + " partitions done";
+        }
+
+        /**
+         * Scan all nodes in a row, in the transaction of the read task.
+         * 
+         * @return the number of matches
+         */
+        private long scanAll( final GraphDatabaseService graphDb )
+        {
+            long count = 0;
+            long done = 0;
+            for ( Node node : GlobalGraphOperations.at( graphDb ).getAllNodes() )
+            {
+                if ( ++done % SCAN_CHECK_INTERVAL == 0 )
+                {
+                    scanned.addAndGet( SCAN_CHECK_INTERVAL );
+                    if ( monitor.isCanceled() )
+                    {
+                        return count;
+                    }
+                }
+                if ( LabelSearch.matches( search, node.getProperty( search.getKey(), null ) ) )
+                {
+                    count++;
+                    if ( !offer( node.getId() ) )
+                    {
+                        break;
+                    }
+                }
+            }
+            scanned.addAndGet( done % SCAN_CHECK_INTERVAL );
+            return count;
+        }
+
+        /**
+         * Scan one partition of the node id space. There is no cheap way to
+         * tell whether an id is in use, so every unused id, in a store with
+         * many deleted nodes, costs a NotFoundException being thrown and
+         * caught.
+         * 
+         * @return the number of matches
+         */
+        private long scanPartition( final GraphDatabaseService graphDb, final int partition )
+        {
+            if ( stopped || monitor.isCanceled() )
+            {
+                partitionsDone.incrementAndGet();
+                return 0;
+            }
+            long count = 0;
+            long start = (long) partition * PARTITION_SIZE;
+            long end = Math.min( start + PARTITION_SIZE, highestId + 1 );
+            long id = start;
+            long reported = start;
+            Transaction tx = graphDb.beginTx();
+            try
+            {
+                for ( ; id < end; id++ )
+                {
+                    if ( id - reported == SCAN_CHECK_INTERVAL )
+                    {
+                        scanned.addAndGet( SCAN_CHECK_INTERVAL );
+                        reported = id;
+                        if ( stopped || monitor.isCanceled() )
+                        {
+                            break;
+                        }
+                    }
+                    Object value;
+                    try
+                    {
+                        value = graphDb.getNodeById( id ).getProperty( search.getKey(), null );
+                    }
+                    catch ( NotFoundException e )
+                    {
+                        // unused id, or deleted meanwhile; the exception is
+                        // the only way to tell
+                        continue;
+                    }
+                    if ( LabelSearch.matches( search, value ) )
+                    {
+                        count++;
+                        if ( !offer( id ) )
+                        {
+                            stopped = true;
+                            break;
+                        }
+                    }
+                }
+                tx.success();
+            }
+            finally
+            {
+                tx.finish();
+                scanned.addAndGet( id - reported );
+                partitionsDone.incrementAndGet();
+            }
+            return count;
+        }
+
+        /**
+         * Splits a range of partitions until a single partition is left.
+         */
+        private class ScanPartitions extends RecursiveTask<Long>
+        {
+            private static final long serialVersionUID = 1L;
+            private final transient GraphDatabaseService graphDb;
+            private final int from;
+            private final int to;
+
+            ScanPartitions( final GraphDatabaseService graphDb, final int from, final int to )
+            {
+                this.graphDb = graphDb;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected Long compute()
+            {
+                if ( to - from == 1 )
+                {
+                    return scanPartition( graphDb, from );
+                }
+                int middle = ( from + to ) >>> 1;
+                ScanPartitions first = new ScanPartitions( graphDb, from, middle );
+                first.fork();
+                long count = new ScanPartitions( graphDb, middle, to ).compute();
+                return count + first.join();
             }
         }
-        return matches;
     }
 }
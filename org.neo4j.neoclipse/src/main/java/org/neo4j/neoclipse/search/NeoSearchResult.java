@@ -28,7 +28,6 @@ import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.search.ui.ISearchQuery;
 import org.eclipse.search.ui.ISearchResult;
 import org.eclipse.search.ui.ISearchResultListener;
-import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.neoclipse.Icons;
 
 /**
@@ -38,14 +37,35 @@ import org.neo4j.neoclipse.Icons;
  */
 public class NeoSearchResult implements ISearchResult
 {
+    /**
+     * How the matches are grouped in the result tree.
+     */
+    public enum Grouping
+    {
+        /**
+         * A group for each index or label searched.
+         */
+        INDEX,
+        /**
+         * A group for all nodes and one for all relationships.
+         */
+        TYPE;
+    }
+
     /**
      * The query to which this result belongs.
      */
     private final NeoSearchQuery query;
     /**
-     * The found matches.
+     * The found matches, grouped by index.
      */
-    private Iterable<PropertyContainer> matches;
+    private final List<SearchResultGroup> groups = new ArrayList<SearchResultGroup>();
+    /**
+     * The same matches, grouped by entity type.
+     */
+    private SearchResultGroup nodeGroup;
+    private SearchResultGroup relationshipGroup;
+    private boolean complete = false;
     /**
      * The observers.
      */
@@ -57,30 +77,183 @@ public class NeoSearchResult implements ISearchResult
     public NeoSearchResult( final NeoSearchQuery query )
     {
         this.query = query;
-        // we have to initialize an empty list, as the result will already be
-        // shown before
-        // the search is actually started
-        this.matches = Collections.emptyList();
         listeners = new ArrayList<ISearchResultListener>();
+        createTypeGroups();
+    }
+
+    private void createTypeGroups()
+    {
+        nodeGroup = new SearchResultGroup( "Nodes", "no searches", false );
+        relationshipGroup = new SearchResultGroup( "Relationships", "no searches", true );
+    }
+
+    /**
+     * Returns the matches grouped by the index they were found in. Matches
+     * are added while the search runs, so the result is only to be used from
+     * the UI thread.
+     */
+    public List<SearchResultGroup> getGroups()
+    {
+        return Collections.unmodifiableList( groups );
+    }
+
+    /**
+     * Returns the groups to show for a way of grouping the matches. Groups
+     * by type are only returned once they have searches.
+     */
+    public List<SearchResultGroup> getGroups( final Grouping grouping )
+    {
+        if ( grouping == Grouping.INDEX )
+        {
+            return getGroups();
+        }
+        List<SearchResultGroup> typeGroups = new ArrayList<SearchResultGroup>( 2 );
+        for ( SearchResultGroup group : new SearchResultGroup[] { nodeGroup, relationshipGroup } )
+        {
+            if ( countSearches( group.isRelationships() ) > 0 )
+            {
+                typeGroups.add( group );
+            }
+        }
+        return typeGroups;
     }
 
     /**
-     * Returns the found nodes for the search expression.
+     * Returns the group by type that the matches of a group are also in.
      */
-    public Iterable<PropertyContainer> getMatches()
+    public SearchResultGroup getTypeGroup( final SearchResultGroup group )
     {
-        return matches;
+        return group.isRelationships() ? relationshipGroup : nodeGroup;
+    }
+
+    private int countSearches( final boolean relationships )
+    {
+        int count = 0;
+        for ( SearchResultGroup group : groups )
+        {
+            if ( group.isRelationships() == relationships )
+            {
+                count++;
+            }
+        }
+        return count;
     }
 
     /**
-     * Sets the matches. The registered listeners will be notified.
+     * Remove all matches before the search is run (again). The registered
+     * listeners will be notified.
      */
-    public void setMatches( final Iterable<PropertyContainer> matches )
+    public void clear()
     {
-        this.matches = matches;
+        groups.clear();
+        createTypeGroups();
+        complete = false;
         fireSearchResultEvent();
     }
 
+    /**
+     * Add a group for an index about to be searched. The registered listeners
+     * will be notified.
+     * 
+     * @param group the group to add
+     */
+    public void addGroup( final SearchResultGroup group )
+    {
+        groups.add( group );
+        int searches = countSearches( group.isRelationships() );
+        getTypeGroup( group ).setKind( searches == 1 ? "1 search" : searches + " searches" );
+        fireSearchResultEvent( new NeoSearchResultEvent( this, group, null ) );
+    }
+
+    /**
+     * Add a batch of matches to a group. The registered listeners will be
+     * notified.
+     * 
+     * @param group the group the matches belong to
+     * @param batch the ids of the matches to add
+     */
+    public void addMatches( final SearchResultGroup group, final long[] batch )
+    {
+        group.addMatches( batch );
+        getTypeGroup( group ).addMatches( batch );
+        fireSearchResultEvent( new NeoSearchResultEvent( this, group, batch ) );
+    }
+
+    /**
+     * Mark the search of a group as finished. The registered listeners will
+     * be notified.
+     * 
+     * @param group the group
+     * @param totalCount the number of matches in the index
+     * @param millis time the search of the index took
+     */
+    public void setComplete( final SearchResultGroup group, final long totalCount, final long millis )
+    {
+        group.setComplete( totalCount, millis );
+        boolean typeComplete = true;
+        long typeTotal = 0;
+        long typeMillis = 0;
+        for ( SearchResultGroup other : groups )
+        {
+            if ( other.isRelationships() == group.isRelationships() )
+            {
+                typeComplete &= other.isComplete();
+                typeTotal += other.getTotalCount();
+                // the searches run concurrently, the slowest one took longest
+                typeMillis = Math.max( typeMillis, other.getMillis() );
+            }
+        }
+        if ( typeComplete )
+        {
+            getTypeGroup( group ).setComplete( typeTotal, typeMillis );
+        }
+        fireSearchResultEvent( new NeoSearchResultEvent( this, group, null ) );
+    }
+
+    /**
+     * Mark the search as finished. The registered listeners will be notified.
+     */
+    public void setComplete()
+    {
+        complete = true;
+        fireSearchResultEvent( new NeoSearchResultEvent( this, null, null ) );
+    }
+
+    /**
+     * Get the number of matches delivered.
+     */
+    public int getMatchCount()
+    {
+        int count = 0;
+        for ( SearchResultGroup group : groups )
+        {
+            count += group.getMatchCount();
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of matches in the searched indexes, known once the
+     * search is complete.
+     */
+    public long getTotalCount()
+    {
+        long count = 0;
+        for ( SearchResultGroup group : groups )
+        {
+            count += group.getTotalCount();
+        }
+        return count;
+    }
+
+    /**
+     * Check if the search has finished.
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
     /**
      * Returns a neo image descriptor.
      */
@@ -97,7 +270,28 @@ public class NeoSearchResult implements ISearchResult
     @Override
     public String getLabel()
     {
-        return "Neo4j - '" + query.getExpression() + "'";
+        return "Neo4j - '" + query.getExpression() + "' - " + getCountLabel();
+    }
+
+    /**
+     * Describe the number of matches, like "10 of 250 matches".
+     */
+    public String getCountLabel()
+    {
+        int matchCount = getMatchCount();
+        long totalCount = getTotalCount();
+        StringBuilder str = new StringBuilder( 32 );
+        str.append( matchCount );
+        if ( complete && totalCount > matchCount )
+        {
+            str.append( " of " ).append( totalCount );
+        }
+        str.append( matchCount == 1 && totalCount <= 1 ? " match" : " matches" );
+        if ( !complete )
+        {
+            str.append( " so far" );
+        }
+        return str.toString();
     }
 
     /**
@@ -144,7 +338,11 @@ public class NeoSearchResult implements ISearchResult
      */
     protected void fireSearchResultEvent()
     {
-        final NeoSearchResultEvent e = new NeoSearchResultEvent( this );
+        fireSearchResultEvent( new NeoSearchResultEvent( this ) );
+    }
+
+    private void fireSearchResultEvent( final NeoSearchResultEvent e )
+    {
         for ( int i = 0; i < listeners.size(); i++ )
         {
             final ISearchResultListener l = listeners.get( i );
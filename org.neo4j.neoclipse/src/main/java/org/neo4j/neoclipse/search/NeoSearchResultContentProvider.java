@@ -18,84 +18,309 @@
  */
 package org.neo4j.neoclipse.search;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.neoclipse.Activator;
+import org.neo4j.neoclipse.graphdb.GraphCallable;
+import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
+import org.neo4j.neoclipse.search.NeoSearchResult.Grouping;
+import org.neo4j.neoclipse.view.NeoGraphLabelProvider;
+import org.neo4j.neoclipse.view.NeoGraphLabelProviderWrapper;
+import org.neo4j.neoclipse.view.UiHelper;
 
 /**
  * This is the content provider for populating the result list tree viewer.
+ * The tree is virtual: groups only hold the ids of their matches, and the
+ * rows are made a page at a time when the tree asks for them. They show their
+ * ids at first, the text of all matches on the page is then read in one go in
+ * the background. Only a few pages are kept. Grouping and sorting work on the
+ * ids alone.
  * 
  * @author Peter H&auml;nsgen
  */
-public class NeoSearchResultContentProvider implements ITreeContentProvider
+public class NeoSearchResultContentProvider implements ILazyTreeContentProvider
 {
-    private final List<PropertyContainer> list = new ArrayList<PropertyContainer>();
+    /**
+     * Number of rows made at a time.
+     */
+    private static final int PAGE_SIZE = 100;
+    /**
+     * Number of pages to keep, has to cover the visible rows.
+     */
+    private static final int CACHED_PAGES = 20;
 
+    private final TreeViewer viewer;
+    private NeoSearchResult result;
+    private Grouping grouping = Grouping.INDEX;
+    private boolean sortedById = false;
     /**
-     * Called when the input has changed, does nothing.
+     * Pages of rows, by group and page number.
      */
-    @Override
-    public void inputChanged( final Viewer viewer, final Object oldInput,
-            final Object newInput )
+    private final Map<List<Object>, SearchMatch[]> pages = new LinkedHashMap<List<Object>, SearchMatch[]>(
+            CACHED_PAGES, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<List<Object>, SearchMatch[]> eldest )
+        {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    /**
+     * @param viewer a viewer created with <code>SWT.VIRTUAL</code>
+     */
+    public NeoSearchResultContentProvider( final TreeViewer viewer )
+    {
+        this.viewer = viewer;
+    }
+
+    public Grouping getGrouping()
+    {
+        return grouping;
+    }
+
+    /**
+     * Change how matches are grouped. The viewer has to be refreshed.
+     */
+    public void setGrouping( final Grouping grouping )
+    {
+        this.grouping = grouping;
+        pages.clear();
+    }
+
+    public boolean isSortedById()
     {
-        // does nothing
+        return sortedById;
     }
 
     /**
-     * Expects the results of a neo search.
+     * Change the order of the matches in a group, by id or in the order they
+     * were found in. The viewer has to be refreshed.
      */
+    public void setSortedById( final boolean sortedById )
+    {
+        this.sortedById = sortedById;
+        pages.clear();
+    }
+
+    /**
+     * Get the groups shown at the top of the tree.
+     */
+    public List<SearchResultGroup> getGroups()
+    {
+        if ( result == null )
+        {
+            return Collections.emptyList();
+        }
+        return result.getGroups( grouping );
+    }
+
+    /**
+     * Get the group in the tree that shows the matches of a searched index.
+     */
+    public SearchResultGroup getShownGroup( final SearchResultGroup group )
+    {
+        return grouping == Grouping.INDEX ? group : result.getTypeGroup( group );
+    }
+
+    /**
+     * Let the provider know that matches were added to a shown group. Rows
+     * already made stay valid, unless they are sorted by id.
+     */
+    public void matchesAdded( final SearchResultGroup group )
+    {
+        if ( !sortedById )
+        {
+            return;
+        }
+        Iterator<List<Object>> keys = pages.keySet().iterator();
+        while ( keys.hasNext() )
+        {
+            if ( keys.next().get( 0 ) == group )
+            {
+                keys.remove();
+            }
+        }
+    }
+
     @Override
-    public Object[] getElements( final Object inputElement )
-    {
-        NeoSearchResult result = (NeoSearchResult) inputElement;
-        Iterable<PropertyContainer> matches = result.getMatches();
-        // TODO make search results being added to the list
-        // and the UI updated during the search.
-        list.clear();
-        // the actual search are not performed until
-        // this iterator is performed.
-        // so this should be run with frequent
-        // updates of the UI somehow.
-        for ( PropertyContainer entity : matches )
-        {
-            list.add( entity );
-        }
-        return list.toArray();
+    public void updateElement( final Object parent, final int index )
+    {
+        if ( parent instanceof NeoSearchResult )
+        {
+            List<SearchResultGroup> groups = getGroups();
+            if ( index < groups.size() )
+            {
+                SearchResultGroup group = groups.get( index );
+                viewer.replace( parent, index, group );
+                viewer.setChildCount( group, group.getMatchCount() );
+            }
+        }
+        else if ( parent instanceof SearchResultGroup )
+        {
+            SearchResultGroup group = (SearchResultGroup) parent;
+            if ( index >= group.getMatchCount() )
+            {
+                return;
+            }
+            int page = index / PAGE_SIZE;
+            int offset = index - page * PAGE_SIZE;
+            List<Object> key = Arrays.<Object>asList( group, page );
+            SearchMatch[] matches = pages.get( key );
+            if ( matches == null || offset >= matches.length )
+            {
+                // not made yet, or made before the group had this row
+                matches = makePage( group, page );
+                pages.put( key, matches );
+            }
+            viewer.replace( parent, index, matches[offset] );
+            viewer.setChildCount( matches[offset], 0 );
+        }
+    }
+
+    /**
+     * Make the rows of a page, showing their ids. The text of all its matches
+     * is read in one read task, the rows are updated when it's done.
+     */
+    private SearchMatch[] makePage( final SearchResultGroup group, final int page )
+    {
+        int first = page * PAGE_SIZE;
+        final SearchMatch[] matches = new SearchMatch[Math.min( PAGE_SIZE, group.getMatchCount() - first )];
+        for ( int i = 0; i < matches.length; i++ )
+        {
+            matches[i] = new SearchMatch( group, group.getId( first + i, sortedById ) );
+        }
+        final String[] texts = new String[matches.length];
+        GraphDbServiceManager gsm = Activator.getDefault().getGraphDbServiceManager();
+        if ( !gsm.isRunning() )
+        {
+            showTexts( matches, texts );
+            return matches;
+        }
+        final NeoGraphLabelProvider labelProvider = NeoGraphLabelProviderWrapper.getInstance();
+        final boolean relationships = group.isRelationships();
+        try
+        {
+            gsm.submitTask( new GraphCallable<Void>()
+            {
+                @Override
+                public Void call( final GraphDatabaseService graphDb )
+                {
+                    try
+                    {
+                        for ( int i = 0; i < matches.length; i++ )
+                        {
+                            long id = matches[i].getId();
+                            try
+                            {
+                                PropertyContainer entity = relationships ? graphDb.getRelationshipById( id )
+                                        : graphDb.getNodeById( id );
+                                texts[i] = labelProvider.getEntityText( entity );
+                            }
+                            catch ( NotFoundException e )
+                            {
+                                // deleted since
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        UiHelper.asyncExec( new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                showTexts( matches, texts );
+                            }
+                        } );
+                    }
+                    return null;
+                }
+            }, "read search matches", TaskIntent.READ );
+        }
+        catch ( RuntimeException e )
+        {
+            // the database is going away
+            e.printStackTrace();
+            showTexts( matches, texts );
+        }
+        return matches;
     }
 
     /**
-     * Returns an empty array, as there is no hierarchical structure.
+     * Put the texts read into the rows. Has to be called from the UI thread.
      */
+    private void showTexts( final SearchMatch[] matches, final String[] texts )
+    {
+        for ( int i = 0; i < matches.length; i++ )
+        {
+            matches[i].setText( texts[i] == null ? matches[i].getId() + " (not found)" : texts[i] );
+        }
+        if ( !viewer.getControl().isDisposed() )
+        {
+            viewer.update( matches, null );
+        }
+    }
+
     @Override
-    public Object[] getChildren( final Object parentElement )
+    public void updateChildCount( final Object element, final int currentChildCount )
     {
-        return new Object[0];
+        int count = 0;
+        if ( element instanceof NeoSearchResult )
+        {
+            count = getGroups().size();
+        }
+        else if ( element instanceof SearchResultGroup )
+        {
+            count = ( (SearchResultGroup) element ).getMatchCount();
+        }
+        if ( count != currentChildCount )
+        {
+            viewer.setChildCount( element, count );
+        }
     }
 
     /**
-     * Returns null, as there is no hierarchical structure.
+     * Returns the group of a match, or the result of a group.
      */
     @Override
     public Object getParent( final Object element )
     {
+        if ( element instanceof SearchMatch )
+        {
+            return ( (SearchMatch) element ).getGroup();
+        }
+        if ( element instanceof SearchResultGroup )
+        {
+            return result;
+        }
         return null;
     }
 
-    /**
-     * Returns false, no hierarchical views supported.
-     */
     @Override
-    public boolean hasChildren( final Object element )
+    public void inputChanged( final Viewer viewer, final Object oldInput, final Object newInput )
     {
-        return false;
+        result = (NeoSearchResult) newInput;
+        pages.clear();
     }
 
     @Override
     public void dispose()
     {
-        // nothing here
+        pages.clear();
     }
 }
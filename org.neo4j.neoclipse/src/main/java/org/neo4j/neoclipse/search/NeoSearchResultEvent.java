@@ -28,12 +28,46 @@ import org.eclipse.search.ui.SearchResultEvent;
 public class NeoSearchResultEvent extends SearchResultEvent
 {
     private static final long serialVersionUID = 1L;
+    private final transient SearchResultGroup group;
+    private final transient long[] added;
 
     /**
      * The constructor.
      */
     protected NeoSearchResultEvent( final ISearchResult searchResult )
+    {
+        this( searchResult, null, null );
+    }
+
+    /**
+     * Create an event for a group that was added or changed, or for matches
+     * added to a group.
+     */
+    protected NeoSearchResultEvent( final ISearchResult searchResult, final SearchResultGroup group,
+            final long[] added )
     {
         super( searchResult );
+        this.group = group;
+        this.added = added;
+    }
+
+    /**
+     * Get the group that changed.
+     * 
+     * @return the group, null if not about a single group
+     */
+    public SearchResultGroup getGroup()
+    {
+        return group;
+    }
+
+    /**
+     * Get the ids of the matches that were added to the group.
+     * 
+     * @return added ids, null if no matches were added
+     */
+    public long[] getAdded()
+    {
+        return added;
     }
 }
@@ -18,8 +18,12 @@
  */
 package org.neo4j.neoclipse.search;
 
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IMenuManager;
+import org.eclipse.jface.action.Separator;
 import org.eclipse.jface.viewers.DoubleClickEvent;
 import org.eclipse.jface.viewers.IDoubleClickListener;
+import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.search.ui.ISearchResult;
@@ -28,18 +32,26 @@ import org.eclipse.search.ui.ISearchResultPage;
 import org.eclipse.search.ui.ISearchResultViewPart;
 import org.eclipse.search.ui.SearchResultEvent;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.TreeItem;
+import org.eclipse.swt.widgets.Widget;
 import org.eclipse.ui.IMemento;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.part.Page;
+import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
-import org.neo4j.graphdb.Relationship;
 import org.neo4j.neoclipse.Activator;
+import org.neo4j.neoclipse.Icons;
+import org.neo4j.neoclipse.action.Actions;
+import org.neo4j.neoclipse.graphdb.GraphCallable;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceEvent;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceEventListener;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
-import org.neo4j.neoclipse.view.NeoGraphLabelProviderWrapper;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
+import org.neo4j.neoclipse.search.NeoSearchResult.Grouping;
+import org.neo4j.neoclipse.view.ErrorMessage;
 import org.neo4j.neoclipse.view.NeoGraphViewPart;
 
 /**
@@ -58,8 +70,15 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
      * The list of found nodes.
      */
     private TreeViewer viewer;
+    private NeoSearchResultContentProvider contentProvider;
     private GraphDbServiceManager gsm;
     private GraphDbServiceEventListener listener;
+    private ISearchResultViewPart part;
+    /**
+     * The result shown, and the listener observing it.
+     */
+    private ISearchResult currentResult;
+    private ISearchResultListener resultListener;
 
     /**
      * Creates the control
@@ -67,10 +86,13 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
     @Override
     public void createControl( final Composite parent )
     {
-        viewer = new TreeViewer( parent, SWT.NONE );
-        viewer.setContentProvider( new NeoSearchResultContentProvider() );
-        viewer.setLabelProvider( NeoGraphLabelProviderWrapper.getInstance() );
+        viewer = new TreeViewer( parent, SWT.VIRTUAL );
+        viewer.setUseHashlookup( true );
+        contentProvider = new NeoSearchResultContentProvider( viewer );
+        viewer.setContentProvider( contentProvider );
+        viewer.setLabelProvider( new NeoSearchResultLabelProvider() );
         viewer.addDoubleClickListener( new NeoSearchResultDoubleClickListener() );
+        fillViewMenu( getSite().getActionBars().getMenuManager() );
 
         gsm = Activator.getDefault().getGraphDbServiceManager();
 
@@ -90,6 +112,69 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
         gsm.addServiceEventListener( listener );
     }
 
+    /**
+     * Add the actions for grouping and sorting the matches.
+     */
+    private void fillViewMenu( final IMenuManager manager )
+    {
+        Action groupByIndex = new Action( null, Action.AS_RADIO_BUTTON )
+        {
+            @Override
+            public void run()
+            {
+                if ( isChecked() )
+                {
+                    contentProvider.setGrouping( Grouping.INDEX );
+                    showResult();
+                }
+            }
+        };
+        Actions.GROUP_BY_INDEX.initialize( groupByIndex );
+        groupByIndex.setChecked( true );
+        Action groupByType = new Action( null, Action.AS_RADIO_BUTTON )
+        {
+            @Override
+            public void run()
+            {
+                if ( isChecked() )
+                {
+                    contentProvider.setGrouping( Grouping.TYPE );
+                    showResult();
+                }
+            }
+        };
+        Actions.GROUP_BY_TYPE.initialize( groupByType );
+        Action sortById = new Action( null, Action.AS_CHECK_BOX )
+        {
+            @Override
+            public void run()
+            {
+                contentProvider.setSortedById( isChecked() );
+                showResult();
+            }
+        };
+        Actions.SORT_BY_ID.initialize( sortById );
+        manager.add( groupByIndex );
+        manager.add( groupByType );
+        manager.add( new Separator() );
+        manager.add( sortById );
+    }
+
+    /**
+     * Show the current result again, with all groups expanded.
+     */
+    private void showResult()
+    {
+        viewer.setInput( currentResult );
+        for ( SearchResultGroup group : contentProvider.getGroups() )
+        {
+            if ( group.getMatchCount() > 0 )
+            {
+                viewer.setExpandedState( group, true );
+            }
+        }
+    }
+
     private void clearResult()
     {
         // TODO this doesn't work
@@ -146,7 +231,7 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
         {
             return "Neo4j - Matches for '"
             + ( (NeoSearchQuery) result.getQuery() ).getExpression()
-            + "'";
+            + "' (" + result.getCountLabel() + ")";
         }
         else
         {
@@ -160,11 +245,16 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
     @Override
     public void setInput( final ISearchResult result, final Object uiState )
     {
+        if ( currentResult != null )
+        {
+            currentResult.removeListener( resultListener );
+        }
+        currentResult = result;
         setInput( result );
         if ( result != null )
         {
             // observe changes in the result and update the view accordingly
-            result.addListener( new ISearchResultListener()
+            resultListener = new ISearchResultListener()
             {
                 @Override
                 public void searchResultChanged( final SearchResultEvent e )
@@ -175,11 +265,58 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
                                 @Override
                                 public void run()
                                 {
-                                    setInput( e.getSearchResult() );
+                                    resultChanged( e );
                                 }
                             } );
                 }
-            } );
+            };
+            result.addListener( resultListener );
+        }
+    }
+
+    /**
+     * Add new matches to the viewer, or show the result again if it changed
+     * as a whole.
+     */
+    private void resultChanged( final SearchResultEvent e )
+    {
+        if ( viewer.getControl().isDisposed() || e.getSearchResult() != currentResult )
+        {
+            return;
+        }
+        NeoSearchResult result = (NeoSearchResult) e.getSearchResult();
+        SearchResultGroup group = e instanceof NeoSearchResultEvent ? ( (NeoSearchResultEvent) e ).getGroup() : null;
+        if ( viewer.getInput() != result || group == null && !result.isComplete() )
+        {
+            setInput( result );
+        }
+        else if ( group != null )
+        {
+            // a group may have been added
+            viewer.setChildCount( result, contentProvider.getGroups().size() );
+            SearchResultGroup shown = contentProvider.getShownGroup( group );
+            long[] added = ( (NeoSearchResultEvent) e ).getAdded();
+            if ( added != null )
+            {
+                contentProvider.matchesAdded( shown );
+                viewer.setChildCount( shown, shown.getMatchCount() );
+                Widget item = viewer.testFindItem( shown );
+                if ( added.length == shown.getMatchCount() )
+                {
+                    // first matches of the group, show them
+                    viewer.setExpandedState( shown, true );
+                }
+                else if ( contentProvider.isSortedById() && item instanceof TreeItem )
+                {
+                    // the rows shown may have moved, ask for them again
+                    ( (TreeItem) item ).clearAll( true );
+                }
+            }
+            viewer.update( shown, null );
+        }
+        if ( part != null )
+        {
+            part.updateLabel();
         }
     }
 
@@ -197,7 +334,7 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
     @Override
     public void setViewPart( final ISearchResultViewPart part )
     {
-        // does nothing
+        this.part = part;
     }
 
     /**
@@ -227,6 +364,23 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
         // not supported
     }
 
+    /**
+     * Labels for groups and matches. The text of a match was read when its
+     * row was made.
+     */
+    static class NeoSearchResultLabelProvider extends LabelProvider
+    {
+        @Override
+        public Image getImage( final Object element )
+        {
+            if ( element instanceof SearchMatch && !( (SearchMatch) element ).isRelationship() )
+            {
+                return Icons.NEO.image();
+            }
+            return null;
+        }
+    }
+
     /**
      * The handler for double clicks on search result list entries.
      */
@@ -240,7 +394,11 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
         public void doubleClick( final DoubleClickEvent event )
         {
             StructuredSelection sel = (StructuredSelection) event.getSelection();
-            Object s = sel.getFirstElement();
+            if ( !( sel.getFirstElement() instanceof SearchMatch ) )
+            {
+                return;
+            }
+            final SearchMatch match = (SearchMatch) sel.getFirstElement();
             // get the graph viewer
             NeoGraphViewPart gv = (NeoGraphViewPart) PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage().findView(
                     NeoGraphViewPart.ID );
@@ -249,13 +407,25 @@ public class NeoSearchResultPage extends Page implements ISearchResultPage
                 // TODO if it does not exist yet - create one? how?
                 return;
             }
-            if ( s instanceof Node )
+            try
             {
-                gv.showNode( (Node) s );
+                Node node = Activator.getDefault().getGraphDbServiceManager().submitTask( new GraphCallable<Node>()
+                {
+                    @Override
+                    public Node call( final GraphDatabaseService graphDb )
+                    {
+                        if ( match.isRelationship() )
+                        {
+                            return graphDb.getRelationshipById( match.getId() ).getStartNode();
+                        }
+                        return graphDb.getNodeById( match.getId() );
+                    }
+                }, "show search match", TaskIntent.READ ).get();
+                gv.showNode( node );
             }
-            else if ( s instanceof Relationship )
+            catch ( Exception e )
             {
-                gv.showNode( ( (Relationship) s ).getStartNode() );
+                ErrorMessage.showDialog( "Show match", e );
             }
         }
     }
@@ -0,0 +1,79 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.search;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.core.NodeManager;
+
+/**
+ * Tells how far the node ids of an embedded database go. The public API
+ * doesn't, so the kernel's node manager is asked; that is internal to the
+ * kernel and may be missing or changed, so callers have to be able to do
+ * without.
+ */
+final class NodeIdSpace
+{
+    private NodeIdSpace()
+    {
+        // static methods only
+    }
+
+    /**
+     * Get the highest node id that may be in use.
+     * 
+     * @param graphDb the database
+     * @return the highest id, or -1 if it can't be told
+     */
+    static long highestNodeId( final GraphDatabaseService graphDb )
+    {
+        if ( !( graphDb instanceof GraphDatabaseAPI ) )
+        {
+            return -1;
+        }
+        try
+        {
+            return NodeManagerAccess.highestNodeId( (GraphDatabaseAPI) graphDb );
+        }
+        catch ( LinkageError e )
+        {
+            // the kernel internals aren't there, or not as expected
+            return -1;
+        }
+        catch ( RuntimeException e )
+        {
+            // the node manager couldn't be resolved
+            return -1;
+        }
+    }
+
+    /**
+     * Keeps the internal types out of {@link NodeIdSpace}, so a missing
+     * class only fails the call that needs it.
+     */
+    private static class NodeManagerAccess
+    {
+        static long highestNodeId( final GraphDatabaseAPI graphDb )
+        {
+            NodeManager nodeManager = graphDb.getDependencyResolver().resolveDependency( NodeManager.class );
+            return nodeManager.getHighestPossibleIdInUse( Node.class );
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.search;
+
+/**
+ * A row of the search result tree: the id of a match and the text read for
+ * it when its page of rows was shown. Until the text is read, the row shows
+ * the id.
+ */
+public final class SearchMatch
+{
+    private final SearchResultGroup group;
+    private final long id;
+    private volatile String text;
+
+    SearchMatch( final SearchResultGroup group, final long id )
+    {
+        this.group = group;
+        this.id = id;
+        this.text = String.valueOf( id );
+    }
+
+    void setText( final String text )
+    {
+        this.text = text;
+    }
+
+    /**
+     * Get the group the row belongs to.
+     */
+    public SearchResultGroup getGroup()
+    {
+        return group;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    /**
+     * Check if the match is a relationship rather than a node.
+     */
+    public boolean isRelationship()
+    {
+        return group.isRelationships();
+    }
+
+    @Override
+    public String toString()
+    {
+        return text;
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.search;
+
+import java.util.Arrays;
+
+/**
+ * The matches found in one index, shown as a branch of the search result
+ * tree. Only the ids of the matches are kept, the entities are read when
+ * their rows are shown. Only used from the UI thread.
+ */
+public class SearchResultGroup
+{
+    private final String name;
+    private volatile String kind;
+    private final boolean relationships;
+    private long[] ids = new long[16];
+    private int size = 0;
+    /**
+     * The ids in ascending order, made when first asked for.
+     */
+    private long[] sortedIds = null;
+    private long totalCount = 0;
+    private long millis = 0;
+    private boolean complete = false;
+
+    /**
+     * Create a group.
+     * 
+     * @param name name of the index
+     * @param kind what was searched, like "nodes"
+     * @param relationships true if the matches are relationships
+     */
+    public SearchResultGroup( final String name, final String kind, final boolean relationships )
+    {
+        this.name = name;
+        this.kind = kind;
+        this.relationships = relationships;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Change what the group says was searched, like "label scan". Can be
+     * called while searching, the label is updated when the group is
+     * complete.
+     */
+    void setKind( final String kind )
+    {
+        this.kind = kind;
+    }
+
+    /**
+     * Check if the matches are relationships rather than nodes.
+     */
+    public boolean isRelationships()
+    {
+        return relationships;
+    }
+
+    /**
+     * Get the number of matches delivered.
+     */
+    public int getMatchCount()
+    {
+        return size;
+    }
+
+    /**
+     * Get the id of a match.
+     * 
+     * @param index position of the match
+     * @param byId true to count positions in id order, false for the order
+     *            the matches were found in
+     * @return the id of the node or relationship
+     */
+    public long getId( final int index, final boolean byId )
+    {
+        if ( index >= size )
+        {
+            throw new IndexOutOfBoundsException( index + " of " + size );
+        }
+        if ( !byId )
+        {
+            return ids[index];
+        }
+        if ( sortedIds == null )
+        {
+            sortedIds = Arrays.copyOf( ids, size );
+            Arrays.sort( sortedIds );
+        }
+        return sortedIds[index];
+    }
+
+    /**
+     * Get the number of matches in the index, known once the group is
+     * complete.
+     */
+    public long getTotalCount()
+    {
+        return totalCount;
+    }
+
+    /**
+     * Get the time the search of the index took.
+     */
+    public long getMillis()
+    {
+        return millis;
+    }
+
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    void addMatches( final long[] batch )
+    {
+        if ( size + batch.length > ids.length )
+        {
+            ids = Arrays.copyOf( ids, Math.max( ids.length * 2, size + batch.length ) );
+        }
+        System.arraycopy( batch, 0, ids, size, batch.length );
+        size += batch.length;
+        sortedIds = null;
+    }
+
+    void setComplete( final long totalCount, final long millis )
+    {
+        this.totalCount = Math.max( totalCount, size );
+        this.millis = millis;
+        complete = true;
+    }
+
+    /**
+     * The label of the group in the result tree, like
+     * "users (nodes): 10 of 250 matches, 12 ms".
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder str = new StringBuilder( 64 );
+        str.append( name ).append( " (" ).append( kind ).append( "): " ).append( size );
+        if ( complete && totalCount > size )
+        {
+            str.append( " of " ).append( totalCount );
+        }
+        str.append( size == 1 && totalCount <= 1 ? " match" : " matches" );
+        if ( complete )
+        {
+            str.append( ", " ).append( millis ).append( " ms" );
+        }
+        else
+        {
+            str.append( " so far" );
+        }
+        return str.toString();
+    }
+}
@@ -19,6 +19,7 @@
 package org.neo4j.neoclipse.util;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -33,6 +34,7 @@ import org.neo4j.neoclipse.editor.NodeWrapper;
 import org.neo4j.neoclipse.editor.RelationshipWrapper;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 
 public class ApplicationUtil
 {
@@ -47,11 +49,72 @@ public class ApplicationUtil
         return gson.toJson( object );
     }
 
+    public static JsonElement toJsonTree( Object object )
+    {
+        return gson.toJsonTree( object );
+    }
+
     public static <T> T toJson( String json, Class<T> clazz )
     {
         return gson.fromJson( json, clazz );
     }
 
+    /**
+     * Parse Cypher query parameters given as a JSON object. Gson reads all
+     * numbers as doubles, so whole numbers are turned into longs to be usable
+     * for things like SKIP and LIMIT.
+     * 
+     * @param json JSON object, may be blank
+     * @return parameter map, empty if there are no parameters
+     */
+    @SuppressWarnings( "unchecked" )
+    public static Map<String, Object> toParameters( String json )
+    {
+        Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+        if ( isBlank( json ) )
+        {
+            return parameters;
+        }
+        Map<String, Object> parsed = gson.fromJson( json, Map.class );
+        for ( Entry<String, Object> entry : parsed.entrySet() )
+        {
+            parameters.put( entry.getKey(), toParameterValue( entry.getValue() ) );
+        }
+        return parameters;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static Object toParameterValue( Object value )
+    {
+        if ( value instanceof Double )
+        {
+            double number = (Double) value;
+            if ( number == Math.rint( number ) && !Double.isInfinite( number ) )
+            {
+                return (long) number;
+            }
+        }
+        else if ( value instanceof List )
+        {
+            List<Object> list = new ArrayList<Object>();
+            for ( Object element : (List<Object>) value )
+            {
+                list.add( toParameterValue( element ) );
+            }
+            return list;
+        }
+        else if ( value instanceof Map )
+        {
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            for ( Entry<String, Object> entry : ( (Map<String, Object>) value ).entrySet() )
+            {
+                map.put( entry.getKey(), toParameterValue( entry.getValue() ) );
+            }
+            return map;
+        }
+        return value;
+    }
+
     public static File dirInWorkspace( final String... elements )
     {
         String path = NEOCLIPSE_SETTINGS_DIR;
@@ -88,18 +151,22 @@ public class ApplicationUtil
         {
             for ( Relationship relationship : node.getRelationships( Direction.OUTGOING ) )
             {
-                RelationshipWrapper rw = new RelationshipWrapper( relationship.getId() );
-                relationship.getType().name();
-                rw.setEndNodeId( relationship.getEndNode().getId()  );
-                rw.setPropertyMap( extractToMapFromProperties( relationship ) );
-                rw.setRelationshipType( relationship.getType().name() );
-                nodeWrapper.addRelation( rw );
+                nodeWrapper.addRelation( extractToRelationshipWrapper( relationship ) );
             }
         }
         
         return nodeWrapper;
     }
 
+    public static RelationshipWrapper extractToRelationshipWrapper( Relationship relationship )
+    {
+        RelationshipWrapper rw = new RelationshipWrapper( relationship.getId() );
+        rw.setEndNodeId( relationship.getEndNode().getId() );
+        rw.setPropertyMap( extractToMapFromProperties( relationship ) );
+        rw.setRelationshipType( relationship.getType().name() );
+        return rw;
+    }
+
     private static Map<String, Object> extractToMapFromProperties( PropertyContainer propertyContainer )
     {
         Map<String, Object> oMap = new LinkedHashMap<String, Object>();
@@ -22,46 +22,86 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.osgi.service.datalocation.Location;
 import org.json.CDL;
 import org.json.JSONArray;
-import org.json.XML;
+import org.neo4j.neoclipse.Activator;
+import org.neo4j.neoclipse.preference.Preferences;
 
 public class DataExportUtils
 {
 
-    public static File exportToXml( String jsonString ) throws Exception
+    /**
+     * Start a CSV export to a new file.
+     * 
+     * @param columns column names, in order
+     * @return writer for the rows
+     */
+    public static ResultWriter openCsv( List<String> columns ) throws IOException
     {
-        File file = getFile( ".xml" );
-        StringBuilder sb = new StringBuilder( "<rootnode>" );
-        sb.append( XML.toString( new JSONArray( jsonString ), "node" ) );
-        sb.append( "</rootnode>" );
-        BufferedWriter bw = new BufferedWriter( new FileWriter( file ) );
-        bw.write( sb.toString() );
-        bw.close();
-        return file;
+        boolean compressed = isCompressed();
+        return ResultWriter.csv( getFile( ".csv", compressed ), compressed, columns );
     }
 
+    /**
+     * Start a JSON export to a new file.
+     * 
+     * @return writer for the rows
+     */
+    public static ResultWriter openJson() throws IOException
+    {
+        boolean compressed = isCompressed();
+        return ResultWriter.json( getFile( ".json", compressed ), compressed );
+    }
 
+    /**
+     * Start an XML export to a new file.
+     * 
+     * @return writer for the rows
+     */
+    public static ResultWriter openXml() throws IOException
+    {
+        boolean compressed = isCompressed();
+        return ResultWriter.xml( getFile( ".xml", compressed ), compressed );
+    }
 
-    public static File exportToJson( String jsonString ) throws IOException
+    private static boolean isCompressed()
     {
-        File file = getFile( ".json" );
-        BufferedWriter out = new BufferedWriter( new FileWriter( file ) );
-        out.write( jsonString );
-        out.close();
-        return file;
+        return Activator.getDefault().getPreferenceStore().getBoolean( Preferences.EXPORT_COMPRESSED );
+    }
+
+    private static File getFile( String fileExtention, boolean compressed )
+    {
+        return getFile( compressed ? fileExtention + ".gz" : fileExtention );
     }
 
-    public static File exportToCsv( String jsonString ) throws Exception
+    /**
+     * Write a table to a new CSV file.
+     * 
+     * @param header column names
+     * @param rows the cell values, row by row
+     * @return the file
+     */
+    public static File exportTableToCsv( String[] header, List<String[]> rows ) throws IOException
     {
         File file = getFile( ".csv" );
-        String csv = CDL.toString( new JSONArray( jsonString ) );
         BufferedWriter out = new BufferedWriter( new FileWriter( file ) );
-        out.write( csv );
-        out.close();
+        try
+        {
+            out.write( CDL.rowToString( new JSONArray( Arrays.asList( header ) ) ) );
+            for ( String[] row : rows )
+            {
+                out.write( CDL.rowToString( new JSONArray( Arrays.asList( row ) ) ) );
+            }
+        }
+        finally
+        {
+            out.close();
+        }
         return file;
     }
 
@@ -0,0 +1,79 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.util;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.neo4j.neoclipse.view.ErrorMessage;
+
+/**
+ * Exports rows in the background. The file is removed again if the export
+ * fails or is cancelled.
+ */
+public abstract class ExportJob extends Job
+{
+    private final String format;
+    private final ResultWriter writer;
+
+    /**
+     * @param format name of the format, for messages
+     * @param writer writer for the rows
+     */
+    public ExportJob( final String format, final ResultWriter writer )
+    {
+        super( format + " Export" );
+        this.format = format;
+        this.writer = writer;
+        setUser( true );
+    }
+
+    /**
+     * Write the rows, checking the monitor for cancellation now and then.
+     */
+    protected abstract void export( ResultWriter writer, IProgressMonitor monitor ) throws Exception;
+
+    @Override
+    protected IStatus run( final IProgressMonitor monitor )
+    {
+        try
+        {
+            export( writer, monitor );
+            if ( monitor.isCanceled() )
+            {
+                writer.discard();
+                return Status.CANCEL_STATUS;
+            }
+            writer.close();
+        }
+        catch ( Exception e )
+        {
+            writer.discard();
+            ErrorMessage.showDialog( format + " exporting problem", e );
+            return Status.OK_STATUS;
+        }
+        finally
+        {
+            monitor.done();
+        }
+        ErrorMessage.showDialog( format + " Export", format + " file is created at " + writer.getFile() );
+        return Status.OK_STATUS;
+    }
+}
@@ -0,0 +1,389 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Writes result rows to a file one at a time, so the size of an export is
+ * not limited by memory. The file is written through a buffered file channel
+ * and can be gzip compressed.
+ * 
+ * @see DataExportUtils
+ */
+public abstract class ResultWriter implements Closeable
+{
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final Writer out;
+    private long rowCount = 0;
+    private boolean closed = false;
+
+    protected ResultWriter( final File file, final boolean compressed ) throws IOException
+    {
+        this.file = file;
+        OutputStream stream = Channels.newOutputStream( FileChannel.open( file.toPath(),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE ) );
+        if ( compressed )
+        {
+            stream = new GZIPOutputStream( stream, BUFFER_SIZE );
+        }
+        out = new BufferedWriter( new OutputStreamWriter( stream, UTF8 ), BUFFER_SIZE );
+    }
+
+    /**
+     * Write rows as CSV. The first line holds the column names, values that
+     * are not plain strings or numbers are written as JSON.
+     */
+    public static ResultWriter csv( final File file, final boolean compressed, final List<String> columns )
+            throws IOException
+    {
+        return new CsvWriter( file, compressed, columns );
+    }
+
+    /**
+     * Write rows as a JSON array.
+     */
+    public static ResultWriter json( final File file, final boolean compressed ) throws IOException
+    {
+        return new JsonWriter( file, compressed );
+    }
+
+    /**
+     * Write rows as XML, one <code>node</code> element per row inside a
+     * <code>rootnode</code> element.
+     */
+    public static ResultWriter xml( final File file, final boolean compressed ) throws IOException
+    {
+        return new XmlWriter( file, compressed );
+    }
+
+    /**
+     * Write a row.
+     * 
+     * @param row the row, usually an object with a member per column
+     * @throws IOException
+     */
+    public void write( final JsonElement row ) throws IOException
+    {
+        if ( rowCount == 0 )
+        {
+            begin( out );
+        }
+        writeRow( out, row, rowCount++ );
+    }
+
+    /**
+     * Number of rows written so far.
+     */
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Finish and close the file. Calling it more than once is fine.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        try
+        {
+            if ( rowCount == 0 )
+            {
+                begin( out );
+            }
+            end( out );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Close and remove the file, for exports that didn't finish.
+     */
+    public void discard()
+    {
+        closed = true;
+        try
+        {
+            out.close();
+        }
+        catch ( IOException e )
+        {
+            e.printStackTrace();
+        }
+        file.delete();
+    }
+
+    protected abstract void begin( Writer out ) throws IOException;
+
+    protected abstract void writeRow( Writer out, JsonElement row, long index ) throws IOException;
+
+    protected abstract void end( Writer out ) throws IOException;
+
+    private static class JsonWriter extends ResultWriter
+    {
+        JsonWriter( final File file, final boolean compressed ) throws IOException
+        {
+            super( file, compressed );
+        }
+
+        @Override
+        protected void begin( final Writer out ) throws IOException
+        {
+            out.write( '[' );
+        }
+
+        @Override
+        protected void writeRow( final Writer out, final JsonElement row, final long index ) throws IOException
+        {
+            if ( index > 0 )
+            {
+                out.write( ',' );
+            }
+            out.write( ApplicationUtil.toJson( row ) );
+        }
+
+        @Override
+        protected void end( final Writer out ) throws IOException
+        {
+            out.write( ']' );
+        }
+    }
+
+    private static class CsvWriter extends ResultWriter
+    {
+        private final List<String> columns;
+
+        CsvWriter( final File file, final boolean compressed, final List<String> columns ) throws IOException
+        {
+            super( file, compressed );
+            this.columns = new ArrayList<String>( columns );
+        }
+
+        @Override
+        protected void begin( final Writer out ) throws IOException
+        {
+            writeLine( out, columns );
+        }
+
+        @Override
+        protected void writeRow( final Writer out, final JsonElement row, final long index ) throws IOException
+        {
+            List<String> cells = new ArrayList<String>( columns.size() );
+            JsonObject object = row.isJsonObject() ? row.getAsJsonObject() : new JsonObject();
+            for ( String column : columns )
+            {
+                JsonElement value = object.get( column );
+                if ( value == null || value.isJsonNull() )
+                {
+                    cells.add( "" );
+                }
+                else if ( value.isJsonPrimitive() )
+                {
+                    cells.add( value.getAsString() );
+                }
+                else
+                {
+                    cells.add( ApplicationUtil.toJson( value ) );
+                }
+            }
+            writeLine( out, cells );
+        }
+
+        @Override
+        protected void end( final Writer out )
+        {
+            // nothing to close
+        }
+
+        private static void writeLine( final Writer out, final List<String> cells ) throws IOException
+        {
+            boolean first = true;
+            for ( String cell : cells )
+            {
+                if ( !first )
+                {
+                    out.write( ',' );
+                }
+                first = false;
+                if ( cell.indexOf( ',' ) >= 0 || cell.indexOf( '"' ) >= 0 || cell.indexOf( '\n' ) >= 0
+                     || cell.indexOf( '\r' ) >= 0 )
+                {
+                    out.write( '"' );
+                    out.write( cell.replace( "\"", "\"\"" ) );
+                    out.write( '"' );
+                }
+                else
+                {
+                    out.write( cell );
+                }
+            }
+            out.write( '\n' );
+        }
+    }
+
+    private static class XmlWriter extends ResultWriter
+    {
+        XmlWriter( final File file, final boolean compressed ) throws IOException
+        {
+            super( file, compressed );
+        }
+
+        @Override
+        protected void begin( final Writer out ) throws IOException
+        {
+            out.write( "<rootnode>" );
+        }
+
+        @Override
+        protected void writeRow( final Writer out, final JsonElement row, final long index ) throws IOException
+        {
+            element( out, "node", row );
+        }
+
+        @Override
+        protected void end( final Writer out ) throws IOException
+        {
+            out.write( "</rootnode>" );
+        }
+
+        /**
+         * Same mapping as <code>org.json.XML</code>: object members become
+         * child elements and array items repeat the element.
+         */
+        private static void element( final Writer out, final String name, final JsonElement value )
+                throws IOException
+        {
+            if ( value.isJsonArray() )
+            {
+                for ( JsonElement item : value.getAsJsonArray() )
+                {
+                    if ( item.isJsonArray() )
+                    {
+                        out.write( '<' + name + '>' );
+                        element( out, "array", item );
+                        out.write( "</" + name + '>' );
+                    }
+                    else
+                    {
+                        element( out, name, item );
+                    }
+                }
+                return;
+            }
+            String text = value.isJsonNull() ? "" : value.isJsonPrimitive() ? value.getAsString() : null;
+            if ( "".equals( text ) )
+            {
+                out.write( '<' + name + "/>" );
+                return;
+            }
+            out.write( '<' + name + '>' );
+            if ( text != null )
+            {
+                escape( out, text );
+            }
+            else
+            {
+                for ( Entry<String, JsonElement> member : value.getAsJsonObject().entrySet() )
+                {
+                    element( out, tagName( member.getKey() ), member.getValue() );
+                }
+            }
+            out.write( "</" + name + '>' );
+        }
+
+        /**
+         * Column names like <code>n.name</code> or <code>count(*)</code> are
+         * not valid element names.
+         */
+        private static String tagName( final String key )
+        {
+            StringBuilder name = new StringBuilder( key.length() );
+            for ( int i = 0; i < key.length(); i++ )
+            {
+                char c = key.charAt( i );
+                boolean valid = Character.isLetter( c ) || c == '_'
+                                || ( i > 0 && ( Character.isDigit( c ) || c == '-' || c == '.' ) );
+                name.append( valid ? c : '_' );
+            }
+            return name.length() == 0 ? "_" : name.toString();
+        }
+
+        private static void escape( final Writer out, final String text ) throws IOException
+        {
+            for ( int i = 0; i < text.length(); i++ )
+            {
+                char c = text.charAt( i );
+                switch ( c )
+                {
+                case '&':
+                    out.write( "&amp;" );
+                    break;
+                case '<':
+                    out.write( "&lt;" );
+                    break;
+                case '>':
+                    out.write( "&gt;" );
+                    break;
+                case '"':
+                    out.write( "&quot;" );
+                    break;
+                case '\'':
+                    out.write( "&apos;" );
+                    break;
+                default:
+                    out.write( c );
+                }
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.graphdb.GraphCallable;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
 
 /**
  * Keep track of browsing history and preserve states.
@@ -92,7 +93,7 @@ public class BrowserHistory
                                 }
                                 return null;
                             }
-                        }, "get starting node of state" ).get();
+                        }, "get starting node of state", TaskIntent.READ ).get();
             }
             catch ( Exception e )
             {
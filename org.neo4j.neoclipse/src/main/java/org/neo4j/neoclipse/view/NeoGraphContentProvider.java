@@ -18,7 +18,9 @@
  */
 package org.neo4j.neoclipse.view;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -28,11 +30,14 @@ import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.zest.core.viewers.IGraphEntityRelationshipContentProvider;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.graphdb.DefaultTraverser;
 import org.neo4j.neoclipse.graphdb.GraphCallable;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceManager;
+import org.neo4j.neoclipse.graphdb.HiddenRelationships;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
 import org.neo4j.neoclipse.graphdb.TraversalStrategy;
 import org.neo4j.neoclipse.preference.Preferences;
 import org.neo4j.neoclipse.reltype.DirectedRelationship;
@@ -60,6 +65,14 @@ public class NeoGraphContentProvider implements
     // private final TraversalStrategy traverser = new DefaultTraverser();
     private final Set<RelationshipType> relTypes = new RelationshipTypeHashSet();
     private final IPreferenceStore preferenceStore;
+    /**
+     * True when only the traversal depth changed since the last refresh.
+     */
+    private volatile boolean depthChanged = false;
+    /**
+     * The traversal cache generation the render snapshot was read in.
+     */
+    private volatile long snapshotGeneration = -1;
 
     /**
      * The constructor.
@@ -70,6 +83,27 @@ public class NeoGraphContentProvider implements
         preferenceStore = Activator.getDefault().getPreferenceStore();
     }
 
+    /**
+     * Make the next refresh build on the current elements, as only the
+     * traversal depth changed by one.
+     */
+    public void traversalDepthChanged()
+    {
+        depthChanged = true;
+        traverser.reuseLastTraversal();
+    }
+
+    /**
+     * Get the pairs of nodes connected by relationships among the current
+     * elements, as far as known without going to the database.
+     * 
+     * @return start and end node ids, alternating
+     */
+    public long[] getKnownConnections()
+    {
+        return traverser.getKnownConnections();
+    }
+
     /**
      * Returns the relationships between the given nodes.
      */
@@ -80,8 +114,22 @@ public class NeoGraphContentProvider implements
         {
             return new Object[] {};
         }
+        if ( dest instanceof HiddenRelationships )
+        {
+            HiddenRelationships hidden = (HiddenRelationships) dest;
+            return hidden.getNode().equals( source ) ? new Object[] { hidden.getLink() } : new Object[] {};
+        }
+        if ( !( source instanceof Node ) || !( dest instanceof Node ) )
+        {
+            return new Object[] {};
+        }
         final Node start = (Node) source;
         final Node end = (Node) dest;
+        Collection<Relationship> known = traverser.getKnownRelationships( start, end );
+        if ( known != null )
+        {
+            return known.toArray();
+        }
         try
         {
             return Activator.getDefault().getGraphDbServiceManager().submitTask(
@@ -92,7 +140,7 @@ public class NeoGraphContentProvider implements
                         {
                             return traverser.getRelationships( start, end ).toArray();
                         }
-                    }, "find rels" ).get();
+                    }, "find rels", TaskIntent.READ ).get();
         }
         catch ( InterruptedException e )
         {
@@ -130,7 +178,7 @@ public class NeoGraphContentProvider implements
                 {
                     return getTheElements( node, graphDb );
                 }
-            }, "get elements" ).get();
+            }, "get elements", TaskIntent.READ ).get();
         }
         catch ( InterruptedException e )
         {
@@ -146,6 +194,8 @@ public class NeoGraphContentProvider implements
     private Object[] getTheElements( final Node node,
             final GraphDatabaseService graphDb )
     {
+        boolean extend = depthChanged;
+        depthChanged = false;
         GraphDbServiceManager nsm = Activator.getDefault().getGraphDbServiceManager();
         if ( nsm == null || !nsm.isRunning() )
         {
@@ -170,7 +220,22 @@ public class NeoGraphContentProvider implements
         }
         final int depth = view.getTraversalDepth();
         int max = preferenceStore.getInt( Preferences.MAX_NODES );
-        return traverser.getNodes( node, relDirList, depth, max, nsm ).toArray();
+        int relationshipLimit = preferenceStore.getInt( Preferences.MAX_RELATIONSHIPS_PER_NODE );
+        // only extend the render snapshot if the database didn't change
+        long generation = nsm.getTraversalCache().generation();
+        extend = extend && generation == snapshotGeneration;
+        snapshotGeneration = generation;
+        Collection<Node> nodes = traverser.getNodes( node, relDirList, depth, max, relationshipLimit, nsm );
+        NeoGraphLabelProviderWrapper.getInstance().updateRenderSnapshot( nodes, extend, relationshipLimit );
+        Collection<HiddenRelationships> hidden = traverser.getHiddenRelationships();
+        if ( hidden.isEmpty() )
+        {
+            return nodes.toArray();
+        }
+        List<Object> elements = new ArrayList<Object>( nodes.size() + hidden.size() );
+        elements.addAll( nodes );
+        elements.addAll( hidden );
+        return elements.toArray();
     }
 
     @Override
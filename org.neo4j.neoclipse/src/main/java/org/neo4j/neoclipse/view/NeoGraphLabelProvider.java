@@ -25,6 +25,7 @@ import java.util.Set;
 
 import org.eclipse.core.runtime.Preferences.PropertyChangeEvent;
 import org.eclipse.draw2d.IFigure;
+import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.viewers.IColorProvider;
 import org.eclipse.jface.viewers.ILabelProvider;
 import org.eclipse.jface.viewers.ITableColorProvider;
@@ -42,14 +43,18 @@ import org.eclipse.zest.core.widgets.ZestStyles;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.neoclipse.Activator;
 import org.neo4j.neoclipse.Icons;
+import org.neo4j.neoclipse.decorate.DetailLevel;
+import org.neo4j.neoclipse.decorate.RenderSnapshot;
 import org.neo4j.neoclipse.decorate.SimpleGraphDecorator;
 import org.neo4j.neoclipse.decorate.SimpleGraphDecorator.Settings;
 import org.neo4j.neoclipse.decorate.SimpleGraphDecorator.ViewSettings;
 import org.neo4j.neoclipse.graphdb.GraphCallable;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
 import org.neo4j.neoclipse.preference.DecoratorPreferences;
 import org.neo4j.neoclipse.reltype.DirectedRelationship;
 import org.neo4j.neoclipse.reltype.NodeIconUtil;
@@ -89,6 +94,21 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
     private static final Image CHECKED = Icons.CHECKED.image();
     private static final Image UNCHECKED = Icons.UNCHECKED.image();
     private Node inputNode = null;
+    /**
+     * Render data of the nodes currently shown.
+     */
+    private volatile RenderSnapshot snapshot = null;
+    /**
+     * The current zoom scale of the graph.
+     */
+    private double zoomScale = 1.0;
+    /**
+     * What is rendered at the current zoom scale.
+     */
+    private volatile DetailLevel detailLevel = DetailLevel.ICONS;
+    private int shortLabelZoom;
+    private int fullLabelZoom;
+    private int nodeIconZoom;
 
     public NeoGraphLabelProvider()
     {
@@ -105,6 +125,7 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
         refreshNodePropertyNames();
         refreshRelPropertyNames();
         refreshNodeIconPropertyNames();
+        refreshDetailLevels();
         // get reference node
         settings.setDirections( Arrays.asList( Direction.INCOMING,
                 Direction.OUTGOING ) );
@@ -120,6 +141,39 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
         return viewSettings;
     }
 
+    /**
+     * Set the zoom scale of the graph, which decides what is rendered.
+     * 
+     * @param scale zoom scale, 1.0 is 100%
+     * @return true if the detail level changed and labels need an update
+     */
+    public boolean setZoomScale( final double scale )
+    {
+        zoomScale = scale;
+        return updateDetailLevel();
+    }
+
+    /**
+     * Get what is rendered at the current zoom scale.
+     * 
+     * @return the detail level
+     */
+    public DetailLevel getDetailLevel()
+    {
+        return detailLevel;
+    }
+
+    private boolean updateDetailLevel()
+    {
+        DetailLevel level = DetailLevel.forScale( zoomScale, shortLabelZoom, fullLabelZoom, nodeIconZoom );
+        if ( level == detailLevel )
+        {
+            return false;
+        }
+        detailLevel = level;
+        return true;
+    }
+
     /**
      * Check if a node is the reference node.
      * 
@@ -128,6 +182,15 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
      */
     private boolean isReferenceNode( final Node node )
     {
+        RenderSnapshot current = snapshot;
+        if ( current != null )
+        {
+            Boolean referenceNode = current.isReferenceNode( node );
+            if ( referenceNode != null )
+            {
+                return referenceNode;
+            }
+        }
         try
         {
             return Activator.getDefault().getGraphDbServiceManager().submitTask(
@@ -138,7 +201,7 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
                         {
                             return node.getId() == 0;
                         }
-                    }, "is ref node" ).get();
+                    }, "is ref node", TaskIntent.READ ).get();
         }
         catch ( Exception e )
         {
@@ -147,6 +210,49 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
         return false;
     }
 
+    /**
+     * Read what is needed to render the given nodes and the relationships
+     * between them in one go, so rendering doesn't have to go to the database
+     * for every element. Properties not rendered at the current detail level
+     * are not read. Has to be called from a graph task.
+     * 
+     * @param nodes the nodes about to be shown
+     * @param extend true to only read nodes that weren't shown before
+     * @param relationshipLimit relationships to look at per node and
+     *            direction, 0 for all
+     */
+    public void updateRenderSnapshot( final Collection<Node> nodes, final boolean extend,
+            final int relationshipLimit )
+    {
+        settings.setRelationshipLimit( relationshipLimit );
+        if ( extend )
+        {
+            snapshot = RenderSnapshot.extend( snapshot, nodes, settings.getDirections(), relationshipLimit,
+                    detailLevel, settings.getNodePropertyNames() );
+        }
+        else
+        {
+            snapshot = RenderSnapshot.collect( nodes, settings.getDirections(), relationshipLimit, detailLevel,
+                    settings.getNodePropertyNames() );
+        }
+        graphDecorator.setRenderSnapshot( snapshot );
+    }
+
+    /**
+     * Make sure a changed element is read from the database the next time it
+     * is rendered.
+     * 
+     * @param element node or relationship
+     */
+    public void forgetRenderData( final Object element )
+    {
+        RenderSnapshot current = snapshot;
+        if ( current != null )
+        {
+            current.forget( element );
+        }
+    }
+
     /**
      * Check if the current node is the input node.
      * 
@@ -216,7 +322,11 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
         if ( element instanceof Node )
         {
             Node node = (Node) element;
-            if ( viewSettings.isShowNodeIcons()
+            if ( detailLevel == DetailLevel.IDS )
+            {
+                return null;
+            }
+            if ( detailLevel == DetailLevel.ICONS && viewSettings.isShowNodeIcons()
                     && !"".equals( settings.getNodeIconLocation() ) )
             {
                 return graphDecorator.getNodeImageFromProperty( node,
@@ -240,12 +350,28 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
         if ( element instanceof Node )
         {
             Node node = (Node) element;
-            return graphDecorator.getNodeText( node, isReferenceNode( node ) );
+            switch ( detailLevel )
+            {
+            case IDS:
+                return String.valueOf( node.getId() );
+            case SHORT_LABELS:
+                return graphDecorator.getShortNodeText( node );
+            default:
+                return graphDecorator.getNodeText( node, isReferenceNode( node ) );
+            }
         }
         else if ( element instanceof Relationship )
         {
             Relationship rel = (Relationship) element;
-            return graphDecorator.getRelationshipText( rel );
+            switch ( detailLevel )
+            {
+            case IDS:
+                return "";
+            case SHORT_LABELS:
+                return graphDecorator.getShortRelationshipText( rel );
+            default:
+                return graphDecorator.getRelationshipText( rel );
+            }
         }
         else if ( element instanceof RelationshipTypeControl )
         {
@@ -259,6 +385,21 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
         return element.toString();
     }
 
+    /**
+     * Returns the full text for a node or relationship whatever the zoom
+     * level, for lists like the search result. Reads the entity, so it has
+     * to run in a transaction.
+     */
+    public String getEntityText( final PropertyContainer entity )
+    {
+        if ( entity instanceof Node )
+        {
+            Node node = (Node) entity;
+            return graphDecorator.getNodeText( node, isReferenceNode( node ) );
+        }
+        return graphDecorator.getRelationshipText( (Relationship) entity );
+    }
+
     /**
      * Remove relationship colors, start over creating new ones.
      */
@@ -270,6 +411,7 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
     private final void refreshGraphDecorator()
     {
         graphDecorator = new SimpleGraphDecorator( settings, viewSettings );
+        graphDecorator.setRenderSnapshot( snapshot );
     }
 
     /**
@@ -333,6 +475,25 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
                 DecoratorPreferences.NODE_ICON_PROPERTY_NAMES ) );
     }
 
+    /**
+     * Read the zoom levels of the detail levels from preferences.
+     * 
+     * @return true if the detail level changed
+     */
+    public boolean readDetailLevels()
+    {
+        refreshDetailLevels();
+        return updateDetailLevel();
+    }
+
+    private final void refreshDetailLevels()
+    {
+        IPreferenceStore store = Activator.getDefault().getPreferenceStore();
+        shortLabelZoom = store.getInt( DecoratorPreferences.SHORT_LABEL_ZOOM );
+        fullLabelZoom = store.getInt( DecoratorPreferences.FULL_LABEL_ZOOM );
+        nodeIconZoom = store.getInt( DecoratorPreferences.NODE_ICON_ZOOM );
+    }
+
     @Override
     public Color getColor( final Object o )
     {
@@ -376,6 +537,10 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
     @Override
     public Color getHighlightColor( final Object rel )
     {
+        if ( !( rel instanceof Relationship ) )
+        {
+            return null;
+        }
         return graphDecorator.getRelationshipHighlightColor( (Relationship) rel );
     }
 
@@ -543,6 +708,12 @@ ITableLabelProvider, ITableColorProvider, InputChangeListener
             readNodeIconPropertyNames();
             return true;
         }
+        else if ( DecoratorPreferences.SHORT_LABEL_ZOOM.equals( property )
+                  || DecoratorPreferences.FULL_LABEL_ZOOM.equals( property )
+                  || DecoratorPreferences.NODE_ICON_ZOOM.equals( property ) )
+        {
+            return readDetailLevels();
+        }
         return false;
     }
 }
@@ -65,12 +65,14 @@ import org.neo4j.neoclipse.action.decorate.rel.ShowRelationshipIdsAction;
 import org.neo4j.neoclipse.action.decorate.rel.ShowRelationshipLabelAction;
 import org.neo4j.neoclipse.action.decorate.rel.ShowRelationshipPropertyKeysAction;
 import org.neo4j.neoclipse.action.decorate.rel.ShowRelationshipTypesAction;
+import org.neo4j.neoclipse.action.layout.ShowBarnesHutLayoutAction;
 import org.neo4j.neoclipse.action.layout.ShowGridLayoutAction;
 import org.neo4j.neoclipse.action.layout.ShowHorizontalShiftLayoutAction;
 import org.neo4j.neoclipse.action.layout.ShowHorizontalTreeLayoutAction;
 import org.neo4j.neoclipse.action.layout.ShowRadialLayoutAction;
 import org.neo4j.neoclipse.action.layout.ShowSpringLayoutAction;
 import org.neo4j.neoclipse.action.layout.ShowTreeLayoutAction;
+import org.neo4j.neoclipse.action.layout.StopLayoutAction;
 import org.neo4j.neoclipse.action.reltype.NewRelationshipTypeAction;
 import org.neo4j.neoclipse.action.reltype.NewRelationshipTypeAction.NodeSpaceAction;
 import org.neo4j.neoclipse.action.view.DecreaseTraversalDepthAction;
@@ -672,6 +674,11 @@ public class NeoGraphMenu
             ShowHorizontalShiftLayoutAction horizontalShiftLayoutAction = new ShowHorizontalShiftLayoutAction(
                     graphView );
             mm.appendToGroup( groupName, horizontalShiftLayoutAction );
+            // large graph layout
+            ShowBarnesHutLayoutAction barnesHutLayoutAction = new ShowBarnesHutLayoutAction( graphView );
+            mm.appendToGroup( groupName, barnesHutLayoutAction );
+            // stop a layout running in the background
+            mm.appendToGroup( groupName, new StopLayoutAction( graphView ) );
         }
     }
 
@@ -18,15 +18,26 @@
  */
 package org.neo4j.neoclipse.view;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.Preferences.IPropertyChangeListener;
 import org.eclipse.core.runtime.Preferences.PropertyChangeEvent;
 import org.eclipse.draw2d.ChangeEvent;
 import org.eclipse.draw2d.ChangeListener;
+import org.eclipse.draw2d.ScalableFigure;
+import org.eclipse.draw2d.Viewport;
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.Rectangle;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.viewers.DoubleClickEvent;
@@ -44,8 +55,11 @@ import org.eclipse.ui.views.properties.IPropertySheetPage;
 import org.eclipse.zest.core.viewers.AbstractZoomableViewer;
 import org.eclipse.zest.core.viewers.GraphViewer;
 import org.eclipse.zest.core.viewers.IZoomableWorkbenchPart;
+import org.eclipse.zest.core.widgets.Graph;
+import org.eclipse.zest.core.widgets.GraphConnection;
+import org.eclipse.zest.core.widgets.GraphNode;
+import org.eclipse.zest.layouts.LayoutAlgorithm;
 import org.eclipse.zest.layouts.LayoutStyles;
-import org.eclipse.zest.layouts.algorithms.SpringLayoutAlgorithm;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.NotFoundException;
@@ -63,7 +77,10 @@ import org.neo4j.neoclipse.graphdb.GraphDbServiceMode;
 import org.neo4j.neoclipse.graphdb.GraphDbServiceStatus;
 import org.neo4j.neoclipse.graphdb.GraphDbUtil;
 import org.neo4j.neoclipse.graphdb.GraphRunnable;
+import org.neo4j.neoclipse.graphdb.TaskIntent;
 import org.neo4j.neoclipse.help.HelpContextConstants;
+import org.neo4j.neoclipse.layout.BackgroundLayoutAlgorithm;
+import org.neo4j.neoclipse.layout.PositionCache;
 import org.neo4j.neoclipse.preference.Preferences;
 import org.neo4j.neoclipse.property.NeoPropertySheetPage;
 import org.neo4j.neoclipse.reltype.RelationshipTypeView;
@@ -110,6 +127,37 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
      */
     private boolean dirty = false;
     private static final IStructuredSelection EMPTY_SELECTION;
+    /**
+     * Distance from a shown node to the new nodes put around it.
+     */
+    private static final int NEW_NODE_DISTANCE = 80;
+    /**
+     * Remembered node positions of the running database, or null.
+     */
+    private PositionCache positionCache = null;
+    /**
+     * The layout in use if it runs in the background, or null.
+     */
+    private BackgroundLayoutAlgorithm backgroundLayout = null;
+    /**
+     * Leaves out nodes outside the visible area.
+     */
+    private final ViewportFilter viewportFilter = new ViewportFilter();
+    /**
+     * Draws the nodes left out by the viewport filter.
+     */
+    private final OverviewLayer overviewLayer = new OverviewLayer();
+    private boolean viewportUpdatePending = false;
+    /**
+     * Below this zoom level nodes with a known position are only drawn as
+     * points.
+     */
+    private static final double OVERVIEW_SCALE = 0.25;
+    /**
+     * Time to wait for panning or zooming to settle before updating the
+     * shown nodes, in milliseconds.
+     */
+    private static final int VIEWPORT_DELAY = 150;
 
     static
     {
@@ -170,7 +218,22 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
         viewer.setUseHashlookup( true );
         viewer.setContentProvider( new NeoGraphContentProvider( this ) );
         viewer.addDoubleClickListener( new NeoGraphDoubleClickListener() );
-        viewer.setLayoutAlgorithm( new SpringLayoutAlgorithm( LayoutStyles.NO_LAYOUT_NODE_RESIZING ) );
+        backgroundLayout = BackgroundLayoutAlgorithm.springLayout( LayoutStyles.NO_LAYOUT_NODE_RESIZING );
+        viewer.setLayoutAlgorithm( backgroundLayout );
+        viewer.addFilter( viewportFilter );
+        Graph graph = viewer.getGraphControl();
+        graph.getRootLayer().add( overviewLayer, 0 );
+        // update the shown nodes when the graph is panned or zoomed
+        ViewportChangeHandler viewportChangeHandler = new ViewportChangeHandler( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                scheduleViewportUpdate();
+            }
+        } );
+        graph.getViewport().getHorizontalRangeModel().addPropertyChangeListener( viewportChangeHandler );
+        graph.getViewport().getVerticalRangeModel().addPropertyChangeListener( viewportChangeHandler );
         NeoGraphLabelProvider labelProvider = NeoGraphLabelProviderWrapper.getInstance();
         viewer.setLabelProvider( labelProvider );
         addListener( labelProvider );
@@ -180,6 +243,10 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
         GraphDbServiceManager sm = Activator.getDefault().getGraphDbServiceManager();
         sm.addServiceEventListener( new NeoGraphServiceEventListener() );
         getSite().setSelectionProvider( viewer );
+        if ( sm.isRunning() )
+        {
+            openPositionCache( sm.getCurrentAlias() );
+        }
         Activator.getDefault().getPluginPreferences().addPropertyChangeListener( new PreferenceChangeHandler() );
         PlatformUI.getWorkbench().getHelpSystem().setHelp( viewer.getControl(),
                 HelpContextConstants.NEO_GRAPH_VIEW_PART );
@@ -393,6 +460,8 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
     @Override
     public void dispose()
     {
+        stopLayout();
+        closePositionCache();
         cleanTransactionBeforeShutdown();
         if ( propertySheetPage != null )
         {
@@ -545,7 +614,7 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
                         }
                     }
                 }
-            }, "show node byid" );
+            }, "show node byid", TaskIntent.READ );
         }
         catch ( Exception e )
         {
@@ -589,8 +658,7 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
     public void incTraversalDepth()
     {
         traversalDepth++;
-        refreshViewer();
-        viewer.applyLayout();
+        refreshDepthChange();
         if ( traversalDepth > 0 )
         {
             menu.setEnabledDecAction( true );
@@ -605,8 +673,7 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
         if ( traversalDepth > 0 )
         {
             traversalDepth--;
-            refreshViewer();
-            viewer.applyLayout();
+            refreshDepthChange();
             if ( traversalDepth < 1 )
             {
                 menu.setEnabledDecAction( false );
@@ -614,6 +681,104 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
         }
     }
 
+    /**
+     * Refresh after the traversal depth changed by one. Only the outermost
+     * ring of nodes is added or removed, the nodes already shown keep their
+     * positions and new nodes are put around the node they were reached
+     * from.
+     */
+    private void refreshDepthChange()
+    {
+        if ( viewer.getContentProvider() instanceof NeoGraphContentProvider )
+        {
+            ( (NeoGraphContentProvider) viewer.getContentProvider() ).traversalDepthChanged();
+        }
+        UiHelper.asyncExec( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                disableDelete();
+                Set<Object> shown = new HashSet<Object>();
+                for ( Object item : viewer.getGraphControl().getNodes() )
+                {
+                    shown.add( ( (GraphNode) item ).getData() );
+                }
+                viewer.refresh( false );
+                placeNewNodes( shown );
+                if ( viewer.getGraphControl().getNodes().size() == 0 )
+                {
+                    showSomeNode();
+                }
+                refreshStatusBar();
+            }
+        } );
+    }
+
+    /**
+     * Put nodes that weren't shown before in a circle around an already shown
+     * node they are connected to.
+     * 
+     * @param shown the elements shown before
+     */
+    private void placeNewNodes( final Set<Object> shown )
+    {
+        Map<GraphNode, List<GraphNode>> placements = new HashMap<GraphNode, List<GraphNode>>();
+        for ( Object item : viewer.getGraphControl().getNodes() )
+        {
+            GraphNode graphNode = (GraphNode) item;
+            if ( shown.contains( graphNode.getData() ) )
+            {
+                continue;
+            }
+            GraphNode anchor = findShownNeighbour( graphNode, shown );
+            if ( anchor == null )
+            {
+                continue;
+            }
+            List<GraphNode> placed = placements.get( anchor );
+            if ( placed == null )
+            {
+                placed = new ArrayList<GraphNode>();
+                placements.put( anchor, placed );
+            }
+            placed.add( graphNode );
+        }
+        for ( Map.Entry<GraphNode, List<GraphNode>> entry : placements.entrySet() )
+        {
+            Point center = entry.getKey().getLocation();
+            List<GraphNode> placed = entry.getValue();
+            double radius = NEW_NODE_DISTANCE + placed.size() * 4;
+            for ( int i = 0; i < placed.size(); i++ )
+            {
+                double angle = 2 * Math.PI * i / placed.size();
+                placed.get( i ).setLocation( center.x + radius * Math.cos( angle ),
+                        center.y + radius * Math.sin( angle ) );
+            }
+        }
+    }
+
+    private GraphNode findShownNeighbour( final GraphNode graphNode, final Set<Object> shown )
+    {
+        for ( Object item : graphNode.getSourceConnections() )
+        {
+            GraphNode other = ( (GraphConnection) item ).getDestination();
+            if ( shown.contains( other.getData() ) )
+            {
+                return other;
+            }
+        }
+        for ( Object item : graphNode.getTargetConnections() )
+        {
+            GraphNode other = ( (GraphConnection) item ).getSource();
+            if ( shown.contains( other.getData() ) )
+            {
+                return other;
+            }
+        }
+        return null;
+    }
+
     /**
      * Refreshes the view.
      */
@@ -623,6 +788,316 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
         viewer.applyLayout();
     }
 
+    /**
+     * Stop a layout running in the background, the nodes stay where they are.
+     */
+    public void stopLayout()
+    {
+        BackgroundLayoutAlgorithm.stop( viewer.getGraphControl() );
+    }
+
+    /**
+     * Lay out the shown nodes anew with a different algorithm. Their
+     * remembered positions are dropped.
+     * 
+     * @param algorithm the new layout algorithm
+     */
+    public void setLayoutAlgorithm( final LayoutAlgorithm algorithm )
+    {
+        stopLayout();
+        if ( positionCache != null )
+        {
+            for ( Object item : viewer.getGraphControl().getNodes() )
+            {
+                Object data = ( (GraphNode) item ).getData();
+                if ( data instanceof Node )
+                {
+                    positionCache.remove( ( (Node) data ).getId() );
+                }
+            }
+        }
+        if ( algorithm instanceof BackgroundLayoutAlgorithm )
+        {
+            backgroundLayout = (BackgroundLayoutAlgorithm) algorithm;
+            backgroundLayout.setPositionCache( positionCache );
+        }
+        else
+        {
+            backgroundLayout = null;
+        }
+        viewer.setLayoutAlgorithm( algorithm, true );
+    }
+
+    /**
+     * Open the remembered node positions of a database.
+     */
+    private void openPositionCache( final Alias alias )
+    {
+        closePositionCache();
+        if ( alias == null )
+        {
+            return;
+        }
+        try
+        {
+            positionCache = new PositionCache( PositionCache.fileFor( alias.getName() ) );
+        }
+        catch ( IOException e )
+        {
+            // positions are a convenience, go on without them
+            e.printStackTrace();
+        }
+        if ( backgroundLayout != null )
+        {
+            backgroundLayout.setPositionCache( positionCache );
+        }
+        viewportFilter.setPositions( positionCache );
+    }
+
+    /**
+     * Forget the remembered position of a deleted node, its id may be given
+     * to a new node.
+     * 
+     * @param nodeId id of the deleted node
+     */
+    public void forgetPosition( final long nodeId )
+    {
+        UiHelper.asyncExec( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if ( positionCache != null )
+                {
+                    positionCache.remove( nodeId );
+                }
+            }
+        } );
+    }
+
+    private void closePositionCache()
+    {
+        if ( positionCache == null )
+        {
+            return;
+        }
+        rememberPositions();
+        if ( backgroundLayout != null )
+        {
+            backgroundLayout.setPositionCache( null );
+        }
+        viewportFilter.setPositions( null );
+        viewportFilter.setArea( null, false );
+        overviewLayer.setContent( new int[0], new int[0] );
+        try
+        {
+            positionCache.close();
+        }
+        catch ( IOException e )
+        {
+            e.printStackTrace();
+        }
+        positionCache = null;
+    }
+
+    /**
+     * Store the positions of the shown nodes, including the ones moved by the
+     * user.
+     */
+    private void rememberPositions()
+    {
+        if ( positionCache == null )
+        {
+            return;
+        }
+        try
+        {
+            for ( Object item : viewer.getGraphControl().getNodes() )
+            {
+                GraphNode graphNode = (GraphNode) item;
+                if ( graphNode.getData() instanceof Node )
+                {
+                    Point location = graphNode.getLocation();
+                    Dimension size = graphNode.getSize();
+                    positionCache.put( ( (Node) graphNode.getData() ).getId(), location.x + size.width / 2f,
+                            location.y + size.height / 2f );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Wait for panning or zooming to settle, then update the shown nodes and
+     * their detail level.
+     */
+    private void scheduleViewportUpdate()
+    {
+        if ( viewportUpdatePending )
+        {
+            return;
+        }
+        viewportUpdatePending = true;
+        viewer.getControl().getDisplay().timerExec( VIEWPORT_DELAY, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                viewportUpdatePending = false;
+                updateViewport();
+            }
+        } );
+    }
+
+    /**
+     * Update the labels if the zoom level changed the detail level. Then build
+     * figures for the nodes that came into view and drop the ones that went
+     * out of it. Nothing happens while the visible area stays within the
+     * margin around the area of the last update.
+     */
+    private void updateViewport()
+    {
+        if ( viewer.getControl().isDisposed() || viewer.getInput() == null )
+        {
+            return;
+        }
+        if ( getLabelProvider().setZoomScale( zoomScale() ) )
+        {
+            viewer.refresh( true );
+        }
+        if ( positionCache == null )
+        {
+            return;
+        }
+        Rectangle visible = visibleArea();
+        boolean overview = zoomScale() < OVERVIEW_SCALE;
+        Rectangle area = viewportFilter.getArea();
+        if ( overview == viewportFilter.isOverview() && ( overview || area != null && area.contains( visible ) ) )
+        {
+            return;
+        }
+        rememberPositions();
+        viewportFilter.setArea( visible.getCopy().expand( visible.width / 2, visible.height / 2 ), overview );
+        viewer.refresh( false );
+        placeKnownNodes();
+        updateOverview();
+    }
+
+    private double zoomScale()
+    {
+        Graph graph = viewer.getGraphControl();
+        return graph.getRootLayer() instanceof ScalableFigure ? ( (ScalableFigure) graph.getRootLayer() ).getScale()
+                : 1.0;
+    }
+
+    /**
+     * The visible part of the graph, in graph coordinates.
+     */
+    private Rectangle visibleArea()
+    {
+        Viewport viewport = viewer.getGraphControl().getViewport();
+        double scale = zoomScale();
+        Point location = viewport.getViewLocation();
+        Dimension size = viewport.getClientArea().getSize();
+        return new Rectangle( (int) ( location.x / scale ), (int) ( location.y / scale ),
+                (int) ( size.width / scale ), (int) ( size.height / scale ) );
+    }
+
+    /**
+     * Put the shown nodes at their remembered positions.
+     */
+    private void placeKnownNodes()
+    {
+        float[] position = new float[2];
+        for ( Object item : viewer.getGraphControl().getNodes() )
+        {
+            GraphNode graphNode = (GraphNode) item;
+            if ( graphNode.getData() instanceof Node
+                 && positionCache.get( ( (Node) graphNode.getData() ).getId(), position ) )
+            {
+                Dimension size = graphNode.getSize();
+                graphNode.setLocation( position[0] - size.width / 2f, position[1] - size.height / 2f );
+            }
+        }
+    }
+
+    /**
+     * Draw the nodes left out by the viewport filter and their relationships.
+     */
+    private void updateOverview()
+    {
+        List<Node> filteredOut = viewportFilter.getFilteredOut();
+        if ( positionCache == null || filteredOut.isEmpty()
+             || !( viewer.getContentProvider() instanceof NeoGraphContentProvider ) )
+        {
+            overviewLayer.setContent( new int[0], new int[0] );
+            return;
+        }
+        float[] position = new float[2];
+        Set<Long> hidden = new HashSet<Long>();
+        int[] points = new int[filteredOut.size() * 2];
+        int pointCount = 0;
+        for ( Node node : filteredOut )
+        {
+            if ( hidden.add( node.getId() ) && positionCache.get( node.getId(), position ) )
+            {
+                points[pointCount++] = Math.round( position[0] );
+                points[pointCount++] = Math.round( position[1] );
+            }
+        }
+        long[] connections = ( (NeoGraphContentProvider) viewer.getContentProvider() ).getKnownConnections();
+        int[] lines = new int[connections.length * 2];
+        int lineCount = 0;
+        float[] end = new float[2];
+        for ( int i = 0; i + 1 < connections.length; i += 2 )
+        {
+            if ( ( hidden.contains( connections[i] ) || hidden.contains( connections[i + 1] ) )
+                 && positionCache.get( connections[i], position ) && positionCache.get( connections[i + 1], end ) )
+            {
+                lines[lineCount++] = Math.round( position[0] );
+                lines[lineCount++] = Math.round( position[1] );
+                lines[lineCount++] = Math.round( end[0] );
+                lines[lineCount++] = Math.round( end[1] );
+            }
+        }
+        overviewLayer.setContent( Arrays.copyOf( points, pointCount ), Arrays.copyOf( lines, lineCount ) );
+    }
+
+    /**
+     * Show the surroundings of a node with a remembered position, or all
+     * nodes if it has none.
+     */
+    private void centerViewportOn( final Node node )
+    {
+        float[] position = new float[2];
+        if ( positionCache == null || node == null || !positionCache.get( node.getId(), position ) )
+        {
+            viewportFilter.setArea( null, false );
+            return;
+        }
+        Rectangle visible = visibleArea();
+        visible.setLocation( Math.round( position[0] ) - visible.width / 2, Math.round( position[1] )
+                                                                            - visible.height / 2 );
+        viewportFilter.setArea( visible.getCopy().expand( visible.width / 2, visible.height / 2 ),
+                zoomScale() < OVERVIEW_SCALE );
+        final double scale = zoomScale();
+        final Point location = new Point( (int) ( visible.x * scale ), (int) ( visible.y * scale ) );
+        UiHelper.asyncExec( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if ( !viewer.getControl().isDisposed() )
+                {
+                    viewer.getGraphControl().getViewport().setViewLocation( location );
+                }
+            }
+        } );
+    }
+
     /**
      * Refreshes the view without changing the layout.
      */
@@ -648,6 +1123,7 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
             {
                 disableDelete();
                 viewer.refresh( updateLabels );
+                updateOverview();
                 if ( viewer.getGraphControl().getNodes().size() == 0 )
                 {
                     // will take care of if the input node
@@ -732,7 +1208,10 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
             @Override
             public void run()
             {
+                rememberPositions();
+                centerViewportOn( node );
                 viewer.setInput( node );
+                updateOverview();
                 if ( node != null )
                 {
                     UiHelper.asyncExec( new Runnable()
@@ -806,6 +1285,8 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
                 menu.setEnabledShowRefNodeAction( false );
                 menu.setEnabledRefreshAction( false );
                 menu.setEnableDeleteAction( false );
+                stopLayout();
+                closePositionCache();
                 // when called during shutdown the content provider may already
                 // have been disposed
                 if ( getViewer().getContentProvider() != null )
@@ -818,6 +1299,7 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
             {
                 // throw away old relationship colors
                 getLabelProvider().refreshRelationshipColors();
+                openPositionCache( Activator.getDefault().getGraphDbServiceManager().getCurrentAlias() );
                 menu.setEnabledStartAction( false );
                 menu.setEnabledStopAction( true );
                 menu.setEnabledShowRefNodeAction( true );
@@ -986,6 +1468,7 @@ public class NeoGraphViewPart extends ViewPart implements IZoomableWorkbenchPart
                 @Override
                 public void run()
                 {
+                    getLabelProvider().forgetRenderData( event.getSource() );
                     refresh( event.getSource(), true );
                     if ( event.getPropertyName() != null )
                     {
@@ -0,0 +1,104 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.view;
+
+import org.eclipse.draw2d.ColorConstants;
+import org.eclipse.draw2d.FreeformLayer;
+import org.eclipse.draw2d.Graphics;
+import org.eclipse.draw2d.geometry.Rectangle;
+
+/**
+ * Draws the nodes the {@link ViewportFilter} left out as points and their
+ * relationships as lines, behind the figures of the shown nodes. One layer
+ * painting primitives costs next to nothing compared to a figure per node.
+ */
+public class OverviewLayer extends FreeformLayer
+{
+    private static final int POINT_SIZE = 3;
+
+    private int[] points = new int[0];
+    private int[] lines = new int[0];
+    private Rectangle extent = null;
+
+    public OverviewLayer()
+    {
+        setOpaque( false );
+    }
+
+    /**
+     * Set what to draw, in graph coordinates.
+     * 
+     * @param points x and y of every point, alternating
+     * @param lines x1, y1, x2 and y2 of every line
+     */
+    public void setContent( final int[] points, final int[] lines )
+    {
+        this.points = points;
+        this.lines = lines;
+        extent = null;
+        for ( int i = 0; i + 1 < points.length; i += 2 )
+        {
+            Rectangle point = new Rectangle( points[i] - POINT_SIZE, points[i + 1] - POINT_SIZE, POINT_SIZE * 2,
+                    POINT_SIZE * 2 );
+            extent = extent == null ? point : extent.union( point );
+        }
+        fireExtentChanged();
+        repaint();
+    }
+
+    @Override
+    public Rectangle getFreeformExtent()
+    {
+        Rectangle freeformExtent = super.getFreeformExtent();
+        return extent == null ? freeformExtent : freeformExtent.getCopy().union( extent );
+    }
+
+    @Override
+    protected void paintFigure( final Graphics graphics )
+    {
+        super.paintFigure( graphics );
+        if ( points.length == 0 )
+        {
+            return;
+        }
+        Rectangle clip = graphics.getClip( new Rectangle() );
+        graphics.setForegroundColor( ColorConstants.lightGray );
+        for ( int i = 0; i + 3 < lines.length; i += 4 )
+        {
+            int x1 = lines[i];
+            int y1 = lines[i + 1];
+            int x2 = lines[i + 2];
+            int y2 = lines[i + 3];
+            if ( Math.max( x1, x2 ) >= clip.x && Math.min( x1, x2 ) <= clip.right() && Math.max( y1, y2 ) >= clip.y
+                 && Math.min( y1, y2 ) <= clip.bottom() )
+            {
+                graphics.drawLine( x1, y1, x2, y2 );
+            }
+        }
+        graphics.setBackgroundColor( ColorConstants.gray );
+        for ( int i = 0; i + 1 < points.length; i += 2 )
+        {
+            if ( clip.contains( points[i], points[i + 1] ) )
+            {
+                graphics.fillRectangle( points[i] - POINT_SIZE / 2, points[i + 1] - POINT_SIZE / 2, POINT_SIZE,
+                        POINT_SIZE );
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.view;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.ui.part.ViewPart;
+import org.neo4j.neoclipse.Activator;
+import org.neo4j.neoclipse.Icons;
+import org.neo4j.neoclipse.graphdb.TaskMetrics;
+import org.neo4j.neoclipse.graphdb.TaskStatistics;
+import org.neo4j.neoclipse.util.DataExportUtils;
+
+/**
+ * Shows how long the tasks run by the graph database manager wait and run,
+ * per task label, along with the lane queue depths and throughput.
+ */
+public class PerformanceView extends ViewPart
+{
+    public static final String ID = "org.neo4j.neoclipse.view.PerformanceView";
+    /**
+     * Milliseconds between refreshes.
+     */
+    private static final int REFRESH_INTERVAL = 1000;
+    private static final String[] COLUMNS = { "Task", "Count", "Failures", "Wait p50 (ms)", "Wait p99 (ms)",
+            "Wait max (ms)", "Run p50 (ms)", "Run p99 (ms)", "Run max (ms)", "Run total (ms)" };
+    private Label status;
+    private TableViewer tableViewer;
+    private long lastCompleted = -1;
+    private long lastRefresh = 0;
+
+    @Override
+    public void createPartControl( final Composite parent )
+    {
+        parent.setLayout( new GridLayout( 1, false ) );
+        status = new Label( parent, SWT.NONE );
+        status.setLayoutData( new GridData( SWT.FILL, SWT.CENTER, true, false ) );
+
+        tableViewer = new TableViewer( parent, SWT.SINGLE | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL );
+        Table table = tableViewer.getTable();
+        table.setLayoutData( new GridData( SWT.FILL, SWT.FILL, true, true ) );
+        table.setHeaderVisible( true );
+        table.setLinesVisible( true );
+        for ( int i = 0; i < COLUMNS.length; i++ )
+        {
+            final int index = i;
+            TableViewerColumn viewerColumn = new TableViewerColumn( tableViewer, i == 0 ? SWT.LEFT : SWT.RIGHT );
+            TableColumn column = viewerColumn.getColumn();
+            column.setText( COLUMNS[i] );
+            column.setWidth( i == 0 ? 220 : 90 );
+            column.setResizable( true );
+            viewerColumn.setLabelProvider( new ColumnLabelProvider()
+            {
+                @Override
+                public String getText( final Object element )
+                {
+                    return cells( (TaskStatistics) element )[index];
+                }
+            } );
+        }
+        tableViewer.setContentProvider( new ArrayContentProvider() );
+
+        IToolBarManager toolBarManager = getViewSite().getActionBars().getToolBarManager();
+        Action refreshAction = new Action( "Refresh", Icons.REFRESH.descriptor() )
+        {
+            @Override
+            public void run()
+            {
+                refresh();
+            }
+        };
+        Action resetAction = new Action( "Reset", Icons.CLEAR_ENABLED.descriptor() )
+        {
+            @Override
+            public void run()
+            {
+                metrics().reset();
+                lastCompleted = -1;
+                refresh();
+            }
+        };
+        Action exportAction = new Action( "Export to CSV", Icons.CSV.descriptor() )
+        {
+            @Override
+            public void run()
+            {
+                exportToCsv();
+            }
+        };
+        toolBarManager.add( refreshAction );
+        toolBarManager.add( resetAction );
+        toolBarManager.add( exportAction );
+
+        scheduleRefresh();
+    }
+
+    private TaskMetrics metrics()
+    {
+        return Activator.getDefault().getGraphDbServiceManager().getTaskMetrics();
+    }
+
+    private void scheduleRefresh()
+    {
+        refresh();
+        tableViewer.getControl().getDisplay().timerExec( REFRESH_INTERVAL, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if ( !tableViewer.getControl().isDisposed() )
+                {
+                    scheduleRefresh();
+                }
+            }
+        } );
+    }
+
+    private void refresh()
+    {
+        if ( tableViewer.getControl().isDisposed() )
+        {
+            return;
+        }
+        TaskMetrics metrics = metrics();
+        long now = System.currentTimeMillis();
+        long completed = metrics.getCompletedTasks();
+        String rate;
+        if ( lastCompleted < 0 || now <= lastRefresh )
+        {
+            rate = String.format( "%.1f", metrics.getThroughput() );
+        }
+        else
+        {
+            rate = String.format( "%.1f", ( completed - lastCompleted ) * 1000.0 / ( now - lastRefresh ) );
+        }
+        lastCompleted = completed;
+        lastRefresh = now;
+        status.setText( "Writer queue: " + metrics.getWriterQueueDepth() + "   Reader queue: "
+                        + metrics.getReaderQueueDepth() + "   Running: " + metrics.getRunningTasks()
+                        + "   Completed: " + completed + " (" + metrics.getFailedTasks() + " failed)"
+                        + "   Throughput: " + rate + " tasks/s"
+                        + ( Activator.getDefault().getGraphDbServiceManager().isRemote() ? ""
+                                : "   Repeated query text: " + Math.round( metrics.getRepeatedQueryRate() * 100 )
+                                  + "%" ) );
+        status.getParent().layout();
+        tableViewer.setInput( metrics.getTaskStatistics() );
+    }
+
+    private void exportToCsv()
+    {
+        List<String[]> rows = new ArrayList<String[]>();
+        for ( TaskStatistics statistics : metrics().getTaskStatistics() )
+        {
+            rows.add( cells( statistics ) );
+        }
+        try
+        {
+            File file = DataExportUtils.exportTableToCsv( COLUMNS, rows );
+            ErrorMessage.showDialog( "CSV Export", "CSV file is created at " + file );
+        }
+        catch ( Exception e )
+        {
+            ErrorMessage.showDialog( "CSV exporting problem", e );
+        }
+    }
+
+    private static String[] cells( final TaskStatistics statistics )
+    {
+        return new String[] { statistics.getLabel(), String.valueOf( statistics.getCount() ),
+                String.valueOf( statistics.getFailures() ), millis( statistics.getWaitP50() ),
+                millis( statistics.getWaitP99() ), millis( statistics.getWaitMax() ),
+                millis( statistics.getRunP50() ), millis( statistics.getRunP99() ),
+                millis( statistics.getRunMax() ), millis( statistics.getRunTotal() ) };
+    }
+
+    private static String millis( final long micros )
+    {
+        return String.format( "%.3f", micros / 1000.0 );
+    }
+
+    @Override
+    public void setFocus()
+    {
+        tableViewer.getControl().setFocus();
+    }
+}
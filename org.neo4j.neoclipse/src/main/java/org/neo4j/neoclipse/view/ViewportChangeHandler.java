@@ -0,0 +1,45 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.view;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+/**
+ * Responds to the graph being panned or zoomed, by listening to the range
+ * models of its viewport.
+ */
+class ViewportChangeHandler implements PropertyChangeListener
+{
+    private final Runnable update;
+
+    /**
+     * @param update what to run when the viewport changed
+     */
+    ViewportChangeHandler( final Runnable update )
+    {
+        this.update = update;
+    }
+
+    @Override
+    public void propertyChange( final PropertyChangeEvent event )
+    {
+        update.run();
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to Neo Technology under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Neo Technology licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.neo4j.neoclipse.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.draw2d.geometry.Rectangle;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerFilter;
+import org.neo4j.graphdb.Node;
+import org.neo4j.neoclipse.graphdb.HiddenRelationships;
+import org.neo4j.neoclipse.layout.PositionCache;
+
+/**
+ * Keeps nodes out of the graph viewer while they are outside the visible
+ * area, so no figures are built for them. Only nodes with a remembered
+ * position can be left out, the others still need a layout. When zoomed out
+ * far, all such nodes are left out and drawn as points instead. The input
+ * node is always shown.
+ */
+public class ViewportFilter extends ViewerFilter
+{
+    private PositionCache positions = null;
+    private Rectangle area = null;
+    private boolean overview = false;
+    private final float[] position = new float[2];
+    private final List<Node> filteredOut = new ArrayList<Node>();
+
+    /**
+     * Set the remembered positions, null shows all nodes.
+     */
+    public void setPositions( final PositionCache positions )
+    {
+        this.positions = positions;
+    }
+
+    /**
+     * Set the area to show nodes in, in graph coordinates and including a
+     * margin.
+     * 
+     * @param area the area, null for no limit
+     * @param overview true to leave out every node with a known position
+     */
+    public void setArea( final Rectangle area, final boolean overview )
+    {
+        this.area = area;
+        this.overview = overview;
+    }
+
+    public Rectangle getArea()
+    {
+        return area;
+    }
+
+    public boolean isOverview()
+    {
+        return overview;
+    }
+
+    /**
+     * The nodes left out by the last filtering.
+     * 
+     * @return the nodes
+     */
+    public List<Node> getFilteredOut()
+    {
+        return filteredOut;
+    }
+
+    @Override
+    public Object[] filter( final Viewer viewer, final Object parent, final Object[] elements )
+    {
+        filteredOut.clear();
+        return super.filter( viewer, parent, elements );
+    }
+
+    @Override
+    public boolean select( final Viewer viewer, final Object parentElement, final Object element )
+    {
+        if ( element instanceof HiddenRelationships )
+        {
+            return isShown( viewer, ( (HiddenRelationships) element ).getNode() );
+        }
+        if ( !( element instanceof Node ) || isShown( viewer, (Node) element ) )
+        {
+            return true;
+        }
+        filteredOut.add( (Node) element );
+        return false;
+    }
+
+    private boolean isShown( final Viewer viewer, final Node node )
+    {
+        if ( positions == null || area == null && !overview || node.equals( viewer.getInput() )
+             || !positions.get( node.getId(), position ) )
+        {
+            return true;
+        }
+        return !overview && area.contains( Math.round( position[0] ), Math.round( position[1] ) );
+    }
+}